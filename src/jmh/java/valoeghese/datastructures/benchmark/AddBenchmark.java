@@ -0,0 +1,51 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.Tree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of filling each structure with {@code size} keys through repeated calls to {@link Tree#add}.
+ * Each invocation builds a whole structure, so the score is the time to build, and the gc profiler's
+ * {@code gc.alloc.rate.norm} is the bytes allocated per build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AddBenchmark {
+	@Param
+	public Structure structure;
+
+	@Param
+	public KeyDistribution distribution;
+
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int size;
+
+	private int[] keys;
+
+	@Setup
+	public void setup() {
+		this.keys = this.distribution.generate(this.size, new SplittableRandom(BenchmarkMain.SEED));
+	}
+
+	@Benchmark
+	public Tree<Integer> add() {
+		return this.structure.create(this.keys);
+	}
+}
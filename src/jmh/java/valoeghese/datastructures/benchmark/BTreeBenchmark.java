@@ -0,0 +1,65 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+import valoeghese.datastructures.BTree;
+import valoeghese.datastructures.Tree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares lookups in a {@link BTree} of various fanouts against an {@link AVLTree}, at sizes well beyond the CPU
+ * caches. A fanout of 0 means the AVL tree. The 1e8 size needs a heap of around 16GB; pass
+ * {@code -jvmArgsAppend -Xmx16g} and {@code -p size=100000000} to include it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class BTreeBenchmark {
+	@Param({"0", "16", "64", "256"})
+	public int fanout;
+
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	private Tree<Integer> tree;
+	private Integer[] probes;
+	private int probeIndex;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+		this.tree = this.fanout == 0 ? new AVLTree<>() : new BTree<>(this.fanout);
+
+		for (int key : KeyDistribution.UNIFORM.generate(this.size, random)) {
+			this.tree.add(key);
+		}
+
+		this.probes = new Integer[1 << 16];
+
+		for (int i = 0; i < this.probes.length; i++) {
+			this.probes[i] = random.nextInt();
+		}
+	}
+
+	@Benchmark
+	public boolean contains() {
+		Integer probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		return this.tree.contains(probe);
+	}
+}
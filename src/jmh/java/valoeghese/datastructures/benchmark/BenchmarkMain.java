@@ -0,0 +1,34 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmark jar. Accepts the usual JMH command line options, and always attaches the gc
+ * profiler so allocation rates are reported alongside timings. <br>
+ * Sizes up to 1e7 are included by default. The larger sizes take a long time to set up, particularly for
+ * {@code SIMPLE} with sorted input and for heap {@code contains}, which are linear. Narrow the run with
+ * {@code -p structure=AVL,RED_BLACK -p size=1000,100000} and the like.
+ */
+public final class BenchmarkMain {
+	private BenchmarkMain() {
+	}
+
+	/**
+	 * Seed used for all key generation, so every structure sees the same keys.
+	 */
+	static final long SEED = 0x5EED_AB1EL;
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+
+		new Runner(new OptionsBuilder()
+				.parent(commandLine)
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
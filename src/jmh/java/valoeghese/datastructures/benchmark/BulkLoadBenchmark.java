@@ -0,0 +1,77 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+import valoeghese.datastructures.RedBlackTree;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a tree from sorted keys with {@code fromSorted} against adding them one at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BulkLoadBenchmark {
+	@Param({"1000", "100000", "1000000", "10000000"})
+	public int size;
+
+	private Integer[] keys;
+
+	@Setup
+	public void setup() {
+		int[] keys = KeyDistribution.SORTED.generate(this.size, new SplittableRandom(BenchmarkMain.SEED));
+		this.keys = new Integer[keys.length];
+
+		for (int i = 0; i < keys.length; i++) {
+			this.keys[i] = keys[i];
+		}
+	}
+
+	@Benchmark
+	public AVLTree<Integer> avlAdd() {
+		AVLTree<Integer> tree = new AVLTree<>();
+
+		for (Integer key : this.keys) {
+			tree.add(key);
+		}
+
+		return tree;
+	}
+
+	@Benchmark
+	public AVLTree<Integer> avlFromSorted() {
+		return AVLTree.fromSorted(Arrays.asList(this.keys).iterator(), this.keys.length);
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> redBlackAdd() {
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+
+		for (Integer key : this.keys) {
+			tree.add(key);
+		}
+
+		return tree;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> redBlackFromSorted() {
+		return RedBlackTree.fromSorted(Arrays.asList(this.keys).iterator(), this.keys.length);
+	}
+}
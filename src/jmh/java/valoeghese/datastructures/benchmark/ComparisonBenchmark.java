@@ -0,0 +1,122 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups in an {@link AVLTree} with the fast comparison paths for common key types, against ordering the
+ * same keys through {@link Comparator#naturalOrder()}, which calls {@link Comparable#compareTo(Object)} as the trees
+ * did before. Before measuring, trees of every key type are used, so the shared call sites have seen several classes
+ * as they would in a real application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComparisonBenchmark {
+	@Param({"INTEGER", "LONG", "STRING"})
+	public KeyType keyType;
+
+	@Param({"FAST_PATH", "NATURAL_ORDER_COMPARATOR"})
+	public Ordering ordering;
+
+	// comparisons matter most once the tree fits in cache
+	@Param({"1000", "100000"})
+	public int size;
+
+	private AVLTree tree;
+	private Comparable[] probes;
+	private int probeIndex;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+
+		// pollute the comparison call sites with every key type and ordering
+		for (KeyType type : KeyType.values()) {
+			for (Ordering ordering : Ordering.values()) {
+				AVLTree pollution = ordering.create();
+
+				for (int i = 0; i < 100_000; i++) {
+					Comparable key = type.key(random.nextInt());
+					pollution.add(key);
+					pollution.contains(key);
+				}
+			}
+		}
+
+		int[] keys = KeyDistribution.UNIFORM.generate(this.size, random);
+		this.tree = this.ordering.create();
+
+		for (int key : keys) {
+			this.tree.add(this.keyType.key(key));
+		}
+
+		this.probes = new Comparable[1 << 16];
+
+		for (int i = 0; i < this.probes.length; i++) {
+			this.probes[i] = this.keyType.key(keys[random.nextInt(keys.length)]);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Benchmark
+	public boolean contains() {
+		Comparable probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		return this.tree.contains(probe);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Benchmark
+	public boolean addRemove() {
+		Comparable probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		this.tree.add(probe);
+		return this.tree.remove(probe);
+	}
+
+	public enum KeyType {
+		INTEGER,
+		LONG,
+		STRING;
+
+		Comparable<?> key(int value) {
+			switch (this) {
+			case INTEGER:
+				return value;
+			case LONG:
+				return (long) value;
+			default:
+				return String.format("%011d", (long) value);
+			}
+		}
+	}
+
+	public enum Ordering {
+		FAST_PATH,
+		NATURAL_ORDER_COMPARATOR;
+
+		@SuppressWarnings("rawtypes")
+		AVLTree create() {
+			return this == FAST_PATH ? new AVLTree() : new AVLTree(Comparator.naturalOrder());
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+import valoeghese.datastructures.ConcurrentSkipList;
+import valoeghese.datastructures.Tree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A mixed read/write workload on a shared tree, comparing {@link ConcurrentSkipList} against an {@link AVLTree}
+ * guarded by a single lock. Run with {@code -t 1,2,4,8,16,32} to see how each scales with threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ConcurrentBenchmark {
+	@Param({"SKIP_LIST", "SYNCHRONIZED_AVL"})
+	public String implementation;
+
+	@Param({"1000000"})
+	public int size;
+
+	/**
+	 * Percentage of operations which are writes, split evenly between add and remove.
+	 */
+	@Param({"10"})
+	public int writePercent;
+
+	private Tree<Integer> tree;
+	private boolean synchronize;
+
+	@Setup
+	public void setup() {
+		this.synchronize = this.implementation.equals("SYNCHRONIZED_AVL");
+		this.tree = this.synchronize ? new AVLTree<>() : new ConcurrentSkipList<>();
+
+		for (int key : KeyDistribution.UNIFORM.generate(this.size, new SplittableRandom(BenchmarkMain.SEED))) {
+			this.tree.add((key & Integer.MAX_VALUE) % (2 * this.size));
+		}
+	}
+
+	@Benchmark
+	public boolean mixed() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Integer key = random.nextInt(2 * this.size);
+		int operation = random.nextInt(100);
+
+		if (this.synchronize) {
+			synchronized (this.tree) {
+				return this.operate(key, operation);
+			}
+		} else {
+			return this.operate(key, operation);
+		}
+	}
+
+	private boolean operate(Integer key, int operation) {
+		if (operation < this.writePercent / 2) {
+			this.tree.add(key);
+			return true;
+		} else if (operation < this.writePercent) {
+			return this.tree.remove(key);
+		} else {
+			return this.tree.contains(key);
+		}
+	}
+}
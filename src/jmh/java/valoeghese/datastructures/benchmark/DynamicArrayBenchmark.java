@@ -0,0 +1,125 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.DynamicArray;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a {@link DynamicArray} used as a queue and as a deque, holding a steady number of elements, and removing
+ * from near either end of it. Also measures a list repeatedly shrinking and growing across the point where the array
+ * shrinks, and adding many elements at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DynamicArrayBenchmark {
+	@Param({"5000", "320000"})
+	public int size;
+
+	private DynamicArray<Integer> array;
+	private int next;
+	private Integer[] batch;
+
+	@Setup
+	public void setup() {
+		this.array = new DynamicArray<>(16);
+
+		for (int i = 0; i < this.size; i++) {
+			this.array.add(i);
+		}
+
+		this.batch = new Integer[this.size];
+
+		for (int i = 0; i < this.size; i++) {
+			this.batch[i] = i;
+		}
+	}
+
+	/**
+	 * Add to the back and take from the front, as a queue.
+	 */
+	@Benchmark
+	public Integer queue() {
+		this.array.add(this.next++);
+		return this.array.remove(this.array.minIndex());
+	}
+
+	/**
+	 * Add to the front and take from the back, as a deque.
+	 */
+	@Benchmark
+	public Integer prependRemoveLast() {
+		this.array.prepend(this.next++);
+		return this.array.remove(this.array.maxIndex());
+	}
+
+	/**
+	 * Remove an element a few places from the front, putting it back at the front.
+	 */
+	@Benchmark
+	public Integer removeNearFront() {
+		Integer element = this.array.remove(this.array.minIndex() + 8);
+		this.array.prepend(element);
+		return element;
+	}
+
+	/**
+	 * Remove elements from the back until the list is just under a quarter of its capacity, then add them back.
+	 * @return the size at the lowest point.
+	 */
+	@Benchmark
+	public int sawtooth() {
+		// the sizes have the next power of two as capacity, and 2/5 of the size is under a quarter of it
+		int removed = this.size - this.size * 2 / 5;
+
+		for (int i = 0; i < removed; i++) {
+			this.array.remove(this.array.maxIndex());
+		}
+
+		int low = this.array.size();
+
+		for (int i = 0; i < removed; i++) {
+			this.array.add(i);
+		}
+
+		return low;
+	}
+
+	/**
+	 * Add a batch of elements to an empty list in one call.
+	 */
+	@Benchmark
+	public DynamicArray<Integer> addAll() {
+		DynamicArray<Integer> array = new DynamicArray<>(16);
+		array.addAll(this.batch);
+		return array;
+	}
+
+	/**
+	 * Add a batch of elements to an empty list one at a time.
+	 */
+	@Benchmark
+	public DynamicArray<Integer> addEach() {
+		DynamicArray<Integer> array = new DynamicArray<>(16);
+
+		for (Integer element : this.batch) {
+			array.add(element);
+		}
+
+		return array;
+	}
+}
@@ -0,0 +1,85 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares searching an {@link AVLTree} from the root against finger search and the lookup cache, on probes which
+ * each move a bounded distance from the last, and on probes spread uniformly over the keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FingerSearchBenchmark {
+	@Param({"ROOT", "FINGER", "FINGER_AND_CACHE"})
+	public Lookup lookup;
+
+	/**
+	 * The greatest distance in keys between consecutive probes, or 0 for uniformly random probes.
+	 */
+	@Param({"4", "1000", "0"})
+	public int distance;
+
+	@Param({"1000000"})
+	public int size;
+
+	private AVLTree<Integer> tree;
+	private Integer[] probes;
+	private int probeIndex;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+		this.tree = new AVLTree<>();
+
+		// even keys, so half the probes miss
+		for (int i = 0; i < this.size; i++) {
+			this.tree.add(i * 2);
+		}
+
+		if (this.lookup != Lookup.ROOT) this.tree.enableFingerSearch();
+		if (this.lookup == Lookup.FINGER_AND_CACHE) this.tree.enableLookupCache(256);
+
+		this.probes = new Integer[1 << 16];
+		int probe = this.size;
+
+		for (int i = 0; i < this.probes.length; i++) {
+			if (this.distance == 0) {
+				probe = random.nextInt(this.size * 2);
+			} else {
+				probe = Math.floorMod(probe + random.nextInt(-this.distance, this.distance + 1), this.size * 2);
+			}
+
+			this.probes[i] = probe;
+		}
+	}
+
+	@Benchmark
+	public boolean contains() {
+		Integer probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		return this.tree.contains(probe);
+	}
+
+	public enum Lookup {
+		ROOT,
+		FINGER,
+		FINGER_AND_CACHE
+	}
+}
@@ -0,0 +1,70 @@
+package valoeghese.datastructures.benchmark;
+
+import valoeghese.datastructures.Tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Reports the heap used per element by each structure, measured by filling it and comparing the live heap before and
+ * after. The keys are boxed up front and kept alive throughout, so only the structure's own memory is counted. <br>
+ * Run from the benchmark jar with a heap large enough for the size, for example
+ * {@code java -Xmx12g -cp target/benchmarks.jar valoeghese.datastructures.benchmark.FootprintReport 50000000 AVL COMPACT_AVL}.
+ * With no arguments, measures every search tree at 1e6 elements.
+ */
+public final class FootprintReport {
+	private FootprintReport() {
+	}
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		List<Structure> structures = new ArrayList<>();
+
+		for (int i = 1; i < args.length; i++) {
+			structures.add(Structure.valueOf(args[i]));
+		}
+
+		if (structures.isEmpty()) {
+			structures.addAll(Arrays.asList(Structure.AVL, Structure.RED_BLACK, Structure.COMPACT_AVL, Structure.COMPACT_RED_BLACK, Structure.SPLAY, Structure.B_TREE));
+		}
+
+		int[] keys = KeyDistribution.UNIFORM.generate(size, new SplittableRandom(BenchmarkMain.SEED));
+		Integer[] boxed = new Integer[size];
+
+		for (int i = 0; i < size; i++) {
+			boxed[i] = keys[i];
+		}
+
+		keys = null;
+		System.out.printf("%-20s %14s %12s%n", "structure", "bytes/element", "total MiB");
+
+		for (Structure structure : structures) {
+			long before = liveHeap();
+			Tree<Integer> tree = structure.create();
+
+			for (Integer key : boxed) {
+				tree.add(key);
+			}
+
+			long used = liveHeap() - before;
+			System.out.printf("%-20s %14.1f %12.1f%n", structure, (double) used / size, used / (1024.0 * 1024.0));
+
+			// keep the tree reachable until it has been measured
+			if (tree.size() != size) throw new IllegalStateException();
+		}
+
+		if (boxed.length != size) throw new IllegalStateException();
+	}
+
+	private static long liveHeap() {
+		Runtime runtime = Runtime.getRuntime();
+
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,78 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import valoeghese.datastructures.SimpleHeap;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a heap with repeated {@code add} against building it in bulk, and measures draining a full
+ * heap with {@code remove}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HeapBenchmark {
+	@Param
+	public KeyDistribution distribution;
+
+	@Param({"1000", "100000", "1000000", "10000000"})
+	public int size;
+
+	private Integer[] keys;
+	private SimpleHeap<Integer> full;
+
+	@Setup
+	public void setup() {
+		int[] keys = this.distribution.generate(this.size, new SplittableRandom(BenchmarkMain.SEED));
+		this.keys = new Integer[keys.length];
+
+		for (int i = 0; i < keys.length; i++) {
+			this.keys[i] = keys[i];
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void fill() {
+		this.full = SimpleHeap.newMinHeap(this.keys);
+	}
+
+	@Benchmark
+	public SimpleHeap<Integer> buildByAdd() {
+		SimpleHeap<Integer> heap = SimpleHeap.newMinHeap();
+
+		for (Integer key : this.keys) {
+			heap.add(key);
+		}
+
+		return heap;
+	}
+
+	@Benchmark
+	public SimpleHeap<Integer> buildBulk() {
+		return SimpleHeap.newMinHeap(this.keys);
+	}
+
+	@Benchmark
+	public void drain(Blackhole blackhole) {
+		while (!this.full.isEmpty()) {
+			blackhole.consume(this.full.remove());
+		}
+	}
+}
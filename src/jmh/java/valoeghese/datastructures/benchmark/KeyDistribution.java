@@ -0,0 +1,104 @@
+package valoeghese.datastructures.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Distributions of keys to feed into the data structures under benchmark.
+ */
+public enum KeyDistribution {
+	/**
+	 * Keys drawn uniformly at random from the whole int range.
+	 */
+	UNIFORM {
+		@Override
+		int[] generate(int size, SplittableRandom random) {
+			int[] keys = new int[size];
+
+			for (int i = 0; i < size; i++) {
+				keys[i] = random.nextInt();
+			}
+
+			return keys;
+		}
+	},
+	/**
+	 * Keys in ascending order. The worst case for an unbalanced tree.
+	 */
+	SORTED {
+		@Override
+		int[] generate(int size, SplittableRandom random) {
+			int[] keys = UNIFORM.generate(size, random);
+			Arrays.sort(keys);
+			return keys;
+		}
+	},
+	/**
+	 * Keys in descending order.
+	 */
+	REVERSE_SORTED {
+		@Override
+		int[] generate(int size, SplittableRandom random) {
+			int[] keys = SORTED.generate(size, random);
+
+			for (int i = 0, j = size - 1; i < j; i++, j--) {
+				int temp = keys[i];
+				keys[i] = keys[j];
+				keys[j] = temp;
+			}
+
+			return keys;
+		}
+	},
+	/**
+	 * Keys following a Zipf distribution (exponent 1) over {@code size} distinct values, in random order.
+	 * A few keys are very common and most are rare.
+	 */
+	ZIPF {
+		@Override
+		int[] generate(int size, SplittableRandom random) {
+			// cumulative distribution over ranks 1..size
+			double[] cdf = new double[size];
+			double total = 0;
+
+			for (int rank = 1; rank <= size; rank++) {
+				total += 1.0 / rank;
+				cdf[rank - 1] = total;
+			}
+
+			int[] keys = new int[size];
+
+			for (int i = 0; i < size; i++) {
+				int index = Arrays.binarySearch(cdf, random.nextDouble() * total);
+				// binarySearch returns (-insertion point - 1) when the value is not exactly present
+				keys[i] = index < 0 ? -index - 1 : index;
+			}
+
+			return keys;
+		}
+	},
+	/**
+	 * Keys drawn uniformly from a small range, so each key appears around 64 times.
+	 */
+	DUPLICATE_HEAVY {
+		@Override
+		int[] generate(int size, SplittableRandom random) {
+			int distinct = Math.max(1, size / 64);
+			int[] keys = new int[size];
+
+			for (int i = 0; i < size; i++) {
+				keys[i] = random.nextInt(distinct);
+			}
+
+			return keys;
+		}
+	};
+
+	/**
+	 * Generate keys following this distribution.
+	 * @param size the number of keys to generate.
+	 * @param random the source of randomness.
+	 * @return the generated keys, in insertion order.
+	 */
+	abstract int[] generate(int size, SplittableRandom random);
+}
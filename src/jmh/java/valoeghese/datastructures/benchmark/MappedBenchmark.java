@@ -0,0 +1,84 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.KeyCodec;
+import valoeghese.datastructures.MappedBPlusTree;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups in a {@link MappedBPlusTree} with page caches of different sizes, and the time to reopen the file.
+ * Reopening reads only the header, so it should not depend on the size of the tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedBenchmark {
+	@Param({"1000000"})
+	public int size;
+
+	@Param({"8", "1024", "65536"})
+	public int cachePages;
+
+	private Path file;
+	private MappedBPlusTree<Integer> tree;
+	private int[] probes;
+	private int probeIndex;
+
+	@Setup
+	public void setup() throws IOException {
+		this.file = Files.createTempFile("benchmark", ".bpt");
+		Files.delete(this.file);
+		this.tree = MappedBPlusTree.open(this.file, KeyCodec.INTEGER, MappedBPlusTree.DEFAULT_PAGE_SIZE, this.cachePages);
+
+		int[] keys = KeyDistribution.UNIFORM.generate(this.size, new SplittableRandom(BenchmarkMain.SEED));
+
+		for (int key : keys) {
+			this.tree.add(key);
+		}
+
+		this.probes = KeyDistribution.UNIFORM.generate(1024, new SplittableRandom(BenchmarkMain.SEED + 1));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		this.tree.close();
+		Files.delete(this.file);
+	}
+
+	@Benchmark
+	public boolean contains() {
+		int probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		return this.tree.contains(probe);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int reopen() throws IOException {
+		this.tree.flush();
+
+		try (MappedBPlusTree<Integer> reopened = MappedBPlusTree.open(this.file, KeyCodec.INTEGER)) {
+			return reopened.size();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.BinarySearchTree;
+import valoeghese.datastructures.TreeMetrics;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link TreeMetrics} by running the same lookups and insertions with metrics on and off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+	@Param({"AVL", "RED_BLACK", "SPLAY"})
+	public Structure structure;
+
+	@Param({"false", "true"})
+	public boolean metrics;
+
+	@Param({"1000000"})
+	public int size;
+
+	private BinarySearchTree<Integer, ?> tree;
+	private Integer[] probes;
+	private int probeIndex;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+		int[] keys = KeyDistribution.UNIFORM.generate(this.size, random);
+		this.tree = (BinarySearchTree<Integer, ?>) this.structure.create(keys);
+
+		if (this.metrics) {
+			this.tree.enableMetrics();
+		}
+
+		this.probes = new Integer[1024];
+
+		for (int i = 0; i < this.probes.length; i++) {
+			this.probes[i] = (i & 1) == 0 ? keys[random.nextInt(keys.length)] : random.nextInt();
+		}
+	}
+
+	@Benchmark
+	public boolean contains() {
+		Integer probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		return this.tree.contains(probe);
+	}
+
+	@Benchmark
+	public boolean addRemove() {
+		Integer probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		this.tree.add(probe);
+		return this.tree.remove(probe);
+	}
+}
@@ -0,0 +1,78 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+import valoeghese.datastructures.OffHeapAVLTree;
+import valoeghese.datastructures.Tree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds a large tree, either on or off the heap, while allocating short-lived garbage and probing the tree.
+ * Compare {@code gc.time} between the two: the collector has to trace every node of an {@link AVLTree}, but none of
+ * an {@link OffHeapAVLTree}. Run with {@code -prof gc} to report the collection counts and times alongside the
+ * throughput. The heap used by the on-heap tree itself is measured by {@link FootprintReport}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OffHeapBenchmark {
+	@Param({"ON_HEAP", "OFF_HEAP"})
+	public String storage;
+
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	private Tree<Long> tree;
+	private long[] probes;
+	private int probeIndex;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+
+		this.tree = this.storage.equals("ON_HEAP") ? new AVLTree<>() : new OffHeapAVLTree();
+
+		for (int i = 0; i < this.size; i++) {
+			this.tree.add(random.nextLong());
+		}
+
+		this.probes = new long[1024];
+
+		for (int i = 0; i < this.probes.length; i++) {
+			this.probes[i] = random.nextLong();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (this.tree instanceof OffHeapAVLTree offHeap) {
+			offHeap.close();
+		}
+	}
+
+	@Benchmark
+	public Object churn() {
+		long probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+
+		// a boxed lookup plus a small garbage array, so the collector runs regularly
+		this.tree.contains(probe);
+		return new long[64];
+	}
+}
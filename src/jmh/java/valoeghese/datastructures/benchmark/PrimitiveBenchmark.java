@@ -0,0 +1,98 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+import valoeghese.datastructures.IntAVLTree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link IntAVLTree} against a boxed {@link AVLTree} over the same keys.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PrimitiveBenchmark {
+	@Param({"UNIFORM", "SORTED"})
+	public KeyDistribution distribution;
+
+	@Param({"100000", "1000000", "10000000"})
+	public int size;
+
+	private int[] keys;
+	private int[] probes;
+	private AVLTree<Integer> boxed;
+	private IntAVLTree primitive;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+		this.keys = this.distribution.generate(this.size, random);
+		this.probes = KeyDistribution.UNIFORM.generate(1 << 16, random);
+		this.boxed = this.buildBoxed();
+		this.primitive = this.buildPrimitive();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public AVLTree<Integer> buildBoxed() {
+		AVLTree<Integer> tree = new AVLTree<>();
+
+		for (int key : this.keys) {
+			tree.add(key);
+		}
+
+		return tree;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public IntAVLTree buildPrimitive() {
+		IntAVLTree tree = new IntAVLTree(this.keys.length);
+
+		for (int key : this.keys) {
+			tree.add(key);
+		}
+
+		return tree;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int containsBoxed() {
+		int found = 0;
+
+		for (int probe : this.probes) {
+			if (this.boxed.contains(probe)) found++;
+		}
+
+		return found;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int containsPrimitive() {
+		int found = 0;
+
+		for (int probe : this.probes) {
+			if (this.primitive.contains(probe)) found++;
+		}
+
+		return found;
+	}
+}
@@ -0,0 +1,73 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.Tree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups on a structure prefilled with {@code size} keys. Reports both throughput and sampled latency,
+ * the latter giving percentiles per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+	@Param
+	public Structure structure;
+
+	@Param
+	public KeyDistribution distribution;
+
+	@Param({"1000", "10000", "100000", "1000000", "10000000"})
+	public int size;
+
+	private Tree<Integer> tree;
+	private Integer[] probes;
+	private int probeIndex;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+		int[] keys = this.distribution.generate(this.size, random);
+		this.tree = this.structure.create(keys);
+
+		// probe with a mix of present and (probably) absent keys. Box ahead of time so we measure the lookup alone.
+		this.probes = new Integer[1024];
+
+		for (int i = 0; i < this.probes.length; i++) {
+			this.probes[i] = (i & 1) == 0 ? keys[random.nextInt(keys.length)] : random.nextInt();
+		}
+	}
+
+	@Benchmark
+	public boolean contains() {
+		Integer probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		return this.tree.contains(probe);
+	}
+
+	@Benchmark
+	public Integer findMin() {
+		return this.tree.findMin();
+	}
+
+	@Benchmark
+	public Integer findMax() {
+		return this.tree.findMax();
+	}
+}
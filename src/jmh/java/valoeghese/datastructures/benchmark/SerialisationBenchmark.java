@@ -0,0 +1,89 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+import valoeghese.datastructures.KeyCodec;
+import valoeghese.datastructures.TreeSerialiser;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a saved {@link AVLTree} with {@link TreeSerialiser} against rebuilding it by adding every element.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerialisationBenchmark {
+	@Param({"1000000"})
+	public int size;
+
+	@Param({"false", "true"})
+	public boolean saveShape;
+
+	private int[] keys;
+	private AVLTree<Integer> tree;
+	private Path file;
+
+	@Setup
+	public void setup() throws IOException {
+		this.keys = KeyDistribution.UNIFORM.generate(this.size, new SplittableRandom(BenchmarkMain.SEED));
+		this.tree = new AVLTree<>();
+
+		for (int key : this.keys) {
+			this.tree.add(key);
+		}
+
+		this.file = Files.createTempFile("benchmark", ".tree");
+		this.save();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(this.file);
+	}
+
+	@Benchmark
+	public void save() throws IOException {
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			TreeSerialiser.write(this.tree, KeyCodec.INTEGER, channel, this.saveShape);
+		}
+	}
+
+	@Benchmark
+	public AVLTree<Integer> load() throws IOException {
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+			return TreeSerialiser.readAVLTree(channel, KeyCodec.INTEGER);
+		}
+	}
+
+	@Benchmark
+	public AVLTree<Integer> replayAdds() {
+		AVLTree<Integer> tree = new AVLTree<>();
+
+		for (int key : this.keys) {
+			tree.add(key);
+		}
+
+		return tree;
+	}
+}
@@ -0,0 +1,87 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.AVLTree;
+import valoeghese.datastructures.PersistentAVLTree;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares merging two trees with {@link PersistentAVLTree#union} against copying one tree and adding every element
+ * of the other to it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SetOperationBenchmark {
+	@Param({"1000000"})
+	public int size;
+
+	/**
+	 * Size of the second tree relative to the first.
+	 */
+	@Param({"1", "100"})
+	public int ratio;
+
+	private PersistentAVLTree<Integer> a;
+	private PersistentAVLTree<Integer> b;
+	private Integer[] sortedA;
+	private Integer[] keysB;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+		this.sortedA = sorted(KeyDistribution.UNIFORM.generate(this.size, random));
+		this.keysB = sorted(KeyDistribution.UNIFORM.generate(this.size / this.ratio, random));
+		this.a = PersistentAVLTree.fromSorted(Arrays.asList(this.sortedA).iterator(), this.sortedA.length);
+		this.b = PersistentAVLTree.fromSorted(Arrays.asList(this.keysB).iterator(), this.keysB.length);
+	}
+
+	private static Integer[] sorted(int[] keys) {
+		Arrays.sort(keys);
+		return Arrays.stream(keys).boxed().toArray(Integer[]::new);
+	}
+
+	@Benchmark
+	public PersistentAVLTree<Integer> union() {
+		return PersistentAVLTree.union(this.a, this.b);
+	}
+
+	@Benchmark
+	public PersistentAVLTree<Integer> intersection() {
+		return PersistentAVLTree.intersection(this.a, this.b);
+	}
+
+	@Benchmark
+	public PersistentAVLTree<Integer> difference() {
+		return PersistentAVLTree.difference(this.a, this.b);
+	}
+
+	@Benchmark
+	public AVLTree<Integer> insertEach() {
+		AVLTree<Integer> tree = AVLTree.fromSorted(Arrays.asList(this.sortedA).iterator(), this.sortedA.length);
+
+		for (Integer key : this.keysB) {
+			if (!tree.contains(key)) {
+				tree.add(key);
+			}
+		}
+
+		return tree;
+	}
+}
@@ -0,0 +1,76 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.SplayTree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways a {@link SplayTree} can splay, on lookups spread uniformly over the keys and on lookups skewed
+ * towards a few hot keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplayBenchmark {
+	@Param({"BOTTOM_UP", "TOP_DOWN", "SEMI"})
+	public SplayTree.Splaying splaying;
+
+	@Param({"UNIFORM", "ZIPF"})
+	public KeyDistribution probeDistribution;
+
+	@Param({"1000000"})
+	public int size;
+
+	private SplayTree<Integer> tree;
+	private Integer[] probes;
+	private int probeIndex;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(BenchmarkMain.SEED);
+		int[] keys = KeyDistribution.UNIFORM.generate(this.size, random);
+		this.tree = new SplayTree<>(this.splaying);
+
+		for (int key : keys) {
+			this.tree.add(key);
+		}
+
+		// probe by rank into the keys, so a skewed distribution hits a few keys often
+		int[] ranks = this.probeDistribution == KeyDistribution.ZIPF ? KeyDistribution.ZIPF.generate(this.size, random) : null;
+		this.probes = new Integer[1 << 16];
+
+		for (int i = 0; i < this.probes.length; i++) {
+			this.probes[i] = keys[ranks == null ? random.nextInt(keys.length) : ranks[i]];
+		}
+	}
+
+	@Benchmark
+	public boolean contains() {
+		Integer probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		return this.tree.contains(probe);
+	}
+
+	@Benchmark
+	public boolean addRemove() {
+		Integer probe = this.probes[this.probeIndex];
+		this.probeIndex = (this.probeIndex + 1) & (this.probes.length - 1);
+		this.tree.add(probe);
+		return this.tree.remove(probe);
+	}
+}
@@ -0,0 +1,52 @@
+package valoeghese.datastructures.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import valoeghese.datastructures.Tree;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a sequential and a parallel aggregation over a search tree. Run with different
+ * {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism} values to see how it scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamBenchmark {
+	@Param({"AVL", "RED_BLACK"})
+	public Structure structure;
+
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	private Tree<Integer> tree;
+
+	@Setup
+	public void setup() {
+		this.tree = this.structure.create(KeyDistribution.UNIFORM.generate(this.size, new SplittableRandom(BenchmarkMain.SEED)));
+	}
+
+	@Benchmark
+	public long sequentialSum() {
+		return this.tree.stream().mapToLong(Integer::longValue).sum();
+	}
+
+	@Benchmark
+	public long parallelSum() {
+		return this.tree.parallelStream().mapToLong(Integer::longValue).sum();
+	}
+}
@@ -0,0 +1,57 @@
+package valoeghese.datastructures.benchmark;
+
+import valoeghese.datastructures.AVLTree;
+import valoeghese.datastructures.BTree;
+import valoeghese.datastructures.CompactAVLTree;
+import valoeghese.datastructures.CompactRedBlackTree;
+import valoeghese.datastructures.RedBlackTree;
+import valoeghese.datastructures.SimpleBinarySearchTree;
+import valoeghese.datastructures.SimpleHeap;
+import valoeghese.datastructures.SplayTree;
+import valoeghese.datastructures.Tree;
+
+import java.util.function.Supplier;
+
+/**
+ * The data structures which can be benchmarked.
+ */
+public enum Structure {
+	AVL(AVLTree::new),
+	RED_BLACK(RedBlackTree::new),
+	COMPACT_AVL(CompactAVLTree::new),
+	COMPACT_RED_BLACK(CompactRedBlackTree::new),
+	SPLAY(SplayTree::new),
+	SIMPLE(SimpleBinarySearchTree::new),
+	B_TREE(BTree::new),
+	MIN_HEAP(SimpleHeap::newMinHeap),
+	MAX_HEAP(SimpleHeap::newMaxHeap);
+
+	Structure(Supplier<Tree<Integer>> factory) {
+		this.factory = factory;
+	}
+
+	private final Supplier<Tree<Integer>> factory;
+
+	/**
+	 * Create a new, empty instance of this structure.
+	 * @return the new structure.
+	 */
+	Tree<Integer> create() {
+		return this.factory.get();
+	}
+
+	/**
+	 * Create a new instance of this structure containing the given keys.
+	 * @param keys the keys to add, in order.
+	 * @return the new structure.
+	 */
+	Tree<Integer> create(int[] keys) {
+		Tree<Integer> tree = this.create();
+
+		for (int key : keys) {
+			tree.add(key);
+		}
+
+		return tree;
+	}
+}
@@ -2,11 +2,28 @@ package valoeghese.datastructures;
 
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Comparator;
+import java.util.Iterator;
+
 /**
  * An AVL self-balancing binary search tree.
  * @param <T> the type of element to store in the tree.
  */
 public final class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T, AVLTree<T>.Node> {
+	/**
+	 * Create an AVL tree ordering its elements by their natural ordering.
+	 */
+	public AVLTree() {
+	}
+
+	/**
+	 * Create an AVL tree ordering its elements by the given comparator.
+	 * @param comparator the comparator to order elements by.
+	 */
+	public AVLTree(Comparator<? super T> comparator) {
+		super(comparator);
+	}
+
 	@Override
 	protected Node createNode(T elem) {
 		return new Node(elem);
@@ -17,13 +34,66 @@ public final class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T,
 		this.balance(this.addElement(elem));
 	}
 
+	@Override
+	protected void onBuild(Node node, int depth) {
+		node.updateHeight();
+	}
+
+	@Override
+	protected void onRestore(Node node) {
+		node.updateHeight();
+	}
+
+	/**
+	 * Create an AVL tree from elements which are already sorted, in O(n) time.
+	 * @param elements the elements to store in the tree, in ascending order.
+	 * @param size the number of elements to take from the iterator.
+	 * @param <T> the type of element to store in the tree.
+	 * @return a perfectly balanced AVL tree containing the elements.
+	 * @throws IllegalArgumentException if the elements are not in ascending order.
+	 */
+	public static <T extends Comparable<T>> AVLTree<T> fromSorted(Iterator<? extends T> elements, int size) throws IllegalArgumentException {
+		AVLTree<T> tree = new AVLTree<>();
+		tree.buildFromSorted(elements, size);
+		return tree;
+	}
+
+	@Override
+	public boolean remove(T element) {
+		this.trace(TreeTracer.Event.REMOVE, element, null, 0);
+		Node node = this.find(element);
+
+		if (node == null) {
+			return false;
+		}
+
+		this.rebalance(this.removeNode(node));
+		return true;
+	}
+
+	@Override
+	protected void swapWithSuccessor(Node node, Node successor) {
+		super.swapWithSuccessor(node, successor);
+
+		// each takes the other's place, so takes the other's height
+		int height = node.height;
+		node.height = successor.height;
+		successor.height = height;
+	}
+
 	/**
 	 * Balance the tree, going up from newNode to the root. Will also update the heights.
 	 * @param newNode the node to start balancing from.
 	 */
 	private void balance(Node newNode) {
-		Node parent = newNode.parent;
+		this.rebalance(newNode.parent);
+	}
 
+	/**
+	 * Balance the tree, going up from the given node to the root. Will also update the heights.
+	 * @param parent the first node to update and check the balance of.
+	 */
+	private void rebalance(@Nullable Node parent) {
 		while (parent != null) {
 			// update parent height
 			parent.updateHeight();
@@ -39,9 +109,11 @@ public final class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T,
 				if (parent.rightChild.getBalance() < 0) {
 					Node toRotate = parent.rightChild.leftChild;
 					assert toRotate != null; // this should never be null if right child unbalanced to left
+					this.record(TreeMetrics.Case.AVL_DOUBLE_ROTATION);
 					this.rotate(toRotate);
 					parent = this.rotate(toRotate);
 				} else {
+					this.record(TreeMetrics.Case.AVL_SINGLE_ROTATION);
 					parent = this.rotate(parent.rightChild);
 				}
 			}
@@ -53,9 +125,11 @@ public final class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T,
 				if (parent.leftChild.getBalance() > 0) {
 					Node toRotate = parent.leftChild.rightChild;
 					assert toRotate != null; // this should never be null if left child unbalanced to right
+					this.record(TreeMetrics.Case.AVL_DOUBLE_ROTATION);
 					this.rotate(toRotate);
 					parent = this.rotate(toRotate);
 				} else {
+					this.record(TreeMetrics.Case.AVL_SINGLE_ROTATION);
 					parent = this.rotate(parent.leftChild);
 				}
 			}
@@ -81,6 +155,33 @@ public final class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T,
 		return result;
 	}
 
+	@Override
+	void checkInvariants() throws IllegalStateException {
+		super.checkInvariants();
+		this.checkHeight(this.root);
+	}
+
+	/**
+	 * Check the heights and balance in the given subtree.
+	 * @return the height of the subtree.
+	 */
+	private int checkHeight(@Nullable Node node) throws IllegalStateException {
+		if (node == null) return -1;
+
+		int left = this.checkHeight(node.leftChild);
+		int right = this.checkHeight(node.rightChild);
+
+		if (node.height != Math.max(left, right) + 1) {
+			throw new IllegalStateException("Node " + node.elem + " has height " + node.height + ", should be " + (Math.max(left, right) + 1) + ".");
+		}
+
+		if (Math.abs(right - left) > 1) {
+			throw new IllegalStateException("Node " + node.elem + " is unbalanced, with balance " + (right - left) + ".");
+		}
+
+		return node.height;
+	}
+
 	class Node extends BinarySearchTree<T, Node>.Node {
 		Node(T elem) {
 			super(elem);
@@ -93,7 +194,13 @@ public final class AVLTree<T extends Comparable<T>> extends BinarySearchTree<T,
 		}
 
 		private void updateHeight() {
-			this.height = Math.max(getHeight(this.leftChild), getHeight(this.rightChild)) + 1;
+			int height = Math.max(getHeight(this.leftChild), getHeight(this.rightChild)) + 1;
+
+			if (height != this.height) {
+				// traced before the change, so a replay stopping at this event has the old height
+				AVLTree.this.trace(TreeTracer.Event.HEIGHT_UPDATE, this.elem, null, height);
+				this.height = height;
+			}
 		}
 
 		@Override
@@ -0,0 +1,289 @@
+package valoeghese.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * The structure of an AVL tree whose nodes are stored in parallel primitive arrays rather than as objects. A node is
+ * an index into these arrays. Subclasses store the keys in their own primitive array, so keys are never boxed.
+ * The balancing logic is the same as {@link AVLTree}.
+ */
+abstract class ArrayAVLTree {
+	ArrayAVLTree(int initialCapacity) {
+		initialCapacity = Math.max(1, initialCapacity);
+		this.leftChild = new int[initialCapacity];
+		this.rightChild = new int[initialCapacity];
+		this.parent = new int[initialCapacity];
+		this.height = new byte[initialCapacity];
+	}
+
+	/**
+	 * Index representing the absence of a node.
+	 */
+	static final int NIL = -1;
+
+	int root = NIL;
+	int elementCount;
+
+	int[] leftChild;
+	int[] rightChild;
+	int[] parent;
+	// AVL trees are at most ~1.44 log2(n) high, so a byte is plenty
+	byte[] height;
+
+	/**
+	 * Grow the node arrays to the given capacity. Subclasses should grow their key arrays too.
+	 * @param capacity the new capacity.
+	 */
+	protected void grow(int capacity) {
+		this.leftChild = Arrays.copyOf(this.leftChild, capacity);
+		this.rightChild = Arrays.copyOf(this.rightChild, capacity);
+		this.parent = Arrays.copyOf(this.parent, capacity);
+		this.height = Arrays.copyOf(this.height, capacity);
+	}
+
+	/**
+	 * Allocate a new leaf node, which is not yet attached to the tree.
+	 * @return the index of the new node.
+	 */
+	int newNode() {
+		if (this.elementCount == this.leftChild.length) {
+			// double array size to fit more data
+			this.grow(this.leftChild.length * 2);
+		}
+
+		int node = this.elementCount++;
+		this.leftChild[node] = NIL;
+		this.rightChild[node] = NIL;
+		this.parent[node] = NIL;
+		this.height[node] = 0;
+		return node;
+	}
+
+	/**
+	 * Attach the given new node as a child of the given parent, and rebalance the tree.
+	 * @param parent the parent to attach to. If {@link #NIL}, the node becomes the root.
+	 * @param node the new node.
+	 * @param left whether to attach as the left child.
+	 */
+	void attach(int parent, int node, boolean left) {
+		if (parent == NIL) {
+			this.root = node;
+			return;
+		}
+
+		this.parent[node] = parent;
+
+		if (left) {
+			this.leftChild[parent] = node;
+		} else {
+			this.rightChild[parent] = node;
+		}
+
+		this.balance(node);
+	}
+
+	/**
+	 * Balance the tree, going up from newNode to the root. Will also update the heights.
+	 * @param newNode the node to start balancing from.
+	 */
+	private void balance(int newNode) {
+		int parent = this.parent[newNode];
+
+		while (parent != NIL) {
+			// update parent height
+			this.updateHeight(parent);
+
+			// Determine if the parent's children are unbalanced.
+			int balance = this.getBalance(parent);
+
+			// right is heavier to point of needing correction
+			if (balance > 1) {
+				int rightChild = this.rightChild[parent];
+
+				// if right child has heavier left
+				if (this.getBalance(rightChild) < 0) {
+					int toRotate = this.leftChild[rightChild];
+					this.rotate(toRotate);
+					parent = this.rotate(toRotate);
+				} else {
+					parent = this.rotate(rightChild);
+				}
+			}
+			// left is heavier to point of needing correction
+			else if (balance < -1) {
+				int leftChild = this.leftChild[parent];
+
+				// if left child has heavier right
+				if (this.getBalance(leftChild) > 0) {
+					int toRotate = this.rightChild[leftChild];
+					this.rotate(toRotate);
+					parent = this.rotate(toRotate);
+				} else {
+					parent = this.rotate(leftChild);
+				}
+			}
+			// otherwise it's balanced enough already.
+
+			// move up once in the tree from the parent
+			parent = this.parent[parent];
+		}
+	}
+
+	/**
+	 * Rotates the given child node around its parent node.
+	 * @param child the child node.
+	 * @return the new parent.
+	 */
+	private int rotate(int child) {
+		int oldParent = this.parent[child];
+		int grandParent = this.parent[oldParent];
+
+		// make child the child of its grandparent
+		this.parent[child] = grandParent;
+
+		if (grandParent == NIL) {
+			this.root = child;
+		} else if (this.leftChild[grandParent] == oldParent) {
+			this.leftChild[grandParent] = child;
+		} else {
+			this.rightChild[grandParent] = child;
+		}
+
+		this.parent[oldParent] = child;
+
+		// bring parent down, bring child up
+		if (this.leftChild[oldParent] == child) {
+			int moved = this.rightChild[child];
+			this.leftChild[oldParent] = moved;
+			if (moved != NIL) this.parent[moved] = oldParent;
+
+			this.rightChild[child] = oldParent;
+		} else {
+			int moved = this.leftChild[child];
+			this.rightChild[oldParent] = moved;
+			if (moved != NIL) this.parent[moved] = oldParent;
+
+			this.leftChild[child] = oldParent;
+		}
+
+		// update heights
+		this.updateHeight(oldParent);
+		this.updateHeight(child);
+		return child;
+	}
+
+	private int getHeight(int node) {
+		return node == NIL ? -1 : this.height[node];
+	}
+
+	private int getBalance(int node) {
+		return this.getHeight(this.rightChild[node]) - this.getHeight(this.leftChild[node]);
+	}
+
+	private void updateHeight(int node) {
+		this.height[node] = (byte) (Math.max(this.getHeight(this.leftChild[node]), this.getHeight(this.rightChild[node])) + 1);
+	}
+
+	int findMinNode() {
+		int node = this.root;
+
+		// keep going left (smaller number) until you cannot go any further
+		if (node != NIL) {
+			while (this.leftChild[node] != NIL)
+				node = this.leftChild[node];
+		}
+
+		return node;
+	}
+
+	int findMaxNode() {
+		int node = this.root;
+
+		// keep going right (larger number) until you cannot go any further
+		if (node != NIL) {
+			while (this.rightChild[node] != NIL)
+				node = this.rightChild[node];
+		}
+
+		return node;
+	}
+
+	/**
+	 * Compare the keys of two nodes.
+	 * @return negative, zero or positive as the key of the first node is less than, equal to or greater than the key
+	 * of the second.
+	 */
+	abstract int compareKeys(int first, int second);
+
+	// Invariants //
+
+	/**
+	 * Check that the structure of the tree is consistent: children link back to their parents, heights are correct and
+	 * balanced, every node allocated is reachable from the root, and the keys are in order. This walks the whole tree,
+	 * so is meant for tests.
+	 * @throws IllegalStateException if the tree is inconsistent.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		if (this.root != NIL && this.parent[this.root] != NIL) {
+			throw new IllegalStateException("Root " + this.root + " has a parent.");
+		}
+
+		int[] last = {NIL};
+		int size = this.checkSubtree(this.root, last);
+
+		if (size != this.elementCount) {
+			throw new IllegalStateException("Tree has " + size + " nodes, but counts " + this.elementCount + " elements.");
+		}
+	}
+
+	/**
+	 * Check the links, heights and order in the given subtree.
+	 * @param last the node before this subtree in order, updated to the last node in it.
+	 * @return the number of nodes in the subtree.
+	 */
+	private int checkSubtree(int node, int[] last) throws IllegalStateException {
+		if (node == NIL) return 0;
+
+		int left = this.leftChild[node];
+		int right = this.rightChild[node];
+
+		if ((left != NIL && this.parent[left] != node) || (right != NIL && this.parent[right] != node)) {
+			throw new IllegalStateException("A child of node " + node + " does not link back to it.");
+		}
+
+		int size = this.checkSubtree(left, last);
+
+		if (last[0] != NIL && this.compareKeys(last[0], node) > 0) {
+			throw new IllegalStateException("Node " + node + " is after a node with a greater key.");
+		}
+
+		last[0] = node;
+		size += this.checkSubtree(right, last) + 1;
+
+		if (this.height[node] != Math.max(this.getHeight(left), this.getHeight(right)) + 1) {
+			throw new IllegalStateException("Node " + node + " has height " + this.height[node] + ", but its subtree does not.");
+		}
+
+		if (Math.abs(this.getBalance(node)) > 1) {
+			throw new IllegalStateException("Node " + node + " is unbalanced by " + this.getBalance(node) + ".");
+		}
+
+		return size;
+	}
+
+	/**
+	 * Get the number of elements in this tree.
+	 * @return the number of elements in this tree.
+	 */
+	public int size() {
+		return this.elementCount;
+	}
+
+	/**
+	 * Get whether this tree is empty.
+	 * @return whether this tree is empty.
+	 */
+	public boolean isEmpty() {
+		return this.elementCount == 0;
+	}
+}
@@ -0,0 +1,575 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A B-tree. Each node holds many elements in a contiguous sorted array, with a child between each pair, so a search
+ * visits far fewer nodes than in a binary tree, and searches within each node by binary search. All leaves are at the
+ * same depth. <br>
+ * Nodes are split on the way down when inserting, and topped up from a sibling on the way down when removing, so
+ * neither operation ever has to walk back up the tree. Like {@link AVLTree}, duplicate elements are allowed, and
+ * elements are ordered by their natural ordering or a comparator given on construction.
+ * @param <T> the type of element to store in the tree.
+ */
+public final class BTree<T extends Comparable<T>> implements Tree<T> {
+	/**
+	 * Create a B-tree with a fanout of 64.
+	 */
+	public BTree() {
+		this(64);
+	}
+
+	/**
+	 * Create a B-tree with a fanout of 64, ordering its elements by the given comparator.
+	 * @param comparator the comparator to order elements by.
+	 */
+	public BTree(Comparator<? super T> comparator) {
+		this(64, comparator);
+	}
+
+	/**
+	 * Create a B-tree with the given fanout.
+	 * @param fanout the maximum number of children of each node. Odd numbers are rounded down.
+	 * @throws IllegalArgumentException if the fanout is less than 4.
+	 */
+	public BTree(int fanout) throws IllegalArgumentException {
+		this(fanout, null);
+	}
+
+	/**
+	 * Create a B-tree with the given fanout, ordering its elements by the given comparator.
+	 * @param fanout the maximum number of children of each node. Odd numbers are rounded down.
+	 * @param comparator the comparator to order elements by, or null for their natural ordering.
+	 * @throws IllegalArgumentException if the fanout is less than 4.
+	 */
+	public BTree(int fanout, @Nullable Comparator<? super T> comparator) throws IllegalArgumentException {
+		if (fanout < 4) {
+			throw new IllegalArgumentException("B-tree fanout must be at least 4, was " + fanout);
+		}
+
+		this.minDegree = fanout / 2;
+		this.maxKeys = 2 * this.minDegree - 1;
+		this.root = new Node(this.maxKeys, true);
+		this.comparator = comparator;
+		this.keyType = KeyOrder.keyType(comparator, null);
+	}
+
+	/**
+	 * Every node other than the root has between minDegree - 1 and 2 * minDegree - 1 elements.
+	 */
+	private final int minDegree;
+	private final int maxKeys;
+	private Node root;
+	private int elementCount;
+	private final @Nullable Comparator<? super T> comparator;
+	/**
+	 * How elements are compared, from {@link KeyOrder}. Learnt from the first element added, if there is no comparator.
+	 */
+	private byte keyType;
+
+	/**
+	 * Get the comparator ordering the elements of this tree.
+	 * @return the comparator, or null if elements are in their natural ordering.
+	 */
+	public @Nullable Comparator<? super T> comparator() {
+		return this.comparator;
+	}
+
+	@Override
+	public void add(T elem) {
+		if (this.keyType == KeyOrder.NATURAL) {
+			this.keyType = KeyOrder.keyType(null, elem);
+		}
+
+		if (this.root.keyCount == this.maxKeys) {
+			// split the root, which is the only way the tree grows in height
+			Node newRoot = new Node(this.maxKeys, false);
+			newRoot.children[0] = this.root;
+			this.splitChild(newRoot, 0);
+			this.root = newRoot;
+		}
+
+		Node node = this.root;
+
+		while (!node.isLeaf()) {
+			// insert after any equal elements
+			int index = this.upperBound(node, elem);
+			Node child = node.children[index];
+
+			if (child.keyCount == this.maxKeys) {
+				// split full nodes on the way down, so there is always room to insert
+				this.splitChild(node, index);
+
+				if (this.compare(elem, key(node, index)) >= 0) {
+					index++;
+				}
+
+				child = node.children[index];
+			}
+
+			node = child;
+		}
+
+		int index = this.upperBound(node, elem);
+		System.arraycopy(node.keys, index, node.keys, index + 1, node.keyCount - index);
+		node.keys[index] = elem;
+		node.keyCount++;
+		this.elementCount++;
+	}
+
+	@Override
+	public boolean remove(T element) {
+		if (!this.contains(element)) {
+			return false;
+		}
+
+		Node node = this.root;
+
+		while (true) {
+			int index = this.indexOf(node, element);
+
+			if (index >= 0) {
+				if (node.isLeaf()) {
+					removeKey(node, index);
+					break;
+				}
+
+				Node left = node.children[index];
+				Node right = node.children[index + 1];
+
+				if (left.keyCount >= this.minDegree) {
+					// replace with the predecessor, then remove the predecessor from the left subtree
+					T predecessor = max(left);
+					node.keys[index] = predecessor;
+					element = predecessor;
+					node = left;
+				} else if (right.keyCount >= this.minDegree) {
+					// replace with the successor, then remove the successor from the right subtree
+					T successor = min(right);
+					node.keys[index] = successor;
+					element = successor;
+					node = right;
+				} else {
+					// both are minimal. Merge them around the element and remove it from the merged node.
+					this.merge(node, index);
+					node = left;
+				}
+			} else {
+				// the element is in the subtree at the insertion point. Make sure that has an element to spare.
+				int childIndex = -index - 1;
+
+				if (node.children[childIndex].keyCount < this.minDegree) {
+					childIndex = this.fill(node, childIndex);
+				}
+
+				node = node.children[childIndex];
+			}
+		}
+
+		// merging the root's last two children leaves it empty
+		if (this.root.keyCount == 0 && !this.root.isLeaf()) {
+			this.root = this.root.children[0];
+		}
+
+		this.elementCount--;
+		return true;
+	}
+
+	@Override
+	public boolean contains(T element) {
+		Node node = this.root;
+
+		while (true) {
+			int index = this.indexOf(node, element);
+
+			if (index >= 0) return true;
+			if (node.isLeaf()) return false;
+
+			node = node.children[-index - 1];
+		}
+	}
+
+	@Override
+	public @Nullable T findMax() {
+		return this.elementCount == 0 ? null : max(this.root);
+	}
+
+	@Override
+	public @Nullable T findMin() {
+		return this.elementCount == 0 ? null : min(this.root);
+	}
+
+	@Override
+	public int size() {
+		return this.elementCount;
+	}
+
+	/**
+	 * Iterate over the elements of this tree in ascending order. The tree must not be modified during iteration.
+	 * @return an iterator over the elements in ascending order.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new InOrderIterator();
+	}
+
+	// Node Operations //
+
+	/**
+	 * Split the full child at the given index in two, moving its middle element up into the parent.
+	 * @param parent the parent, which must not be full.
+	 * @param index the index of the child to split.
+	 */
+	private void splitChild(Node parent, int index) {
+		int t = this.minDegree;
+		Node child = parent.children[index];
+		Node sibling = new Node(this.maxKeys, child.isLeaf());
+
+		// the upper half of the child moves to its new sibling
+		System.arraycopy(child.keys, t, sibling.keys, 0, t - 1);
+		sibling.keyCount = t - 1;
+
+		if (!child.isLeaf()) {
+			System.arraycopy(child.children, t, sibling.children, 0, t);
+			Arrays.fill(child.children, t, 2 * t, null);
+		}
+
+		Object middle = child.keys[t - 1];
+		Arrays.fill(child.keys, t - 1, 2 * t - 1, null);
+		child.keyCount = t - 1;
+
+		// the middle element moves up, with the sibling to its right
+		System.arraycopy(parent.children, index + 1, parent.children, index + 2, parent.keyCount - index);
+		parent.children[index + 1] = sibling;
+		System.arraycopy(parent.keys, index, parent.keys, index + 1, parent.keyCount - index);
+		parent.keys[index] = middle;
+		parent.keyCount++;
+	}
+
+	/**
+	 * Make sure the child at the given index has at least minDegree elements, by borrowing one from a sibling or
+	 * merging with it.
+	 * @param parent the parent of the child.
+	 * @param index the index of the child.
+	 * @return the index of the child containing its original elements afterwards.
+	 */
+	private int fill(Node parent, int index) {
+		if (index > 0 && parent.children[index - 1].keyCount >= this.minDegree) {
+			this.borrowFromLeft(parent, index);
+		} else if (index < parent.keyCount && parent.children[index + 1].keyCount >= this.minDegree) {
+			this.borrowFromRight(parent, index);
+		} else if (index < parent.keyCount) {
+			this.merge(parent, index);
+		} else {
+			this.merge(parent, index - 1);
+			return index - 1;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Rotate an element from the left sibling through the parent into the child at the given index.
+	 */
+	private void borrowFromLeft(Node parent, int index) {
+		Node child = parent.children[index];
+		Node sibling = parent.children[index - 1];
+
+		System.arraycopy(child.keys, 0, child.keys, 1, child.keyCount);
+		child.keys[0] = parent.keys[index - 1];
+
+		if (!child.isLeaf()) {
+			System.arraycopy(child.children, 0, child.children, 1, child.keyCount + 1);
+			child.children[0] = sibling.children[sibling.keyCount];
+			sibling.children[sibling.keyCount] = null;
+		}
+
+		parent.keys[index - 1] = sibling.keys[sibling.keyCount - 1];
+		sibling.keys[--sibling.keyCount] = null;
+		child.keyCount++;
+	}
+
+	/**
+	 * Rotate an element from the right sibling through the parent into the child at the given index.
+	 */
+	private void borrowFromRight(Node parent, int index) {
+		Node child = parent.children[index];
+		Node sibling = parent.children[index + 1];
+
+		child.keys[child.keyCount] = parent.keys[index];
+		parent.keys[index] = sibling.keys[0];
+
+		if (!child.isLeaf()) {
+			child.children[child.keyCount + 1] = sibling.children[0];
+			System.arraycopy(sibling.children, 1, sibling.children, 0, sibling.keyCount);
+			sibling.children[sibling.keyCount] = null;
+		}
+
+		child.keyCount++;
+		removeKey(sibling, 0);
+	}
+
+	/**
+	 * Merge the child at the given index with its right sibling, bringing the element between them down from the
+	 * parent.
+	 */
+	private void merge(Node parent, int index) {
+		Node child = parent.children[index];
+		Node sibling = parent.children[index + 1];
+
+		child.keys[child.keyCount] = parent.keys[index];
+		System.arraycopy(sibling.keys, 0, child.keys, child.keyCount + 1, sibling.keyCount);
+
+		if (!child.isLeaf()) {
+			System.arraycopy(sibling.children, 0, child.children, child.keyCount + 1, sibling.keyCount + 1);
+		}
+
+		child.keyCount += sibling.keyCount + 1;
+
+		// remove the element and the sibling from the parent
+		System.arraycopy(parent.children, index + 2, parent.children, index + 1, parent.keyCount - index - 1);
+		parent.children[parent.keyCount] = null;
+		removeKey(parent, index);
+	}
+
+	private static void removeKey(Node node, int index) {
+		System.arraycopy(node.keys, index + 1, node.keys, index, node.keyCount - index - 1);
+		node.keys[--node.keyCount] = null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T key(Node node, int index) {
+		return (T) node.keys[index];
+	}
+
+	private static <T extends Comparable<T>> T min(Node node) {
+		// keep going left (smaller number) until you cannot go any further
+		while (!node.isLeaf())
+			node = node.children[0];
+
+		return key(node, 0);
+	}
+
+	private static <T extends Comparable<T>> T max(Node node) {
+		// keep going right (larger number) until you cannot go any further
+		while (!node.isLeaf())
+			node = node.children[node.keyCount];
+
+		return key(node, node.keyCount - 1);
+	}
+
+	private int compare(T a, T b) {
+		return KeyOrder.compare(this.keyType, this.comparator, a, b);
+	}
+
+	/**
+	 * Binary search the node for the given element.
+	 * @return the index of an equal element, or (-(insertion point) - 1) if there is none.
+	 */
+	private int indexOf(Node node, T element) {
+		int low = 0;
+		int high = node.keyCount - 1;
+
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = this.compare(element, key(node, middle));
+
+			if (comparison == 0) {
+				return middle;
+			} else if (comparison < 0) {
+				high = middle - 1;
+			} else {
+				low = middle + 1;
+			}
+		}
+
+		return -low - 1;
+	}
+
+	/**
+	 * Binary search the node for the first element greater than the given element.
+	 * @return the index of that element, or the number of elements in the node if there is none.
+	 */
+	private int upperBound(Node node, T element) {
+		int low = 0;
+		int high = node.keyCount;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (this.compare(element, key(node, middle)) < 0) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Check that the tree is consistent: every node other than the root holds between minDegree - 1 and
+	 * 2 * minDegree - 1 elements, all leaves are at the same depth, elements are in order within and between nodes,
+	 * unused slots are cleared, and the element count is correct. This walks the whole tree, so is meant for tests.
+	 * @throws IllegalStateException if the tree is inconsistent.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		if (this.root.keyCount == 0 && !this.root.isLeaf()) {
+			throw new IllegalStateException("Root is an empty branch.");
+		}
+
+		int[] leafDepth = {-1};
+		int count = this.checkNode(this.root, true, 0, leafDepth, null, null);
+
+		if (count != this.elementCount) {
+			throw new IllegalStateException("Tree has " + count + " elements, but counts " + this.elementCount + ".");
+		}
+	}
+
+	/**
+	 * Check the subtree of the given node, whose elements must be between the given bounds.
+	 * @return the number of elements in the subtree.
+	 */
+	private int checkNode(Node node, boolean root, int depth, int[] leafDepth, @Nullable T low, @Nullable T high) throws IllegalStateException {
+		if (node.keyCount > this.maxKeys || (!root && node.keyCount < this.minDegree - 1)) {
+			throw new IllegalStateException("Node at depth " + depth + " has " + node.keyCount + " elements.");
+		}
+
+		for (int i = 0; i < node.keyCount; i++) {
+			T key = key(node, i);
+
+			if ((low != null && this.compare(key, low) < 0) || (high != null && this.compare(key, high) > 0)) {
+				throw new IllegalStateException("Element " + key + " is outside the range [" + low + ", " + high + "] of its node.");
+			}
+
+			if (i > 0 && this.compare(key, key(node, i - 1)) < 0) {
+				throw new IllegalStateException("Element " + key + " is after the greater element " + key(node, i - 1) + ".");
+			}
+		}
+
+		for (int i = node.keyCount; i < node.keys.length; i++) {
+			if (node.keys[i] != null) {
+				throw new IllegalStateException("Unused slot " + i + " of a node at depth " + depth + " is not cleared.");
+			}
+		}
+
+		if (node.isLeaf()) {
+			if (leafDepth[0] == -1) {
+				leafDepth[0] = depth;
+			} else if (leafDepth[0] != depth) {
+				throw new IllegalStateException("Leaves are at depths " + leafDepth[0] + " and " + depth + ".");
+			}
+
+			return node.keyCount;
+		}
+
+		int count = node.keyCount;
+
+		for (int i = 0; i <= node.keyCount; i++) {
+			Node child = node.children[i];
+
+			if (child == null) {
+				throw new IllegalStateException("Child " + i + " of a node at depth " + depth + " is missing.");
+			}
+
+			count += this.checkNode(child, false, depth + 1, leafDepth, i == 0 ? low : key(node, i - 1), i == node.keyCount ? high : key(node, i));
+		}
+
+		for (int i = node.keyCount + 1; i < node.children.length; i++) {
+			if (node.children[i] != null) {
+				throw new IllegalStateException("Unused child slot " + i + " of a node at depth " + depth + " is not cleared.");
+			}
+		}
+
+		return count;
+	}
+
+	// Inner Classes //
+
+	private static final class Node {
+		Node(int maxKeys, boolean leaf) {
+			this.keys = new Object[maxKeys];
+			this.children = leaf ? null : new Node[maxKeys + 1];
+		}
+
+		final Object[] keys;
+		/**
+		 * The children, where child i holds the elements between keys i - 1 and i. Null for leaves.
+		 */
+		final Node @Nullable [] children;
+		int keyCount;
+
+		boolean isLeaf() {
+			return this.children == null;
+		}
+	}
+
+	/**
+	 * Iterator keeping the path to the next element in a stack of nodes and indices within them.
+	 */
+	private class InOrderIterator implements Iterator<T> {
+		InOrderIterator() {
+			int height = 1;
+
+			for (Node node = BTree.this.root; !node.isLeaf(); node = node.children[0]) {
+				height++;
+			}
+
+			this.nodes = new Node[height];
+			this.indices = new int[height];
+
+			if (BTree.this.elementCount > 0) {
+				this.pushLeft(BTree.this.root);
+			}
+		}
+
+		private final Node[] nodes;
+		private final int[] indices;
+		private int depth;
+
+		private void pushLeft(Node node) {
+			while (true) {
+				this.nodes[this.depth] = node;
+				this.indices[this.depth] = 0;
+				this.depth++;
+
+				if (node.isLeaf()) break;
+				node = node.children[0];
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.depth > 0;
+		}
+
+		@Override
+		public T next() throws NoSuchElementException {
+			if (this.depth == 0) {
+				throw new NoSuchElementException("No more elements in tree.");
+			}
+
+			int top = this.depth - 1;
+			Node node = this.nodes[top];
+			int index = this.indices[top]++;
+			T result = key(node, index);
+
+			if (!node.isLeaf()) {
+				// next come the elements in the subtree after this one
+				this.pushLeft(node.children[index + 1]);
+			} else {
+				// pop any finished nodes
+				while (this.depth > 0 && this.indices[this.depth - 1] == this.nodes[this.depth - 1].keyCount) {
+					this.depth--;
+				}
+			}
+
+			return result;
+		}
+	}
+}
@@ -2,16 +2,65 @@ package valoeghese.datastructures;
 
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
 /**
- * A skeleton of a binary search tree implementation.
+ * A skeleton of a binary search tree implementation. Elements are ordered by their natural ordering, or by a
+ * comparator given on construction.
  * @param <T> the type of element to store in the tree.
  * @param <N> the class of the nodes in the tree.
  */
 public abstract class BinarySearchTree<T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node> implements Tree<T> {
+	/**
+	 * Create a tree ordering its elements by their natural ordering.
+	 */
+	protected BinarySearchTree() {
+		this(null);
+	}
+
+	/**
+	 * Create a tree ordering its elements by the given comparator.
+	 * @param comparator the comparator to order elements by, or null for their natural ordering.
+	 */
+	protected BinarySearchTree(@Nullable Comparator<? super T> comparator) {
+		this.comparator = comparator;
+		this.keyType = KeyOrder.keyType(comparator, null);
+	}
+
 	// Fields //
 
 	@Nullable protected N root;
+	private final @Nullable Comparator<? super T> comparator;
+	/**
+	 * How elements are compared, from {@link KeyOrder}. Learnt from the first element added, if there is no comparator.
+	 */
+	private byte keyType;
 	private int elementCount;
+	private long rotationCount;
+	private @Nullable TreeMetrics metrics;
+	@Nullable TreeTracer<T> tracer;
+	/**
+	 * Whether searches start from the finger rather than the root.
+	 */
+	private boolean fingerSearch;
+	/**
+	 * The last node searched for or added, if finger search is enabled.
+	 */
+	private @Nullable N finger;
+	/**
+	 * Number of comparisons made climbing from the finger by the last search, for the metrics.
+	 */
+	private int fingerComparisons;
+	/**
+	 * Direct-mapped cache of recently found nodes, indexed by the hash of their elements. Null if disabled.
+	 */
+	private @Nullable Object[] lookupCache;
 
 	// Abstract Methods //
 
@@ -24,47 +73,311 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 
 	// Useful Methods for Subclasses //
 
+	/**
+	 * Compare two elements by the order of this tree.
+	 * @param a the first element.
+	 * @param b the second element.
+	 * @return a negative number, zero, or a positive number as the first element is less than, equal to, or greater
+	 * than the second.
+	 */
+	protected final int compare(T a, T b) {
+		return KeyOrder.compare(this.keyType, this.comparator, a, b);
+	}
+
+	/**
+	 * Learn how to compare elements from the first element in the tree, so common key types take a fast path.
+	 * @param elem an element in the tree.
+	 */
+	private void learnKeyType(T elem) {
+		if (this.keyType == KeyOrder.NATURAL) {
+			this.keyType = KeyOrder.keyType(this.comparator, elem);
+		}
+	}
+
+	/**
+	 * Get the comparator ordering the elements of this tree.
+	 * @return the comparator, or null if elements are in their natural ordering.
+	 */
+	public @Nullable Comparator<? super T> comparator() {
+		return this.comparator;
+	}
+
 	/**
 	 * Add the given element as a node in the binary search tree, and retrieve the new node.
 	 * @param elem the element to add.
 	 * @return the node created.
 	 */
 	protected N addElement(T elem) {
+		this.trace(TreeTracer.Event.INSERT, elem, null, 0);
 		this.elementCount++;
 
 		if (this.root == null) {
+			this.learnKeyType(elem);
+			if (this.metrics != null) this.metrics.recordSearch(0, 0);
 			return this.root = this.createNode(elem);
 		}
 
 		N parent = null;
 		N child = this.root;
+		int depth = 0;
+		boolean left = false;
+		this.fingerComparisons = 0;
+
+		if (this.fingerSearch && this.finger != null) {
+			// descend from the smallest subtree around the finger the element belongs in. Every node above it gains the
+			// new node in its subtree too.
+			child = this.climb(elem, false);
+
+			for (N ancestor = child.parent; ancestor != null; ancestor = ancestor.parent) {
+				ancestor.size++;
+			}
+		}
 
 		// find the location to insert
 		while (child != null) {
-			// move left if our element is less, right otherwise
-			if (elem.compareTo(child.elem) < 0) {
-				parent = child;
-				child = child.leftChild;
-			} else {
-				parent = child;
-				child = child.rightChild;
-			}
+			// the new node will be in this subtree
+			child.size++;
+			depth++;
+			parent = child;
+
+			// move left if our element is less, right otherwise. The last direction taken is where the node goes.
+			left = this.compare(elem, child.elem) < 0;
+			child = left ? child.leftChild : child.rightChild;
 		}
 
 		// parent now contains the node to insert as a child of.
 		N newNode = this.createNode(elem);
 		newNode.parent = parent;
 
-		// determine direction to insert in
-		if (elem.compareTo(parent.elem) < 0) {
+		if (left) {
 			parent.leftChild = newNode;
 		} else {
 			parent.rightChild = newNode;
 		}
 
+		if (this.metrics != null) {
+			// one comparison per node on the path
+			this.metrics.recordSearch(depth, depth + this.fingerComparisons);
+		}
+
+		if (this.fingerSearch) this.finger = newNode;
+		this.cache(newNode);
 		return newNode;
 	}
 
+	/**
+	 * Replace the contents of this tree with a perfectly balanced tree of the given elements, in O(n) time.
+	 * {@link #onBuild(Node, int)} is called for every node once its subtrees have been built.
+	 * @param elements the elements to build the tree from, in ascending order.
+	 * @param size the number of elements to take from the iterator.
+	 * @throws IllegalArgumentException if the elements are not in ascending order.
+	 */
+	protected void buildFromSorted(Iterator<? extends T> elements, int size) throws IllegalArgumentException {
+		this.forgetAll();
+		this.root = this.buildSubtree(elements, 0, 0, size - 1);
+		this.elementCount = size;
+		if (this.root != null) this.learnKeyType(this.root.elem);
+	}
+
+	private @Nullable N buildSubtree(Iterator<? extends T> elements, int depth, int low, int high) {
+		if (high < low) return null;
+
+		int middle = (low + high) >>> 1;
+
+		// build in order: left subtree, then this node, then right subtree
+		N left = this.buildSubtree(elements, depth + 1, low, middle - 1);
+		N node = this.createNode(elements.next());
+
+		if (left != null) {
+			if (this.compare(node.elem, this.findMaxNode(left).elem) < 0) {
+				throw new IllegalArgumentException("Elements are not in ascending order.");
+			}
+
+			node.leftChild = left;
+			left.parent = node;
+		}
+
+		N right = this.buildSubtree(elements, depth + 1, middle + 1, high);
+		node.size = high - low + 1;
+
+		if (right != null) {
+			if (this.compare(node.elem, this.findMinNode(right).elem) > 0) {
+				throw new IllegalArgumentException("Elements are not in ascending order.");
+			}
+
+			node.rightChild = right;
+			right.parent = node;
+		}
+
+		this.onBuild(node, depth);
+		return node;
+	}
+
+	/**
+	 * Called when a node is created by {@link #buildFromSorted(Iterator, int)}, once both of its subtrees are built.
+	 * Subclasses can use this to initialise balancing information.
+	 * @param node the node which was built.
+	 * @param depth the depth of the node in the tree, where the root has depth 0.
+	 */
+	protected void onBuild(N node, int depth) {
+	}
+
+	/**
+	 * Replace the contents of this tree with an already linked tree of nodes, in O(n) time. The subtree sizes are
+	 * recalculated, and {@link #onRestore(Node)} is called for every node once its subtrees have been.
+	 * @param root the root of the linked nodes.
+	 * @param size the number of nodes.
+	 * @throws IllegalArgumentException if the nodes are not in ascending order.
+	 */
+	void restore(@Nullable N root, int size) throws IllegalArgumentException {
+		this.forgetAll();
+		this.root = root;
+		this.elementCount = size;
+		if (root != null) this.learnKeyType(root.elem);
+
+		// post-order walk, so children are visited before their parents
+		N previous = null;
+		N node = root;
+
+		while (node != null) {
+			N next;
+
+			if (previous == node.parent && node.leftChild != null) {
+				next = node.leftChild;
+			} else if (previous != node.rightChild && node.rightChild != null) {
+				next = node.rightChild;
+			} else {
+				node.updateSize();
+				this.onRestore(node);
+				next = node.parent;
+			}
+
+			previous = node;
+			node = next;
+		}
+
+		T last = null;
+
+		for (T elem : this) {
+			if (last != null && this.compare(elem, last) < 0) {
+				this.root = null;
+				this.elementCount = 0;
+				throw new IllegalArgumentException("Elements are not in ascending order.");
+			}
+
+			last = elem;
+		}
+	}
+
+	/**
+	 * Called when a node is restored by {@link #restore(Node, int)}, once both of its subtrees have been. Subclasses
+	 * can use this to recalculate balancing information which can be derived from the shape of the tree.
+	 * @param node the node which was restored.
+	 */
+	protected void onRestore(N node) {
+	}
+
+	// Pre-order Shape //
+
+	static final int HAS_LEFT = 1;
+	static final int HAS_RIGHT = 2;
+	static final int BLACK = 4;
+
+	/**
+	 * Get the bits describing a node when saving the shape of the tree in pre-order: which children it has, and any
+	 * balancing information which cannot be recalculated from the shape.
+	 * @param node the node to describe.
+	 * @return the shape bits of the node.
+	 */
+	int shapeBits(N node) {
+		return (node.leftChild != null ? HAS_LEFT : 0) | (node.rightChild != null ? HAS_RIGHT : 0);
+	}
+
+	/**
+	 * Set the balancing information saved in a node's shape bits, when the tree is restored from them.
+	 * @param node the node being restored.
+	 * @param bits the shape bits saved for the node.
+	 */
+	void applyShapeBits(N node, int bits) {
+	}
+
+	/**
+	 * Get the node after the given one in pre-order, following parent links back up rather than keeping a stack.
+	 * @param node the current node.
+	 * @return the next node in pre-order, or null if the given node is the last.
+	 */
+	@Nullable N nextPreorder(N node) {
+		if (node.leftChild != null) return node.leftChild;
+		if (node.rightChild != null) return node.rightChild;
+
+		// climb until there is a right subtree not yet visited
+		N parent = node.parent;
+
+		while (parent != null && (parent.rightChild == node || parent.rightChild == null)) {
+			node = parent;
+			parent = node.parent;
+		}
+
+		return parent == null ? null : parent.rightChild;
+	}
+
+	/**
+	 * Replace the contents of this tree with nodes saved in pre-order with their {@link #shapeBits(Node) shape bits},
+	 * in O(n) time.
+	 * @param size the number of nodes.
+	 * @param source the saved nodes.
+	 * @throws IllegalArgumentException if the shape bits do not describe a tree of the given size, or the nodes are
+	 * not in ascending order.
+	 */
+	void restorePreorder(int size, PreorderSource<T> source) throws IllegalArgumentException {
+		// nodes whose left subtree is being read, and still need a right child
+		ArrayDeque<N> awaitingRight = new ArrayDeque<>();
+		N root = null;
+		N parent = null;
+		boolean left = false;
+
+		for (int i = 0; i < size; i++) {
+			N node = this.createNode(source.nextElement());
+			int bits = source.shapeBits();
+			this.applyShapeBits(node, bits);
+
+			if (root == null) {
+				root = node;
+			} else {
+				if (parent == null) {
+					throw new IllegalArgumentException("More nodes than the shape has room for.");
+				}
+
+				node.parent = parent;
+
+				if (left) {
+					parent.leftChild = node;
+				} else {
+					parent.rightChild = node;
+				}
+			}
+
+			// find where the next node goes
+			if ((bits & HAS_LEFT) != 0) {
+				if ((bits & HAS_RIGHT) != 0) awaitingRight.push(node);
+				parent = node;
+				left = true;
+			} else if ((bits & HAS_RIGHT) != 0) {
+				parent = node;
+				left = false;
+			} else {
+				parent = awaitingRight.poll();
+				left = false;
+			}
+		}
+
+		if (parent != null) {
+			throw new IllegalArgumentException("Fewer nodes than the shape has room for.");
+		}
+
+		this.restore(root, size);
+	}
+
 	/**
 	 * Rotates the given child node around its parent node.
 	 * @param child the child node.
@@ -75,6 +388,7 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 		if (child.parent == null) return null;
 
 		N oldParent = child.parent;
+		this.onRotation(child, oldParent);
 
 		if (oldParent.parent != null) {
 			N grandParent = oldParent.parent;
@@ -110,14 +424,379 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 			child.leftChild = oldParent;
 		}
 
+		// the child's subtree is now what the parent's was
+		child.size = oldParent.size;
+		oldParent.updateSize();
+
 		return child;
 	}
 
+	/**
+	 * Count a rotation, tracing it if enabled. Called by {@link #rotate(Node)}, and by subclasses which restructure
+	 * the tree with rotations of their own.
+	 * @param child the node rotated up.
+	 * @param parent the parent it was rotated around.
+	 */
+	protected void onRotation(N child, N parent) {
+		this.rotationCount++;
+		if (this.metrics != null) this.metrics.recordRotation();
+		this.trace(TreeTracer.Event.ROTATE, child.elem, parent.elem, 0);
+	}
+
+	/**
+	 * Replace the given node with another node (or nothing) in the eyes of its parent.
+	 * Please note the node's own links will <b>not</b> be updated.
+	 * @param node the node to replace.
+	 * @param replacement the node to take its place, or null to remove it.
+	 */
+	protected void transplant(N node, @Nullable N replacement) {
+		N parent = node.parent;
+
+		if (parent == null) {
+			this.root = replacement;
+		} else if (parent.leftChild == node) {
+			parent.leftChild = replacement;
+		} else {
+			parent.rightChild = replacement;
+		}
+
+		if (replacement != null) {
+			replacement.parent = parent;
+		}
+	}
+
+	/**
+	 * Swap the positions of a node and its in-order successor within the tree, without changing the elements they hold.
+	 * Afterwards, the node has no left child. Subclasses should swap any balancing information between the two.
+	 * @param node the node to swap.
+	 * @param successor the in-order successor of the node, which must be in its right subtree.
+	 */
+	protected void swapWithSuccessor(N node, N successor) {
+		N nodeLeft = node.leftChild;
+		N nodeRight = node.rightChild;
+		N successorRight = successor.rightChild;
+
+		// the successor takes the node's place under its parent
+		N successorParent = successor.parent;
+		this.transplant(node, successor);
+
+		successor.leftChild = nodeLeft;
+		if (nodeLeft != null) nodeLeft.parent = successor;
+
+		if (successorParent == node) {
+			// the successor was the node's right child
+			successor.rightChild = node;
+			node.parent = successor;
+		} else {
+			successor.rightChild = nodeRight;
+			if (nodeRight != null) nodeRight.parent = successor;
+
+			// the successor is always the left child of its parent, as it is the minimum of the right subtree
+			successorParent.leftChild = node;
+			node.parent = successorParent;
+		}
+
+		// the successor never has a left child
+		node.leftChild = null;
+		node.rightChild = successorRight;
+		if (successorRight != null) successorRight.parent = node;
+
+		int size = node.size;
+		node.size = successor.size;
+		successor.size = size;
+	}
+
+	/**
+	 * Unlink the given node from the tree. If the node has two children, it is first swapped with its in-order
+	 * successor, so the node actually unlinked has at most one child which takes its place.
+	 * @param node the node to unlink.
+	 * @return the parent the node had when it was unlinked, which is the lowest node whose subtree changed.
+	 * Null if the node was the root.
+	 */
+	protected @Nullable N removeNode(N node) {
+		if (node.leftChild != null && node.rightChild != null) {
+			this.swapWithSuccessor(node, this.findMinNode(node.rightChild));
+		}
+
+		N parent = node.parent;
+		this.transplant(node, node.leftChild != null ? node.leftChild : node.rightChild);
+		this.elementCount--;
+		this.forget(node);
+		// keep the finger near the removed node
+		if (this.fingerSearch) this.finger = parent;
+
+		// every ancestor has lost a node from its subtree
+		for (N ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+			ancestor.size--;
+		}
+
+		node.parent = null;
+		node.leftChild = null;
+		node.rightChild = null;
+		node.size = 1;
+		return parent;
+	}
+
+	/**
+	 * Record that a node has been added to this tree, for subclasses which link nodes themselves rather than through
+	 * {@link #addElement(Comparable)}. Call before linking the node.
+	 * @param node the node added.
+	 */
+	protected void onNodeAdded(N node) {
+		if (this.root == null) this.learnKeyType(node.elem);
+		this.elementCount++;
+	}
+
+	/**
+	 * Record that a node has been removed from this tree, for subclasses which unlink nodes themselves rather than
+	 * through {@link #removeNode(Node)}.
+	 * @param node the node removed.
+	 */
+	protected void onNodeRemoved(N node) {
+		this.elementCount--;
+		this.forget(node);
+	}
+
+	/**
+	 * Get the total number of rotations performed on this tree since it was created. The number of rotations
+	 * performed by a single operation can be found by comparing the count before and after.
+	 * @return the number of rotations performed on this tree.
+	 */
+	public long rotationCount() {
+		return this.rotationCount;
+	}
+
+	/**
+	 * Start recording {@link TreeMetrics metrics} for this tree, if not already.
+	 * @return the metrics for this tree.
+	 */
+	public TreeMetrics enableMetrics() {
+		if (this.metrics == null) {
+			this.metrics = new TreeMetrics();
+		}
+
+		return this.metrics;
+	}
+
+	/**
+	 * Stop recording metrics for this tree, and unregister them from JMX if they were registered.
+	 */
+	public void disableMetrics() {
+		if (this.metrics != null) {
+			this.metrics.unregister();
+			this.metrics = null;
+		}
+	}
+
+	/**
+	 * Get the metrics being recorded for this tree.
+	 * @return the metrics, or null if they are not enabled.
+	 */
+	public @Nullable TreeMetrics metrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * Count an occurrence of a balancing case, if metrics are enabled.
+	 * @param balancingCase the case which occurred.
+	 */
+	protected void record(TreeMetrics.Case balancingCase) {
+		if (this.metrics != null) this.metrics.record(balancingCase);
+	}
+
+	/**
+	 * Start tracing the operations on this tree into a {@link TreeTracer}, replacing any tracer already in use. The
+	 * current state of the tree is taken as the first checkpoint.
+	 * @param capacity the number of events the tracer keeps before overwriting the oldest.
+	 * @return the tracer.
+	 * @throws IllegalArgumentException if the capacity is not positive.
+	 */
+	public TreeTracer<T> enableTracing(int capacity) throws IllegalArgumentException {
+		TreeTracer<T> tracer = new TreeTracer<>(this, capacity);
+		tracer.checkpoint();
+		return this.tracer = tracer;
+	}
+
+	/**
+	 * Stop tracing operations on this tree.
+	 */
+	public void disableTracing() {
+		this.tracer = null;
+	}
+
+	/**
+	 * Get the tracer recording operations on this tree.
+	 * @return the tracer, or null if tracing is not enabled.
+	 */
+	public @Nullable TreeTracer<T> tracer() {
+		return this.tracer;
+	}
+
+	/**
+	 * Start searches from the last node searched for or added, rather than the root. A search climbs from that node,
+	 * the finger, only until it reaches a subtree the element belongs in, then descends as normal. Searching for an
+	 * element d places away from the last costs O(log d) in a balanced tree, rather than O(log n), unless the path
+	 * between them crosses near the root, and a search far from the last costs up to twice as much. Use this when
+	 * consecutive operations are usually on nearby elements. <br>
+	 * While enabled, the depths in the {@link TreeMetrics metrics} are counted from where each search starts.
+	 */
+	public void enableFingerSearch() {
+		this.fingerSearch = true;
+	}
+
+	/**
+	 * Start searches from the root again.
+	 */
+	public void disableFingerSearch() {
+		this.fingerSearch = false;
+		this.finger = null;
+	}
+
+	/**
+	 * Keep a small cache of recently found and added nodes, so searching for them again takes a single comparison. The
+	 * cache is direct-mapped by the hash code of the elements, so each element has one slot and replaces whatever was
+	 * there before. Nodes keep their elements through rotations, so entries stay valid until the node is removed.
+	 * Elements which are equal in the order of the tree but have different hash codes will miss the cache. <br>
+	 * Replaces any cache already in use.
+	 * @param slots the number of slots, rounded up to a power of two.
+	 * @throws IllegalArgumentException if the number of slots is not positive, or more than 2^30.
+	 */
+	public void enableLookupCache(int slots) throws IllegalArgumentException {
+		if (slots < 1 || slots > 1 << 30) {
+			throw new IllegalArgumentException("Lookup cache must have between 1 and 2^30 slots, was " + slots);
+		}
+
+		this.lookupCache = new Object[slots == 1 ? 1 : Integer.highestOneBit(slots - 1) << 1];
+	}
+
+	/**
+	 * Stop caching recently found nodes.
+	 */
+	public void disableLookupCache() {
+		this.lookupCache = null;
+	}
+
+	/**
+	 * Record an event, if tracing is enabled.
+	 * @param event the kind of event.
+	 * @param element the element of the node the event happened to.
+	 * @param other the second element involved in the event, if any.
+	 * @param value the value carried by the event, if any.
+	 */
+	protected void trace(TreeTracer.Event event, T element, @Nullable T other, int value) {
+		if (this.tracer != null) this.tracer.record(event, element, other, value);
+	}
+
+	// Invariants //
+
+	/**
+	 * Check that the structure of the tree is consistent: children link back to their parents, subtree sizes and the
+	 * element count are correct, the elements are in order, and the finger and cached nodes are still in the tree.
+	 * Subclasses also check their balancing information. This walks the whole tree, so is meant for tests.
+	 * @throws IllegalStateException if the tree is inconsistent.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		if (this.root != null && this.root.parent != null) {
+			throw new IllegalStateException("Root " + this.root.elem + " has a parent.");
+		}
+
+		int size = this.checkSubtree(this.root);
+
+		if (size != this.elementCount) {
+			throw new IllegalStateException("Tree has " + size + " nodes, but counts " + this.elementCount + " elements.");
+		}
+
+		T last = null;
+
+		for (T elem : this) {
+			if (last != null && this.compare(elem, last) < 0) {
+				throw new IllegalStateException("Element " + elem + " is after the greater element " + last + ".");
+			}
+
+			last = elem;
+		}
+
+		if (this.finger != null) {
+			this.checkInTree(this.finger, "Finger");
+		}
+
+		if (this.lookupCache != null) {
+			for (int i = 0; i < this.lookupCache.length; i++) {
+				@SuppressWarnings("unchecked")
+				N node = (N) this.lookupCache[i];
+				if (node == null) continue;
+
+				this.checkInTree(node, "Cached node");
+
+				if (slot(node.elem, this.lookupCache.length) != i) {
+					throw new IllegalStateException("Cached node " + node.elem + " is in slot " + i + ", not the slot of its element.");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check the given node is linked into the tree, by following its parents up to the root.
+	 * @param description what the node is, for the exception message.
+	 */
+	private void checkInTree(N node, String description) throws IllegalStateException {
+		N start = node;
+
+		for (N parent = node.parent; parent != null; node = parent, parent = node.parent) {
+			if (parent.leftChild != node && parent.rightChild != node) {
+				throw new IllegalStateException(description + " " + start.elem + " is not a child of its ancestor " + parent.elem + ".");
+			}
+		}
+
+		if (node != this.root) {
+			throw new IllegalStateException(description + " " + start.elem + " is not in the tree.");
+		}
+	}
+
+	/**
+	 * Check the parent links and sizes in the given subtree.
+	 * @return the number of nodes in the subtree.
+	 */
+	private int checkSubtree(@Nullable N node) throws IllegalStateException {
+		if (node == null) return 0;
+
+		if (node.leftChild != null && node.leftChild.parent != node) {
+			throw new IllegalStateException("Left child of " + node.elem + " does not link back to it.");
+		}
+
+		if (node.rightChild != null && node.rightChild.parent != node) {
+			throw new IllegalStateException("Right child of " + node.elem + " does not link back to it.");
+		}
+
+		int size = this.checkSubtree(node.leftChild) + this.checkSubtree(node.rightChild) + 1;
+
+		if (node.size != size) {
+			throw new IllegalStateException("Node " + node.elem + " has size " + node.size + ", but its subtree has " + size + " nodes.");
+		}
+
+		return size;
+	}
+
 	// Overridden Methods //
 
+	@Override
+	public boolean remove(T element) {
+		this.trace(TreeTracer.Event.REMOVE, element, null, 0);
+		N node = this.find(element);
+
+		if (node == null) {
+			return false;
+		}
+
+		this.removeNode(node);
+		return true;
+	}
+
 	@Override
 	public boolean contains(T element) {
-		return this.find(element) != null;
+		boolean found = this.find(element) != null;
+		this.trace(found ? TreeTracer.Event.FIND_HIT : TreeTracer.Event.FIND_MISS, element, null, 0);
+		return found;
 	}
 
 	/**
@@ -126,24 +805,217 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 	 * @return the node containing the element. Null if it is not found in the tree.
 	 */
 	protected @Nullable N find(T element) {
-		N node = this.root;
+		N cached = this.cached(element);
 
-		if (node == null) return null;
+		if (cached != null) {
+			if (this.metrics != null) this.metrics.recordSearch(0, 1);
+			if (this.fingerSearch) this.finger = cached;
+			return cached;
+		}
+
+		this.fingerComparisons = 0;
+		N node = this.fingerSearch && this.finger != null ? this.climb(element, true) : this.root;
+		N last = null;
+		int depth = 0;
 
 		// binary search for the element
 		while (node != null) {
-			int comparison = element.compareTo(node.elem);
+			int comparison = this.compare(element, node.elem);
 
 			if (comparison == 0) {
+				if (this.metrics != null) this.metrics.recordSearch(depth, depth + 1 + this.fingerComparisons);
+				if (this.fingerSearch) this.finger = node;
+				this.cache(node);
 				return node; // the element has been found
-			} else if (comparison < 0) {
+			}
+
+			last = node;
+			node = comparison < 0 ? node.leftChild : node.rightChild;
+			depth++;
+		}
+
+		// a miss ends below the last node compared
+		if (this.metrics != null) this.metrics.recordSearch(depth, depth + this.fingerComparisons);
+		if (this.fingerSearch) this.finger = last;
+		return null;
+	}
+
+	/**
+	 * Climb from the finger to the smallest subtree around it which the given element belongs in: the subtree a
+	 * search from the root would pass through. Only the ancestors where the climb changes direction bound the
+	 * subtree, so only those are compared.
+	 * @param element the element to search for.
+	 * @param stopAtEqual whether to stop at an ancestor equal to the element, which is the node being searched for.
+	 * When inserting, equal elements go on the right instead.
+	 * @return the root of the subtree to descend from.
+	 */
+	private N climb(T element, boolean stopAtEqual) {
+		N node = this.finger;
+		N start = node;
+		int comparison = this.compare(element, node.elem);
+		this.fingerComparisons = 1;
+
+		if (comparison == 0 && stopAtEqual) {
+			return node;
+		}
+
+		// elements less than a node are on its left, and elements greater or equal on its right
+		boolean left = comparison < 0;
+
+		for (N parent = node.parent; parent != null; node = parent, parent = node.parent) {
+			// a parent on the far side of the element from the node cannot bound the subtree on the side that is open
+			if ((parent.leftChild == node) == left) continue;
+
+			comparison = this.compare(element, parent.elem);
+			this.fingerComparisons++;
+
+			if (comparison == 0 && stopAtEqual) {
+				return parent;
+			}
+
+			// the parent bounds the element, so it is within the subtree of start
+			if (left ? comparison >= 0 : comparison < 0) {
+				break;
+			}
+
+			start = parent;
+		}
+
+		return start;
+	}
+
+	/**
+	 * Look up a node in the lookup cache.
+	 * @param element the element to search for.
+	 * @return the node cached for the element, or null if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	private @Nullable N cached(T element) {
+		Object[] cache = this.lookupCache;
+		if (cache == null) return null;
+
+		N node = (N) cache[slot(element, cache.length)];
+		return node != null && this.compare(element, node.elem) == 0 ? node : null;
+	}
+
+	/**
+	 * Put a node in the lookup cache, if enabled.
+	 * @param node the node to cache.
+	 */
+	private void cache(N node) {
+		Object[] cache = this.lookupCache;
+		if (cache != null) cache[slot(node.elem, cache.length)] = node;
+	}
+
+	/**
+	 * Drop a node being removed from the finger and lookup cache.
+	 * @param node the node being removed.
+	 */
+	private void forget(N node) {
+		if (this.finger == node) this.finger = null;
+
+		Object[] cache = this.lookupCache;
+
+		if (cache != null) {
+			int slot = slot(node.elem, cache.length);
+			if (cache[slot] == node) cache[slot] = null;
+		}
+	}
+
+	/**
+	 * Drop every node from the finger and lookup cache, when the nodes of the tree are replaced.
+	 */
+	private void forgetAll() {
+		this.finger = null;
+		if (this.lookupCache != null) Arrays.fill(this.lookupCache, null);
+	}
+
+	private static int slot(Object element, int slots) {
+		int hash = element.hashCode();
+		// mix the high bits into the low bits used as the index, like HashMap
+		return (hash ^ (hash >>> 16)) & (slots - 1);
+	}
+
+	/**
+	 * Count the elements in the tree which are less than the given element, in O(log n) time for a balanced tree.
+	 * This is the index the element has, or would have, in sorted order.
+	 * @param element the element to find the rank of.
+	 * @return the number of elements less than the given element.
+	 */
+	public int rank(T element) {
+		return this.countBelow(element, false);
+	}
+
+	/**
+	 * Find the element at the given index in sorted order, in O(log n) time for a balanced tree.
+	 * @param k the index of the element, where 0 is the minimum element.
+	 * @return the kth smallest element.
+	 * @throws IndexOutOfBoundsException if k is negative, or not less than the size of the tree.
+	 */
+	public T select(int k) throws IndexOutOfBoundsException {
+		if (k < 0 || k >= this.elementCount) {
+			throw new IndexOutOfBoundsException("Index " + k + " outside of tree bounds (0:" + (this.elementCount - 1) + ")");
+		}
+
+		return this.selectNode(k).elem;
+	}
+
+	/**
+	 * Find the node at the given index in sorted order, descending by the subtree sizes.
+	 * @param k the index of the node, which must be within the bounds of the tree.
+	 * @return the node with the kth smallest element.
+	 */
+	private N selectNode(int k) {
+		N node = this.root;
+
+		while (true) {
+			assert node != null; // k is within bounds
+			int leftSize = Node.size(node.leftChild);
+
+			if (k < leftSize) {
 				node = node.leftChild;
+			} else if (k == leftSize) {
+				return node;
 			} else {
+				k -= leftSize + 1;
 				node = node.rightChild;
 			}
 		}
+	}
 
-		return null;
+	/**
+	 * Count the elements in the tree within the given range, in O(log n) time for a balanced tree.
+	 * @param low the lowest element to count, inclusive.
+	 * @param high the highest element to count, inclusive.
+	 * @return the number of elements between low and high inclusive. 0 if high is less than low.
+	 */
+	public int countInRange(T low, T high) {
+		return Math.max(0, this.countBelow(high, true) - this.countBelow(low, false));
+	}
+
+	/**
+	 * Count the elements in the tree which are less than (or equal to) the given element.
+	 * @param element the element to compare against.
+	 * @param inclusive whether to count elements equal to the given element.
+	 * @return the number of elements below the given element.
+	 */
+	private int countBelow(T element, boolean inclusive) {
+		N node = this.root;
+		int count = 0;
+
+		while (node != null) {
+			int comparison = this.compare(element, node.elem);
+
+			if (comparison > 0 || (inclusive && comparison == 0)) {
+				// this node and its whole left subtree are below
+				count += Node.size(node.leftChild) + 1;
+				node = node.rightChild;
+			} else {
+				node = node.leftChild;
+			}
+		}
+
+		return count;
 	}
 
 	@Override
@@ -157,8 +1029,10 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 	}
 
 	protected N findMaxNode() {
-		N node = this.root;
+		return this.findMaxNode(this.root);
+	}
 
+	protected N findMaxNode(@Nullable N node) {
 		if (node == null) return null;
 
 		// keep going right (larger number) until you cannot go any further
@@ -169,8 +1043,10 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 	}
 
 	protected N findMinNode() {
-		N node = this.root;
+		return this.findMinNode(this.root);
+	}
 
+	protected N findMinNode(@Nullable N node) {
 		if (node == null) return null;
 
 		// keep going left (smaller number) until you cannot go any further
@@ -185,15 +1061,218 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 		return this.elementCount;
 	}
 
+	/**
+	 * Find the node with the next element in sorted order, by walking the parent links.
+	 * @param node the node to find the successor of.
+	 * @return the in-order successor, or null if the node has the maximum element.
+	 */
+	protected @Nullable N successor(N node) {
+		// smallest element of the right subtree
+		if (node.rightChild != null) {
+			return this.findMinNode(node.rightChild);
+		}
+
+		// otherwise the first ancestor we reach from its left subtree
+		N child = node;
+		N parent = node.parent;
+
+		while (parent != null && parent.rightChild == child) {
+			child = parent;
+			parent = parent.parent;
+		}
+
+		return parent;
+	}
+
+	/**
+	 * Find the node with the smallest element which is not less than the given element.
+	 * @param element the element to compare against.
+	 * @return the node found, or null if every element in the tree is less than the given element.
+	 */
+	protected @Nullable N ceilingNode(T element) {
+		N node = this.root;
+		N result = null;
+
+		while (node != null) {
+			if (this.compare(element, node.elem) <= 0) {
+				// this node is a candidate. Look for a smaller one on the left.
+				result = node;
+				node = node.leftChild;
+			} else {
+				node = node.rightChild;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Iterate over the elements of this tree in ascending order. The iterator follows parent links, so it uses
+	 * constant memory and does not allocate as it goes. The tree must not be modified during iteration.
+	 * @return an iterator over the elements in ascending order.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new InOrderIterator(this.findMinNode(), null);
+	}
+
+	/**
+	 * Create a spliterator over the elements of this tree in ascending order. It splits by index, finding the
+	 * split point by descending the subtree sizes in O(log n) time, so both halves know their exact sizes.
+	 * The tree must not be modified while the spliterator is in use.
+	 * @return a spliterator over the elements in ascending order.
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return new TreeSpliterator(0, this.elementCount);
+	}
+
+	/**
+	 * Iterate over the elements of this tree between the given bounds in ascending order. The iterator seeks to the
+	 * low bound in O(log n) time for a balanced tree, then visits each element in the range lazily.
+	 * The tree must not be modified during iteration.
+	 * @param low the lowest element to visit, inclusive.
+	 * @param high the highest element to visit, inclusive.
+	 * @return an iterator over the elements in the range.
+	 */
+	public Iterator<T> range(T low, T high) {
+		return new InOrderIterator(this.ceilingNode(low), high);
+	}
+
 	@Override
 	public String toString() {
-		StringBuilder builder = new StringBuilder();
-		Node.appendStringRepr(builder, this.root, 0);
-		return builder.toString();
+		return new TreeRenderer().render(this);
 	}
 
 	// Inner Classes //
 
+	/**
+	 * Nodes saved in pre-order, read one at a time by {@link #restorePreorder(int, PreorderSource)}.
+	 */
+	interface PreorderSource<T> {
+		/**
+		 * @return the element of the next node.
+		 */
+		T nextElement();
+
+		/**
+		 * @return the shape bits of the node whose element was just read.
+		 */
+		int shapeBits();
+	}
+
+	/**
+	 * Spliterator over the range of indices [low, high) in sorted order.
+	 */
+	private class TreeSpliterator implements Spliterator<T> {
+		TreeSpliterator(int low, int high) {
+			this.low = low;
+			this.high = high;
+		}
+
+		/**
+		 * Below this many elements, splitting costs more than it is worth.
+		 */
+		private static final int MIN_SPLIT = 1024;
+
+		private int low;
+		private final int high;
+		/**
+		 * The node at index low, found when traversal starts.
+		 */
+		private @Nullable N current;
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (this.low >= this.high) return false;
+
+			N node = this.current == null ? BinarySearchTree.this.selectNode(this.low) : this.current;
+			this.low++;
+			this.current = this.low < this.high ? BinarySearchTree.this.successor(node) : null;
+			action.accept(node.elem);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			if (this.low >= this.high) return;
+
+			N node = this.current == null ? BinarySearchTree.this.selectNode(this.low) : this.current;
+			int remaining = this.high - this.low;
+			this.low = this.high;
+			this.current = null;
+
+			while (true) {
+				action.accept(node.elem);
+				if (--remaining == 0) break;
+				node = BinarySearchTree.this.successor(node);
+			}
+		}
+
+		@Override
+		public @Nullable Spliterator<T> trySplit() {
+			// don't split once traversal has started, or if too small
+			if (this.current != null || this.high - this.low < MIN_SPLIT) return null;
+
+			int middle = (this.low + this.high) >>> 1;
+			Spliterator<T> prefix = new TreeSpliterator(this.low, middle);
+			this.low = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.high - this.low;
+		}
+
+		@Override
+		public int characteristics() {
+			// duplicates are allowed in the tree, so the elements are not necessarily DISTINCT
+			return ORDERED | SORTED | SIZED | SUBSIZED | NONNULL;
+		}
+
+		@Override
+		public @Nullable Comparator<? super T> getComparator() {
+			// null for natural ordering
+			return BinarySearchTree.this.comparator;
+		}
+	}
+
+	/**
+	 * Iterator visiting nodes in order, using the parent links to find each successor.
+	 */
+	private class InOrderIterator implements Iterator<T> {
+		InOrderIterator(@Nullable N first, @Nullable T high) {
+			this.high = high;
+			this.next = this.inRange(first) ? first : null;
+		}
+
+		private final @Nullable T high;
+		private @Nullable N next;
+
+		private boolean inRange(@Nullable N node) {
+			return node != null && (this.high == null || BinarySearchTree.this.compare(node.elem, this.high) <= 0);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next != null;
+		}
+
+		@Override
+		public T next() throws NoSuchElementException {
+			N node = this.next;
+
+			if (node == null) {
+				throw new NoSuchElementException("No more elements in tree.");
+			}
+
+			N successor = BinarySearchTree.this.successor(node);
+			this.next = this.inRange(successor) ? successor : null;
+			return node.elem;
+		}
+	}
+
 	/**
 	 * A node within the tree.
 	 */
@@ -206,6 +1285,17 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 		@Nullable N parent;
 		@Nullable N leftChild;
 		@Nullable N rightChild;
+		/**
+		 * The number of nodes in the subtree rooted at this node, including itself.
+		 */
+		int size = 1;
+
+		/**
+		 * Recalculate the size of this node's subtree from its children.
+		 */
+		protected void updateSize() {
+			this.size = size(this.leftChild) + size(this.rightChild) + 1;
+		}
 
 		/**
 		 * Replace the given child with the new child, and updates the new child's parent.
@@ -237,29 +1327,13 @@ public abstract class BinarySearchTree<T extends Comparable<T>, N extends Binary
 			return rightLine || leftLine;
 		}
 
+		static int size(@Nullable BinarySearchTree<?, ?>.Node node) {
+			return node == null ? 0 : node.size;
+		}
+
 		@Override
 		public String toString() {
 			return this.elem + (this.parent == null ? "":(" p: " + this.parent.elem));
 		}
-
-		private static <T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node> void appendStringRepr(StringBuilder builder, BinarySearchTree<T, N>.Node node, int indent) {
-			// draw | and - connecting elements in the tree
-			for (int i = 0; i < indent - 1; i++) {
-				builder.append("| ");
-			}
-
-			if (indent > 0) {
-				builder.append("|-");
-			}
-
-			if (node == null) {
-				builder.append("nil");
-			} else {
-				builder.append(node).append("\n");
-				appendStringRepr(builder, node.leftChild, indent + 1);
-				builder.append("\n");
-				appendStringRepr(builder, node.rightChild, indent + 1);
-			}
-		}
 	}
 }
@@ -0,0 +1,45 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees direct and mapped buffers immediately, rather than waiting for the garbage collector to notice them.
+ * Java 17 has no public API for this, so it goes through {@code sun.misc.Unsafe#invokeCleaner} where available.
+ * If it is not, the buffers are left for the garbage collector.
+ */
+final class Cleaner {
+	private static final @Nullable Object UNSAFE;
+	private static final @Nullable Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// not available. Fall back to the garbage collector.
+		}
+
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	static void free(ByteBuffer buffer) {
+		if (INVOKE_CLEANER == null) return;
+
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException e) {
+			// leave it to the garbage collector
+		}
+	}
+}
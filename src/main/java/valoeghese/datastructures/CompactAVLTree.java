@@ -0,0 +1,196 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+
+/**
+ * An AVL self-balancing binary search tree using less memory per element than {@link AVLTree}. Nodes have no parent
+ * links, and store their balance factor in two bits rather than their height as an int. See
+ * {@link CompactSearchTree} for the layout. The balancing logic is equivalent to {@link AVLTree}, tracking balance
+ * factors rather than heights.
+ * @param <T> the type of element to store in the tree.
+ */
+public final class CompactAVLTree<T extends Comparable<T>> extends CompactSearchTree<T> {
+	/**
+	 * Create a compact AVL tree ordering its elements by their natural ordering.
+	 */
+	public CompactAVLTree() {
+		super(null);
+	}
+
+	/**
+	 * Create a compact AVL tree ordering its elements by the given comparator.
+	 * @param comparator the comparator to order elements by.
+	 */
+	public CompactAVLTree(Comparator<? super T> comparator) {
+		super(comparator);
+	}
+
+	// Balance factors are stored as two bit two's complement: 0 balanced, 1 right heavy, 3 left heavy //
+
+	private static int balance(Node<?> node) {
+		return (node.bits << 30) >> 30;
+	}
+
+	private static void setBalance(Node<?> node, int balance) {
+		node.bits = (byte) (balance & 3);
+	}
+
+	@Override
+	void checkInvariants() throws IllegalStateException {
+		super.checkInvariants();
+		checkHeight(this.root);
+	}
+
+	/**
+	 * Check that the balance factors in the given subtree match the heights of their subtrees, and are within one.
+	 * @return the height of the subtree.
+	 */
+	private static int checkHeight(@Nullable Node<?> node) throws IllegalStateException {
+		if (node == null) return -1;
+
+		int left = checkHeight(node.leftChild);
+		int right = checkHeight(node.rightChild);
+
+		if (balance(node) != right - left || Math.abs(right - left) > 1) {
+			throw new IllegalStateException("Node " + node.elem + " has balance " + balance(node) + " with subtrees of heights " + left + " and " + right + ".");
+		}
+
+		return Math.max(left, right) + 1;
+	}
+
+	@Override
+	public void add(T elem) {
+		Node<T> node = new Node<>(elem);
+		int depth = this.pathToInsert(elem);
+		this.attach(depth, node);
+
+		// walk back up while the subtree containing the new node has grown taller
+		Node<T> child = node;
+
+		for (int i = depth - 1; i >= 0; i--) {
+			Node<T> parent = this.path[i];
+			int balance = balance(parent) + (parent.leftChild == child ? -1 : 1);
+
+			if (balance == 0) {
+				// the shorter side caught up, so the height is unchanged
+				setBalance(parent, 0);
+				break;
+			} else if (balance == -1 || balance == 1) {
+				setBalance(parent, balance);
+				child = parent;
+			} else {
+				// after an insertion, a rotation always restores the subtree's previous height
+				this.replaceChild(i == 0 ? null : this.path[i - 1], parent, rebalance(parent, balance));
+				break;
+			}
+		}
+
+		this.clearPath(depth);
+	}
+
+	@Override
+	public boolean remove(T element) {
+		int depth = this.pathToFind(element);
+
+		if (depth < 0) {
+			return false;
+		}
+
+		Node<T> node = this.path[depth - 1];
+
+		if (node.leftChild != null && node.rightChild != null) {
+			// take the successor's element, and remove the successor instead
+			depth = this.pathToSuccessor(depth);
+			Node<T> successor = this.path[depth - 1];
+			node.elem = successor.elem;
+			node = successor;
+		}
+
+		// the node now has at most one child, which takes its place
+		Node<T> parent = depth > 1 ? this.path[depth - 2] : null;
+		boolean left = parent != null && parent.leftChild == node;
+		this.replaceChild(parent, node, node.leftChild != null ? node.leftChild : node.rightChild);
+		this.elementCount--;
+
+		// walk back up while the subtree on the side of the removal has become shorter
+		for (int i = depth - 2; i >= 0; i--) {
+			Node<T> ancestor = this.path[i];
+			int balance = balance(ancestor) + (left ? 1 : -1);
+
+			if (balance == -1 || balance == 1) {
+				// it was balanced, so the other side keeps the height
+				setBalance(ancestor, balance);
+				break;
+			}
+
+			Node<T> top = ancestor;
+
+			if (balance == 0) {
+				setBalance(ancestor, 0);
+			} else {
+				top = rebalance(ancestor, balance);
+				this.replaceChild(i == 0 ? null : this.path[i - 1], ancestor, top);
+
+				// a rotation around a balanced child keeps the height
+				if (balance(top) != 0) break;
+			}
+
+			if (i > 0) left = this.path[i - 1].leftChild == top;
+		}
+
+		this.clearPath(depth);
+		return true;
+	}
+
+	/**
+	 * Rotate a subtree which is two levels heavier on one side, updating the balance factors.
+	 * @param node the root of the subtree.
+	 * @param balance the balance factor of the node, 2 or -2.
+	 * @return the new root of the subtree. The caller updates the parent's link.
+	 */
+	private static <T> Node<T> rebalance(Node<T> node, int balance) {
+		if (balance > 0) {
+			Node<T> child = node.rightChild;
+			int childBalance = balance(child);
+
+			if (childBalance >= 0) {
+				Node<T> top = rotateLeft(node);
+				setBalance(node, childBalance == 0 ? 1 : 0);
+				setBalance(child, childBalance == 0 ? -1 : 0);
+				return top;
+			}
+
+			// right child is heavier on its left
+			Node<T> grandChild = child.leftChild;
+			int grandBalance = balance(grandChild);
+			node.rightChild = rotateRight(child);
+			Node<T> top = rotateLeft(node);
+			setBalance(node, grandBalance > 0 ? -1 : 0);
+			setBalance(child, grandBalance < 0 ? 1 : 0);
+			setBalance(grandChild, 0);
+			return top;
+		} else {
+			Node<T> child = node.leftChild;
+			int childBalance = balance(child);
+
+			if (childBalance <= 0) {
+				Node<T> top = rotateRight(node);
+				setBalance(node, childBalance == 0 ? -1 : 0);
+				setBalance(child, childBalance == 0 ? 1 : 0);
+				return top;
+			}
+
+			// left child is heavier on its right
+			Node<T> grandChild = child.rightChild;
+			int grandBalance = balance(grandChild);
+			node.leftChild = rotateLeft(child);
+			Node<T> top = rotateRight(node);
+			setBalance(node, grandBalance < 0 ? 1 : 0);
+			setBalance(child, grandBalance > 0 ? -1 : 0);
+			setBalance(grandChild, 0);
+			return top;
+		}
+	}
+}
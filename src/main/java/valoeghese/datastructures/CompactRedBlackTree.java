@@ -0,0 +1,235 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+
+/**
+ * A red-black self-balancing binary search tree using less memory per element than {@link RedBlackTree}. Nodes have
+ * no parent links, and store their colour in a bit of a packed byte. See {@link CompactSearchTree} for the layout.
+ * The balancing logic is the same as {@link RedBlackTree}, finding parents from the recorded path instead.
+ * @param <T> the type of element to store in the tree.
+ */
+public final class CompactRedBlackTree<T extends Comparable<T>> extends CompactSearchTree<T> {
+	/**
+	 * Create a compact red-black tree ordering its elements by their natural ordering.
+	 */
+	public CompactRedBlackTree() {
+		super(null);
+	}
+
+	/**
+	 * Create a compact red-black tree ordering its elements by the given comparator.
+	 * @param comparator the comparator to order elements by.
+	 */
+	public CompactRedBlackTree(Comparator<? super T> comparator) {
+		super(comparator);
+	}
+
+	// Colours //
+
+	private static final byte RED = 0;
+	private static final byte BLACK = 1;
+
+	private static boolean isBlack(@Nullable Node<?> node) {
+		return node == null || (node.bits & BLACK) != 0;
+	}
+
+	@Override
+	void checkInvariants() throws IllegalStateException {
+		super.checkInvariants();
+
+		if (!isBlack(this.root)) {
+			throw new IllegalStateException("Root " + this.root.elem + " is red.");
+		}
+
+		checkBlackHeight(this.root);
+	}
+
+	/**
+	 * Check that no red node in the given subtree has a red child, and that every path down it has the same number of
+	 * black nodes.
+	 * @return the black height of the subtree, counting the null leaves.
+	 */
+	private static int checkBlackHeight(@Nullable Node<?> node) throws IllegalStateException {
+		if (node == null) return 1;
+
+		if (!isBlack(node) && !(isBlack(node.leftChild) && isBlack(node.rightChild))) {
+			throw new IllegalStateException("Red node " + node.elem + " has a red child.");
+		}
+
+		int left = checkBlackHeight(node.leftChild);
+		int right = checkBlackHeight(node.rightChild);
+
+		if (left != right) {
+			throw new IllegalStateException("Paths below " + node.elem + " have black heights " + left + " and " + right + ".");
+		}
+
+		return left + (isBlack(node) ? 1 : 0);
+	}
+
+	@Override
+	public void add(T elem) {
+		// new nodes are red
+		Node<T> node = new Node<>(elem);
+		int depth = this.pathToInsert(elem);
+		this.attach(depth, node);
+
+		// the node is at index depth of the path, and its ancestors before it
+		int i = depth;
+
+		while (i > 0) {
+			Node<T> parent = this.path[i - 1];
+
+			// if parent is black properties are not violated.
+			if (isBlack(parent)) break;
+
+			// parent is red so is not the root, and grandparent is black
+			Node<T> grandParent = this.path[i - 2];
+			Node<T> uncle = grandParent.leftChild == parent ? grandParent.rightChild : grandParent.leftChild;
+
+			// uncle is red. Move blackness down from grandparent, and check grandparent
+			if (!isBlack(uncle)) {
+				parent.bits = BLACK;
+				uncle.bits = BLACK;
+				grandParent.bits = RED;
+				node = grandParent;
+				i -= 2;
+				continue;
+			}
+
+			// uncle is black. Transform a zig-zag into a zig-zig, then rotate parent to grandparent
+			Node<T> top;
+
+			if (grandParent.leftChild == parent) {
+				if (parent.rightChild == node) grandParent.leftChild = rotateLeft(parent);
+				top = rotateRight(grandParent);
+			} else {
+				if (parent.leftChild == node) grandParent.rightChild = rotateRight(parent);
+				top = rotateLeft(grandParent);
+			}
+
+			// new grandparent is black, old grandparent is red.
+			top.bits = BLACK;
+			grandParent.bits = RED;
+			this.replaceChild(i > 2 ? this.path[i - 3] : null, grandParent, top);
+			break;
+		}
+
+		// root is black.
+		this.root.bits = BLACK;
+		this.clearPath(depth);
+	}
+
+	@Override
+	public boolean remove(T element) {
+		int depth = this.pathToFind(element);
+
+		if (depth < 0) {
+			return false;
+		}
+
+		Node<T> node = this.path[depth - 1];
+
+		if (node.leftChild != null && node.rightChild != null) {
+			// take the successor's element, and remove the successor instead
+			depth = this.pathToSuccessor(depth);
+			Node<T> successor = this.path[depth - 1];
+			node.elem = successor.elem;
+			node = successor;
+		}
+
+		// the node now has at most one child, which takes its place
+		Node<T> replacement = node.leftChild != null ? node.leftChild : node.rightChild;
+		Node<T> parent = depth > 1 ? this.path[depth - 2] : null;
+		boolean left = parent != null && parent.leftChild == node;
+		this.replaceChild(parent, node, replacement);
+		this.elementCount--;
+
+		if (isBlack(node)) {
+			if (replacement != null) {
+				// a lone child under a black node must be red. Making it black restores the black-height.
+				replacement.bits = BLACK;
+			} else {
+				// removing a black leaf shortens its paths. The empty place it leaves is "double black".
+				this.balanceRemoval(depth - 1, left);
+			}
+		}
+
+		// balancing may lengthen the path by one
+		this.clearPath(depth + 1);
+		return true;
+	}
+
+	/**
+	 * Restore the black-height properties after removing a black leaf, where the place it left carries an extra
+	 * "double" blackness which must be pushed up the tree or absorbed.
+	 * @param index the index in the path of the double black place. Its parent is the entry before it.
+	 * @param left whether the double black place is the left child of its parent.
+	 */
+	private void balanceRemoval(int index, boolean left) {
+		while (index > 0) {
+			Node<T> parent = this.path[index - 1];
+			Node<T> grandParent = index > 1 ? this.path[index - 2] : null;
+
+			// the brother is never null, as it must have at least the black-height of the double black place
+			Node<T> brother = left ? parent.rightChild : parent.leftChild;
+
+			// brother is red. Rotate it up so the brother is black.
+			if (!isBlack(brother)) {
+				brother.bits = BLACK;
+				parent.bits = RED;
+				this.replaceChild(grandParent, parent, left ? rotateLeft(parent) : rotateRight(parent));
+
+				// the old brother is now between the grandparent and parent on the path
+				this.path[index - 1] = brother;
+				this.setPath(index, parent);
+				index++;
+				grandParent = brother;
+				brother = left ? parent.rightChild : parent.leftChild;
+			}
+
+			Node<T> nearNephew = left ? brother.leftChild : brother.rightChild;
+			Node<T> farNephew = left ? brother.rightChild : brother.leftChild;
+
+			if (isBlack(nearNephew) && isBlack(farNephew)) {
+				// brother can become red, moving the double blackness up to the parent
+				brother.bits = RED;
+
+				if (!isBlack(parent)) {
+					// a red parent absorbs it
+					parent.bits = BLACK;
+					return;
+				}
+
+				index--;
+				left = grandParent != null && grandParent.leftChild == parent;
+			} else {
+				// far nephew is black. Rotate the near nephew up so the far nephew is red.
+				if (isBlack(farNephew)) {
+					nearNephew.bits = BLACK;
+					brother.bits = RED;
+					Node<T> top = left ? rotateRight(brother) : rotateLeft(brother);
+
+					if (left) {
+						parent.rightChild = top;
+					} else {
+						parent.leftChild = top;
+					}
+
+					farNephew = brother;
+					brother = top;
+				}
+
+				// rotate brother to parent, absorbing the double blackness
+				brother.bits = parent.bits;
+				parent.bits = BLACK;
+				farNephew.bits = BLACK;
+				this.replaceChild(grandParent, parent, left ? rotateLeft(parent) : rotateRight(parent));
+				return;
+			}
+		}
+
+		// the double blackness reached the root, where it is dropped
+	}
+}
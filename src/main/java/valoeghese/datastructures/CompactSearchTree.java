@@ -0,0 +1,354 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The structure of a self-balancing binary search tree with low memory use per element. Nodes have no parent link or
+ * subtree size, and are static classes so carry no reference to their tree. Balancing information is packed into a
+ * single byte. A node is therefore three references and a byte, which the JVM lays out in 32 bytes with compressed
+ * references, against 48 bytes for the nodes of {@link AVLTree} and {@link RedBlackTree}. <br>
+ * Without parent links, operations which change the tree record the path down to the change in a reusable array, and
+ * rebalance by walking back along it. Order statistics such as rank and select are not supported. <br>
+ * Elements are ordered by their natural ordering, or by a comparator given on construction.
+ * @param <T> the type of element to store in the tree.
+ */
+abstract class CompactSearchTree<T extends Comparable<T>> implements Tree<T> {
+	CompactSearchTree(@Nullable Comparator<? super T> comparator) {
+		this.comparator = comparator;
+		this.keyType = KeyOrder.keyType(comparator, null);
+	}
+
+	private final @Nullable Comparator<? super T> comparator;
+	/**
+	 * How elements are compared, from {@link KeyOrder}. Learnt from the first element added, if there is no comparator.
+	 */
+	private byte keyType;
+	@Nullable Node<T> root;
+	int elementCount;
+
+	/**
+	 * The nodes on the path from the root to the node being changed. Balanced trees are shallow, so this rarely grows.
+	 */
+	@SuppressWarnings("unchecked")
+	Node<T>[] path = new Node[64];
+	/**
+	 * Whether the last path to insert ended by going left.
+	 */
+	boolean insertLeft;
+
+	/**
+	 * Compare two elements by the order of this tree.
+	 * @param a the first element.
+	 * @param b the second element.
+	 * @return a negative number, zero, or a positive number as the first element is less than, equal to, or greater
+	 * than the second.
+	 */
+	final int compare(T a, T b) {
+		return KeyOrder.compare(this.keyType, this.comparator, a, b);
+	}
+
+	/**
+	 * Get the comparator ordering the elements of this tree.
+	 * @return the comparator, or null if elements are in their natural ordering.
+	 */
+	public @Nullable Comparator<? super T> comparator() {
+		return this.comparator;
+	}
+
+	// Paths //
+
+	/**
+	 * Store a node on the path, growing the path if needed.
+	 * @param index the depth of the node.
+	 * @param node the node.
+	 */
+	void setPath(int index, Node<T> node) {
+		if (index == this.path.length) {
+			this.path = Arrays.copyOf(this.path, index * 2);
+		}
+
+		this.path[index] = node;
+	}
+
+	/**
+	 * Record the path from the root down to where the given element would be inserted. Equal elements are passed on
+	 * the right, so an inserted element goes after any equal to it.
+	 * @param elem the element to insert.
+	 * @return the length of the path, whose last node is the parent of the new node. 0 if the tree is empty.
+	 */
+	int pathToInsert(T elem) {
+		int depth = 0;
+		Node<T> node = this.root;
+
+		while (node != null) {
+			this.setPath(depth++, node);
+			// remember the direction, so it need not be compared again to attach the new node
+			this.insertLeft = this.compare(elem, node.elem) < 0;
+			node = this.insertLeft ? node.leftChild : node.rightChild;
+		}
+
+		return depth;
+	}
+
+	/**
+	 * Record the path from the root down to a node containing the given element, including the node itself.
+	 * @param element the element to find.
+	 * @return the length of the path, or -1 if the element is not in the tree.
+	 */
+	int pathToFind(T element) {
+		int depth = 0;
+		Node<T> node = this.root;
+
+		while (node != null) {
+			this.setPath(depth++, node);
+			int comparison = this.compare(element, node.elem);
+
+			if (comparison == 0) {
+				return depth;
+			}
+
+			node = comparison < 0 ? node.leftChild : node.rightChild;
+		}
+
+		this.clearPath(depth);
+		return -1;
+	}
+
+	/**
+	 * Extend a path to the in-order successor of its last node, which must have a right child.
+	 * @param depth the length of the path.
+	 * @return the new length of the path, whose last node is the successor.
+	 */
+	int pathToSuccessor(int depth) {
+		Node<T> node = this.path[depth - 1].rightChild;
+
+		while (node != null) {
+			this.setPath(depth++, node);
+			node = node.leftChild;
+		}
+
+		return depth;
+	}
+
+	/**
+	 * Clear the path, so it does not hold on to removed elements.
+	 * @param depth the length of the path.
+	 */
+	void clearPath(int depth) {
+		Arrays.fill(this.path, 0, Math.min(depth, this.path.length), null);
+	}
+
+	// Structure //
+
+	/**
+	 * Attach a new node at the end of the last path to insert.
+	 * @param depth the length of the path.
+	 * @param node the new node.
+	 */
+	void attach(int depth, Node<T> node) {
+		this.elementCount++;
+
+		if (depth == 0) {
+			if (this.keyType == KeyOrder.NATURAL) this.keyType = KeyOrder.keyType(null, node.elem);
+			this.root = node;
+		} else if (this.insertLeft) {
+			this.path[depth - 1].leftChild = node;
+		} else {
+			this.path[depth - 1].rightChild = node;
+		}
+	}
+
+	/**
+	 * Replace a child of the given parent, or the root if there is no parent.
+	 * @param parent the parent of the node to replace, or null if it is the root.
+	 * @param child the node to replace.
+	 * @param replacement the node to take its place.
+	 */
+	void replaceChild(@Nullable Node<T> parent, Node<T> child, @Nullable Node<T> replacement) {
+		if (parent == null) {
+			this.root = replacement;
+		} else if (parent.leftChild == child) {
+			parent.leftChild = replacement;
+		} else {
+			parent.rightChild = replacement;
+		}
+	}
+
+	/**
+	 * Rotate the right child of a node up into its place. The caller updates the parent's link.
+	 * @param node the node to rotate down.
+	 * @return the node which took its place.
+	 */
+	static <T> Node<T> rotateLeft(Node<T> node) {
+		Node<T> child = node.rightChild;
+		node.rightChild = child.leftChild;
+		child.leftChild = node;
+		return child;
+	}
+
+	/**
+	 * Rotate the left child of a node up into its place. The caller updates the parent's link.
+	 * @param node the node to rotate down.
+	 * @return the node which took its place.
+	 */
+	static <T> Node<T> rotateRight(Node<T> node) {
+		Node<T> child = node.leftChild;
+		node.leftChild = child.rightChild;
+		child.rightChild = node;
+		return child;
+	}
+
+	// Invariants //
+
+	/**
+	 * Check that the elements are in order, the element count is correct, and the path holds no nodes between
+	 * operations. Subclasses also check their balancing information. This walks the whole tree, so is meant for tests.
+	 * @throws IllegalStateException if the tree is inconsistent.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		int count = 0;
+		T last = null;
+
+		for (T elem : this) {
+			if (last != null && this.compare(elem, last) < 0) {
+				throw new IllegalStateException("Element " + elem + " is after the greater element " + last + ".");
+			}
+
+			last = elem;
+			count++;
+		}
+
+		if (count != this.elementCount) {
+			throw new IllegalStateException("Tree has " + count + " nodes, but counts " + this.elementCount + " elements.");
+		}
+
+		for (Node<T> node : this.path) {
+			if (node != null) {
+				throw new IllegalStateException("Path still holds " + node.elem + " after the last operation.");
+			}
+		}
+	}
+
+	// Overridden Methods //
+
+	@Override
+	public boolean contains(T element) {
+		Node<T> node = this.root;
+
+		// binary search for the element
+		while (node != null) {
+			int comparison = this.compare(element, node.elem);
+
+			if (comparison == 0) {
+				return true; // the element has been found
+			}
+
+			node = comparison < 0 ? node.leftChild : node.rightChild;
+		}
+
+		return false;
+	}
+
+	@Override
+	public @Nullable T findMax() {
+		Node<T> node = this.root;
+
+		if (node == null) return null;
+
+		// keep going right (larger number) until you cannot go any further
+		while (node.rightChild != null)
+			node = node.rightChild;
+
+		return node.elem;
+	}
+
+	@Override
+	public @Nullable T findMin() {
+		Node<T> node = this.root;
+
+		if (node == null) return null;
+
+		// keep going left (smaller number) until you cannot go any further
+		while (node.leftChild != null)
+			node = node.leftChild;
+
+		return node.elem;
+	}
+
+	@Override
+	public int size() {
+		return this.elementCount;
+	}
+
+	/**
+	 * Iterate over the elements of this tree in ascending order. Without parent links, the iterator keeps a stack of
+	 * the nodes above the next one. The tree must not be modified during iteration.
+	 * @return an iterator over the elements in ascending order.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new InOrderIterator<>(this.root);
+	}
+
+	// Inner Classes //
+
+	/**
+	 * Iterator visiting nodes in order, keeping a stack of the nodes whose left subtrees are being visited.
+	 */
+	private static final class InOrderIterator<T> implements Iterator<T> {
+		InOrderIterator(@Nullable Node<T> root) {
+			this.pushLeft(root);
+		}
+
+		private final ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+
+		private void pushLeft(@Nullable Node<T> node) {
+			while (node != null) {
+				this.stack.push(node);
+				node = node.leftChild;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !this.stack.isEmpty();
+		}
+
+		@Override
+		public T next() throws NoSuchElementException {
+			if (this.stack.isEmpty()) {
+				throw new NoSuchElementException("No more elements in tree.");
+			}
+
+			Node<T> node = this.stack.pop();
+			this.pushLeft(node.rightChild);
+			return node.elem;
+		}
+	}
+
+	/**
+	 * A node within the tree.
+	 */
+	static final class Node<T> {
+		Node(T elem) {
+			this.elem = elem;
+		}
+
+		/**
+		 * Not final, as removing a node with two children moves its successor's element into it.
+		 */
+		T elem;
+		@Nullable Node<T> leftChild;
+		@Nullable Node<T> rightChild;
+		/**
+		 * Balancing information, packed by the tree the node is in.
+		 */
+		byte bits;
+	}
+}
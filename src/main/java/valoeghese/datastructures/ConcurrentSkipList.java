@@ -0,0 +1,446 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe ordered set, implemented as a lazy skip list. Each element is stored in a node with a random number
+ * of levels; each level links to the next node with at least that many levels, so searches can skip ahead. <br>
+ * Reads never lock. Writers search without locking too, then lock only the nodes whose links they change, and check
+ * nothing changed underneath them before committing. Removal first marks a node as deleted, then unlinks it.
+ * Iteration is weakly consistent: it reflects some of the changes made during iteration, and never throws.
+ * @param <T> the type of element to store in the skip list.
+ */
+public final class ConcurrentSkipList<T extends Comparable<T>> implements Tree<T> {
+	private static final int MAX_LEVEL = 31;
+	private static final VarHandle NEXT = MethodHandles.arrayElementVarHandle(Node[].class);
+
+	private final Node<T> head = new Node<>(null, MAX_LEVEL);
+	// the tail is not linked anywhere, it just marks the end of each level
+	private final Node<T> tail = new Node<>(null, MAX_LEVEL);
+	private final LongAdder elementCount = new LongAdder();
+	/**
+	 * The highest level any node has been given. Searches start here rather than at MAX_LEVEL. It only ever rises, so
+	 * every level of a node already linked is searched.
+	 */
+	private final AtomicInteger highestLevel = new AtomicInteger();
+
+	public ConcurrentSkipList() {
+		for (int level = 0; level <= MAX_LEVEL; level++) {
+			this.head.next[level] = this.tail;
+		}
+
+		this.head.fullyLinked = true;
+		this.tail.fullyLinked = true;
+	}
+
+	@Override
+	public void add(T elem) {
+		int topLevel = randomLevel();
+
+		// raise the search level before searching, so the predecessors are found on every level of the new node
+		if (topLevel > this.highestLevel.get()) {
+			this.highestLevel.accumulateAndGet(topLevel, Math::max);
+		}
+
+		Node<T>[] preds = newNodeArray();
+		Node<T>[] succs = newNodeArray();
+
+		while (true) {
+			int levelFound = this.find(elem, preds, succs);
+
+			if (levelFound != -1) {
+				Node<T> found = succs[levelFound];
+
+				// if it is being removed, wait for it to be unlinked and try again
+				if (found.marked) continue;
+
+				// wait for another writer to finish linking it
+				while (!found.fullyLinked) Thread.onSpinWait();
+
+				// duplicates are counted on the existing node
+				found.lock();
+
+				try {
+					if (found.marked) continue;
+
+					found.count++;
+					this.elementCount.increment();
+					return;
+				} finally {
+					found.unlock();
+				}
+			}
+
+			int highestLocked = -1;
+
+			try {
+				// lock the predecessors, and check they still link to the successors
+				boolean valid = true;
+
+				for (int level = 0; valid && level <= topLevel; level++) {
+					Node<T> pred = preds[level];
+					Node<T> succ = succs[level];
+					pred.lock();
+					highestLocked = level;
+					valid = !pred.marked && !succ.marked && pred.next(level) == succ;
+				}
+
+				if (!valid) continue;
+
+				Node<T> newNode = new Node<>(elem, topLevel);
+
+				for (int level = 0; level <= topLevel; level++) {
+					newNode.next[level] = succs[level];
+				}
+
+				for (int level = 0; level <= topLevel; level++) {
+					preds[level].setNext(level, newNode);
+				}
+
+				newNode.fullyLinked = true;
+				this.elementCount.increment();
+				return;
+			} finally {
+				for (int level = 0; level <= highestLocked; level++) {
+					preds[level].unlock();
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean remove(T element) {
+		Node<T>[] preds = newNodeArray();
+		Node<T>[] succs = newNodeArray();
+		Node<T> victim = null;
+		boolean isMarked = false;
+
+		while (true) {
+			int levelFound = this.find(element, preds, succs);
+
+			if (isMarked || (levelFound != -1 && canRemove(succs[levelFound], levelFound))) {
+				if (!isMarked) {
+					victim = succs[levelFound];
+					victim.lock();
+
+					if (victim.marked) {
+						// another thread is removing it
+						victim.unlock();
+						return false;
+					}
+
+					if (victim.count > 1) {
+						// only remove one of the duplicates
+						victim.count--;
+						victim.unlock();
+						this.elementCount.decrement();
+						return true;
+					}
+
+					// logically remove, then physically unlink
+					victim.marked = true;
+					isMarked = true;
+				}
+
+				int highestLocked = -1;
+
+				try {
+					boolean valid = true;
+
+					for (int level = 0; valid && level <= victim.topLevel; level++) {
+						Node<T> pred = preds[level];
+						pred.lock();
+						highestLocked = level;
+						valid = !pred.marked && pred.next(level) == victim;
+					}
+
+					if (!valid) continue;
+
+					for (int level = victim.topLevel; level >= 0; level--) {
+						preds[level].setNext(level, victim.next(level));
+					}
+
+					victim.unlock();
+					this.elementCount.decrement();
+					return true;
+				} finally {
+					for (int level = 0; level <= highestLocked; level++) {
+						preds[level].unlock();
+					}
+				}
+			} else {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(T element) {
+		Node<T> pred = this.head;
+
+		for (int level = this.highestLevel.get(); level >= 0; level--) {
+			Node<T> curr = pred.next(level);
+
+			while (curr != this.tail) {
+				int comparison = element.compareTo(curr.elem);
+
+				if (comparison == 0) {
+					return curr.fullyLinked && !curr.marked;
+				} else if (comparison < 0) {
+					break;
+				}
+
+				pred = curr;
+				curr = pred.next(level);
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public @Nullable T findMax() {
+		while (true) {
+			Node<T> node = this.head;
+
+			// go as far right as possible on each level
+			for (int level = this.highestLevel.get(); level >= 0; level--) {
+				Node<T> next;
+
+				while ((next = node.next(level)) != this.tail) {
+					node = next;
+				}
+			}
+
+			if (node == this.head) return null;
+			if (!node.marked) return node.elem;
+
+			// the last node is being removed. Try again.
+			Thread.onSpinWait();
+		}
+	}
+
+	@Override
+	public @Nullable T findMin() {
+		for (Node<T> node = this.head.next(0); node != this.tail; node = node.next(0)) {
+			if (!node.marked) return node.elem;
+		}
+
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return (int) this.elementCount.sum();
+	}
+
+	/**
+	 * Iterate over the elements of this skip list in ascending order. The iterator is weakly consistent.
+	 * @return an iterator over the elements in ascending order.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<>() {
+			private Node<T> node = this.advance(ConcurrentSkipList.this.head);
+			private int repeats;
+
+			private Node<T> advance(Node<T> from) {
+				Node<T> node = from.next(0);
+
+				while (node != ConcurrentSkipList.this.tail && (node.marked || !node.fullyLinked)) {
+					node = node.next(0);
+				}
+
+				this.repeats = node.count;
+				return node;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return this.node != ConcurrentSkipList.this.tail;
+			}
+
+			@Override
+			public T next() throws NoSuchElementException {
+				if (this.node == ConcurrentSkipList.this.tail) {
+					throw new NoSuchElementException("No more elements in skip list.");
+				}
+
+				T elem = this.node.elem;
+
+				if (--this.repeats <= 0) {
+					this.node = this.advance(this.node);
+				}
+
+				return elem;
+			}
+		};
+	}
+
+	/**
+	 * Find the predecessors and successors of the given element on each level.
+	 * @param element the element to search for.
+	 * @param preds filled with the last node before the element on each level.
+	 * @param succs filled with the first node not before the element on each level.
+	 * @return the highest level on which a node with the element was found, or -1 if it was not found.
+	 */
+	private int find(T element, Node<T>[] preds, Node<T>[] succs) {
+		int levelFound = -1;
+		Node<T> pred = this.head;
+
+		for (int level = this.highestLevel.get(); level >= 0; level--) {
+			Node<T> curr = pred.next(level);
+			int comparison = 1;
+
+			while (curr != this.tail && (comparison = element.compareTo(curr.elem)) > 0) {
+				pred = curr;
+				curr = pred.next(level);
+			}
+
+			if (levelFound == -1 && curr != this.tail && comparison == 0) {
+				levelFound = level;
+			}
+
+			preds[level] = pred;
+			succs[level] = curr;
+		}
+
+		return levelFound;
+	}
+
+	/**
+	 * Check that the skip list is consistent: each level is in ascending order without repeats, each node is linked on
+	 * every level up to its top level and no others, no level above the highest level in use has nodes, and the
+	 * element count is correct. This must not run alongside writers, and walks the whole list, so is meant for tests.
+	 * @throws IllegalStateException if the skip list is inconsistent.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		int highestLevel = this.highestLevel.get();
+
+		for (int level = highestLevel + 1; level <= MAX_LEVEL; level++) {
+			if (this.head.next(level) != this.tail) {
+				throw new IllegalStateException("Level " + level + " has nodes, but the highest level is " + highestLevel + ".");
+			}
+		}
+
+		for (int level = highestLevel; level >= 0; level--) {
+			Node<T> lower = this.head.next(0);
+
+			for (Node<T> node = this.head.next(level); node != this.tail; node = node.next(level)) {
+				if (node.marked || !node.fullyLinked) {
+					throw new IllegalStateException("Node " + node.elem + " on level " + level + " is not fully linked, or is removed.");
+				}
+
+				if (node.topLevel < level) {
+					throw new IllegalStateException("Node " + node.elem + " is linked on level " + level + ", above its top level " + node.topLevel + ".");
+				}
+
+				Node<T> next = node.next(level);
+
+				if (next != this.tail && node.elem.compareTo(next.elem) >= 0) {
+					throw new IllegalStateException("Level " + level + " is out of order at " + node.elem + ".");
+				}
+
+				// every node on this level is also on the level below it
+				while (lower != this.tail && lower != node) {
+					lower = lower.next(0);
+				}
+
+				if (lower == this.tail) {
+					throw new IllegalStateException("Node " + node.elem + " is on level " + level + ", but not level 0.");
+				}
+			}
+		}
+
+		long count = 0;
+		int linkedLevels = 0;
+		int nodeLevels = 0;
+
+		for (Node<T> node = this.head.next(0); node != this.tail; node = node.next(0)) {
+			count += node.count;
+			nodeLevels += node.topLevel + 1;
+		}
+
+		for (int level = 0; level <= highestLevel; level++) {
+			for (Node<T> node = this.head.next(level); node != this.tail; node = node.next(level)) {
+				linkedLevels++;
+			}
+		}
+
+		if (linkedLevels != nodeLevels) {
+			throw new IllegalStateException("Nodes have " + nodeLevels + " levels, but " + linkedLevels + " are linked.");
+		}
+
+		if (count != this.elementCount.sum()) {
+			throw new IllegalStateException("Skip list has " + count + " elements, but counts " + this.elementCount.sum() + ".");
+		}
+	}
+
+	/**
+	 * Whether the node found by a search can be removed: it is fully linked, not already being removed, and was found
+	 * at its top level (so the predecessors found cover every level of it).
+	 */
+	private static boolean canRemove(Node<?> node, int levelFound) {
+		return node.fullyLinked && node.topLevel == levelFound && !node.marked;
+	}
+
+	/**
+	 * Pick a random level for a new node, where each level is half as likely as the one below.
+	 */
+	private static int randomLevel() {
+		return Math.min(MAX_LEVEL, Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | (1 << MAX_LEVEL)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Comparable<T>> Node<T>[] newNodeArray() {
+		return (Node<T>[]) new Node[MAX_LEVEL + 1];
+	}
+
+	/**
+	 * A node in the skip list. The node is its own lock.
+	 */
+	private static final class Node<T> extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+
+		@SuppressWarnings("unchecked")
+		Node(@Nullable T elem, int topLevel) {
+			this.elem = elem;
+			this.topLevel = topLevel;
+			this.next = (Node<T>[]) new Node[topLevel + 1];
+		}
+
+		final T elem;
+		final int topLevel;
+		final Node<T>[] next;
+		/**
+		 * The number of copies of the element. Only changed while holding this node's lock.
+		 */
+		volatile int count = 1;
+		/**
+		 * Whether the node has been logically removed.
+		 */
+		volatile boolean marked;
+		/**
+		 * Whether the node has been linked into every one of its levels.
+		 */
+		volatile boolean fullyLinked;
+
+		@SuppressWarnings("unchecked")
+		Node<T> next(int level) {
+			return (Node<T>) NEXT.getAcquire(this.next, level);
+		}
+
+		void setNext(int level, Node<T> node) {
+			NEXT.setRelease(this.next, level, node);
+		}
+	}
+}
@@ -2,14 +2,17 @@ package valoeghese.datastructures;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
  * Dynamic Array data structure. Implements the java.util.List interface. Automatically resizes if it gets too large
- * or small.
+ * or small. <br>
+ * Elements are stored in a circular buffer starting at a head offset, so adding or removing at either end takes
+ * amortised O(1) time, and the list can be used as a deque or a queue. Removing from the middle moves whichever side
+ * of the gap has fewer elements. <br>
+ * How the array grows and shrinks is set by a {@link GrowthPolicy}. It never shrinks by itself below the size it was
+ * created with.
  */
 public final class DynamicArray<T> implements List<T> {
 	public DynamicArray(int initialSize) {
@@ -17,36 +20,80 @@ public final class DynamicArray<T> implements List<T> {
 	}
 
 	public DynamicArray(int minIndex, int initialSize) {
+		this(minIndex, initialSize, GrowthPolicy.DEFAULT);
+	}
+
+	public DynamicArray(int minIndex, int initialSize, GrowthPolicy growthPolicy) {
 		// we have to do Object unless we take a generator, as Java doesn't allow initialising generic type arrays.
 		this.array = new Object[initialSize];
 		this.min = minIndex;
+		this.minCapacity = initialSize;
+		this.growthPolicy = growthPolicy;
 	}
 
+	/**
+	 * The largest array the JVM can reliably allocate.
+	 */
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	private final int minCapacity;
+	private final GrowthPolicy growthPolicy;
 	private int min;
 	private Object[] array;
+	/**
+	 * The position in the array of the element at the minimum index. The rest follow it, wrapping around to the start.
+	 */
+	private int head;
 	private int size;
 
 	@Override
 	public void add(T element) {
-		if (this.size == this.array.length - 1) {
-			// double array size to fit more data
-			this.array = Arrays.copyOf(this.array, this.array.length * 2);
+		if (this.size == this.array.length) {
+			this.resize(this.grownCapacity(this.size + 1));
+		}
+
+		this.array[this.position(this.size++)] = element;
+	}
+
+	/**
+	 * Add all the given elements to the end of this list, growing the array at most once.
+	 * @param elements the elements to add.
+	 */
+	public void addAll(T[] elements) {
+		int required = this.size + elements.length;
+
+		if (required < 0) {
+			throw new OutOfMemoryError("Dynamic array cannot hold more than " + MAX_CAPACITY + " elements.");
+		}
+
+		if (required > this.array.length) {
+			this.resize(this.grownCapacity(required));
 		}
 
-		this.array[this.size++] = element;
+		// copy into the free space after the tail, wrapping around to the start of the array
+		int tail = this.position(this.size);
+		int beforeWrap = Math.min(elements.length, this.array.length - tail);
+		System.arraycopy(elements, 0, this.array, tail, beforeWrap);
+		System.arraycopy(elements, beforeWrap, this.array, 0, elements.length - beforeWrap);
+		this.size = required;
 	}
 
+	/**
+	 * Prepends the given element to this list. The minimum index decreases, so the elements already in the list keep
+	 * their indices.
+	 * @param element the element to prepend to the list.
+	 */
 	@Override
 	public void prepend(T element) {
-		if (this.size == this.array.length - 1) {
-			// double array size to fit more data
-			this.array = Arrays.copyOf(this.array, this.array.length * 2);
+		if (this.size == this.array.length) {
+			this.resize(this.grownCapacity(this.size + 1));
 		}
 
-		// shift list over by 1
-		System.arraycopy(this.array, 0, this.array, 1, this.size);
-		this.array[0] = element;
-		this.min++;
+		// step the head back, wrapping around to the end of the array
+		this.head = this.head == 0 ? this.array.length - 1 : this.head - 1;
+		this.array[this.head] = element;
+		this.size++;
+		this.min--;
 	}
 
 	@Override
@@ -54,14 +101,24 @@ public final class DynamicArray<T> implements List<T> {
 	public T remove(int index, boolean shiftForwards) throws IndexOutOfBoundsException {
 		this.checkIndex(index);
 
-		index -= this.min;
-		T result = (T) this.array[index];
-		System.arraycopy(this.array, index + 1, this.array, index, this.size - index - 1);
+		int offset = index - this.min;
+		T result = (T) this.array[this.position(offset)];
+
+		// the direction to shift only decides which indices change. Move whichever side of the gap is shorter.
+		if (offset < this.size - offset - 1) {
+			this.shiftUp(offset);
+			this.array[this.head] = null;
+			this.head = this.position(1);
+		} else {
+			this.shiftDown(offset);
+			this.array[this.position(this.size - 1)] = null;
+		}
+
 		this.size--;
 
-		// adjust array size if array size has quartered
-		if (this.size <= this.array.length / 4) {
-			this.array = Arrays.copyOf(this.array, this.array.length / 4);
+		// shrink to leave the list half full, so it is as far from shrinking again as from growing
+		if (this.size < this.array.length * this.growthPolicy.shrinkThreshold() && this.array.length > this.minCapacity) {
+			this.resize(Math.max(this.size * 2, this.minCapacity));
 		}
 
 		if (shiftForwards) {
@@ -71,21 +128,135 @@ public final class DynamicArray<T> implements List<T> {
 		return result;
 	}
 
+	/**
+	 * Move the elements before the given offset up by one place, over the element at it.
+	 * @param offset the offset from the head of the element to overwrite.
+	 */
+	private void shiftUp(int offset) {
+		int position = this.position(offset);
+
+		if (position >= offset) {
+			// no wrap between the head and the position
+			System.arraycopy(this.array, this.head, this.array, this.head + 1, offset);
+		} else {
+			// the elements at the start of the array, then the one wrapping from the end, then the rest at the end
+			System.arraycopy(this.array, 0, this.array, 1, position);
+			this.array[0] = this.array[this.array.length - 1];
+			System.arraycopy(this.array, this.head, this.array, this.head + 1, this.array.length - 1 - this.head);
+		}
+	}
+
+	/**
+	 * Move the elements after the given offset down by one place, over the element at it.
+	 * @param offset the offset from the head of the element to overwrite.
+	 */
+	private void shiftDown(int offset) {
+		int position = this.position(offset);
+		int count = this.size - offset - 1;
+
+		if (position + count < this.array.length) {
+			// no wrap between the position and the tail
+			System.arraycopy(this.array, position + 1, this.array, position, count);
+		} else {
+			// the elements at the end of the array, then the one wrapping from the start, then the rest at the start
+			System.arraycopy(this.array, position + 1, this.array, position, this.array.length - 1 - position);
+			this.array[this.array.length - 1] = this.array[0];
+			System.arraycopy(this.array, 1, this.array, 0, count - (this.array.length - position));
+		}
+	}
+
+	/**
+	 * Get the number of elements this list can hold before its array must grow.
+	 * @return the capacity of the array.
+	 */
+	public int capacity() {
+		return this.array.length;
+	}
+
+	/**
+	 * Grow the array, if needed, so it can hold at least the given number of elements without growing again.
+	 * @param capacity the number of elements to make room for.
+	 */
+	public void ensureCapacity(int capacity) {
+		if (capacity > this.array.length) {
+			this.resize(Math.min(capacity, MAX_CAPACITY));
+		}
+	}
+
+	/**
+	 * Shrink the array to exactly fit the elements in this list. It will still not shrink by itself below the size it
+	 * was created with.
+	 */
+	public void trimToSize() {
+		if (this.size < this.array.length) {
+			this.resize(this.size);
+		}
+	}
+
+	/**
+	 * Get the growth policy deciding how the array of this list is resized.
+	 * @return the growth policy.
+	 */
+	public GrowthPolicy growthPolicy() {
+		return this.growthPolicy;
+	}
+
+	/**
+	 * Calculate the capacity to grow to, by the growth policy.
+	 * @param required the number of elements the array must hold.
+	 * @return the new capacity.
+	 * @throws OutOfMemoryError if the required capacity is larger than an array can be.
+	 */
+	private int grownCapacity(int required) throws OutOfMemoryError {
+		if (required > MAX_CAPACITY) {
+			throw new OutOfMemoryError("Dynamic array cannot hold more than " + MAX_CAPACITY + " elements.");
+		}
+
+		long step = (long) Math.ceil(this.array.length * (this.growthPolicy.factor() - 1));
+		step = Math.max(1, Math.min(step, this.growthPolicy.maxStep()));
+		return (int) Math.min(Math.max(this.array.length + step, required), MAX_CAPACITY);
+	}
+
+	/**
+	 * Copy the elements into a new array of the given capacity, with the head at the start.
+	 * @param capacity the new capacity, at least the size.
+	 */
+	private void resize(int capacity) {
+		Object[] resized = new Object[capacity];
+		int beforeWrap = Math.min(this.size, this.array.length - this.head);
+		System.arraycopy(this.array, this.head, resized, 0, beforeWrap);
+		System.arraycopy(this.array, 0, resized, beforeWrap, this.size - beforeWrap);
+		this.array = resized;
+		this.head = 0;
+	}
+
+	/**
+	 * Find where an element is stored in the array.
+	 * @param offset the offset of the element from the minimum index.
+	 * @return its position in the array.
+	 */
+	private int position(int offset) {
+		int position = this.head + offset;
+		return position >= this.array.length ? position - this.array.length : position;
+	}
+
 	@Override
 	public void swap(int index, int otherIndex) throws IndexOutOfBoundsException {
 		this.checkIndex(index);
 		this.checkIndex(otherIndex);
 
-		Object temp = this.array[index - this.min];
-		this.array[index - this.min] = this.array[otherIndex - this.min];
-		this.array[otherIndex - this.min] = temp;
+		int position = this.position(index - this.min);
+		int otherPosition = this.position(otherIndex - this.min);
+		Object temp = this.array[position];
+		this.array[position] = this.array[otherPosition];
+		this.array[otherPosition] = temp;
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public T get(int index) throws IndexOutOfBoundsException {
 		this.checkIndex(index);
-		return (T) this.array[index - this.min];
+		return (T) this.array[this.position(index - this.min)];
 	}
 
 	@Override
@@ -96,7 +267,7 @@ public final class DynamicArray<T> implements List<T> {
 			n = -n - 1;
 
 			for (int i = this.size - 1; i >= 0; i--) {
-				if (Objects.equals(this.array[i], element)) {
+				if (Objects.equals(this.array[this.position(i)], element)) {
 					if (n == 0) {
 						return i + this.min;
 					}
@@ -107,7 +278,7 @@ public final class DynamicArray<T> implements List<T> {
 		} else {
 			// search from first index
 			for (int i = 0; i < this.size; i++) {
-				if (Objects.equals(this.array[i], element)) {
+				if (Objects.equals(this.array[this.position(i)], element)) {
 					if (n == 0) {
 						return i + this.min;
 					}
@@ -151,6 +322,36 @@ public final class DynamicArray<T> implements List<T> {
 		}
 	}
 
+	/**
+	 * How a {@link DynamicArray} resizes its array.
+	 * @param factor the factor to multiply the capacity by when the array is full. Must be greater than 1.
+	 * @param maxStep the most the capacity may grow by at once, so large arrays grow linearly rather than
+	 *                geometrically. Must be positive.
+	 * @param shrinkThreshold the fraction of the capacity below which the array shrinks, to twice the size of the list.
+	 *                        Must be at least 0 and less than 0.5, so a shrunk array is not full, and is not
+	 *                        immediately below the threshold again. 0 to never shrink.
+	 */
+	public record GrowthPolicy(double factor, int maxStep, double shrinkThreshold) {
+		public GrowthPolicy {
+			if (!(factor > 1)) {
+				throw new IllegalArgumentException("Growth factor must be greater than 1, was " + factor);
+			}
+
+			if (maxStep < 1) {
+				throw new IllegalArgumentException("Maximum growth step must be positive, was " + maxStep);
+			}
+
+			if (!(shrinkThreshold >= 0 && shrinkThreshold < 0.5)) {
+				throw new IllegalArgumentException("Shrink threshold must be at least 0 and less than 0.5, was " + shrinkThreshold);
+			}
+		}
+
+		/**
+		 * Double the capacity when full, and shrink to twice the size once the list is less than a quarter full.
+		 */
+		public static final GrowthPolicy DEFAULT = new GrowthPolicy(2, Integer.MAX_VALUE, 0.25);
+	}
+
 	private class DynamicArrayIterator implements SkippingIterator<T> {
 		private int arrayIndex = 0;
 
@@ -161,7 +362,7 @@ public final class DynamicArray<T> implements List<T> {
 
 		@Override
 		public void skip(int amount) {
-			this.
+			this.arrayIndex += amount;
 		}
 
 		@Override
@@ -171,7 +372,7 @@ public final class DynamicArray<T> implements List<T> {
 				throw new NoSuchElementException("No element at index " + (this.arrayIndex + DynamicArray.this.minIndex()));
 			}
 
-			return (T) DynamicArray.this.array[this.arrayIndex++];
+			return (T) DynamicArray.this.array[DynamicArray.this.position(this.arrayIndex++)];
 		}
 	}
 }
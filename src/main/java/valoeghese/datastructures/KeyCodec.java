@@ -0,0 +1,193 @@
+package valoeghese.datastructures;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys to and from a fixed number of bytes, for storing in on-disk structures such as
+ * {@link MappedBPlusTree}. The codec also defines the order of the keys, and can compare a key against an encoded key
+ * in place, without decoding it.
+ * @param <T> the type of key.
+ */
+public interface KeyCodec<T> {
+	/**
+	 * Get the number of bytes every encoded key takes up.
+	 * @return the size of an encoded key, in bytes.
+	 */
+	int size();
+
+	/**
+	 * Write the given key at the given position in the buffer.
+	 * @param key the key to encode.
+	 * @param buffer the buffer to write to.
+	 * @param offset the position in the buffer to write at.
+	 * @throws IllegalArgumentException if the key cannot be encoded in {@link #size()} bytes.
+	 */
+	void encode(T key, ByteBuffer buffer, int offset) throws IllegalArgumentException;
+
+	/**
+	 * Read the key at the given position in the buffer.
+	 * @param buffer the buffer to read from.
+	 * @param offset the position in the buffer to read at.
+	 * @return the decoded key.
+	 */
+	T decode(ByteBuffer buffer, int offset);
+
+	/**
+	 * Compare a key against the encoded key at the given position in the buffer, without decoding it.
+	 * @param key the key to compare.
+	 * @param buffer the buffer containing the encoded key.
+	 * @param offset the position of the encoded key in the buffer.
+	 * @return a negative number, zero or a positive number if the key is less than, equal to or greater than the
+	 * encoded key.
+	 */
+	int compare(T key, ByteBuffer buffer, int offset);
+
+	/**
+	 * Codec for {@link Integer} keys, in natural order.
+	 */
+	KeyCodec<Integer> INTEGER = new KeyCodec<>() {
+		@Override
+		public int size() {
+			return Integer.BYTES;
+		}
+
+		@Override
+		public void encode(Integer key, ByteBuffer buffer, int offset) {
+			buffer.putInt(offset, key);
+		}
+
+		@Override
+		public Integer decode(ByteBuffer buffer, int offset) {
+			return buffer.getInt(offset);
+		}
+
+		@Override
+		public int compare(Integer key, ByteBuffer buffer, int offset) {
+			return Integer.compare(key, buffer.getInt(offset));
+		}
+	};
+
+	/**
+	 * Codec for {@link Long} keys, in natural order.
+	 */
+	KeyCodec<Long> LONG = new KeyCodec<>() {
+		@Override
+		public int size() {
+			return Long.BYTES;
+		}
+
+		@Override
+		public void encode(Long key, ByteBuffer buffer, int offset) {
+			buffer.putLong(offset, key);
+		}
+
+		@Override
+		public Long decode(ByteBuffer buffer, int offset) {
+			return buffer.getLong(offset);
+		}
+
+		@Override
+		public int compare(Long key, ByteBuffer buffer, int offset) {
+			return Long.compare(key, buffer.getLong(offset));
+		}
+	};
+
+	/**
+	 * Codec for {@link Double} keys, in the order of {@link Double#compare}.
+	 */
+	KeyCodec<Double> DOUBLE = new KeyCodec<>() {
+		@Override
+		public int size() {
+			return Double.BYTES;
+		}
+
+		@Override
+		public void encode(Double key, ByteBuffer buffer, int offset) {
+			buffer.putDouble(offset, key);
+		}
+
+		@Override
+		public Double decode(ByteBuffer buffer, int offset) {
+			return buffer.getDouble(offset);
+		}
+
+		@Override
+		public int compare(Double key, ByteBuffer buffer, int offset) {
+			return Double.compare(key, buffer.getDouble(offset));
+		}
+	};
+
+	/**
+	 * Create a codec for {@link String} keys, stored as UTF-8 with a two byte length. Strings are ordered by their
+	 * UTF-8 bytes, which is code point order. This differs from {@link String#compareTo} only for characters outside
+	 * the basic multilingual plane.
+	 * @param maxBytes the maximum length of an encoded string, in bytes.
+	 * @return the codec.
+	 */
+	static KeyCodec<String> utf8(int maxBytes) {
+		if (maxBytes < 0 || maxBytes > 0xFFFF) {
+			throw new IllegalArgumentException("Maximum string length must be between 0 and 65535 bytes, was " + maxBytes);
+		}
+
+		return new KeyCodec<>() {
+			@Override
+			public int size() {
+				return 2 + maxBytes;
+			}
+
+			@Override
+			public void encode(String key, ByteBuffer buffer, int offset) {
+				byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+
+				if (bytes.length > maxBytes) {
+					throw new IllegalArgumentException("String is " + bytes.length + " bytes, longer than the maximum of " + maxBytes);
+				}
+
+				buffer.putShort(offset, (short) bytes.length);
+				buffer.put(offset + 2, bytes);
+			}
+
+			@Override
+			public String decode(ByteBuffer buffer, int offset) {
+				byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+				buffer.get(offset + 2, bytes);
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			@Override
+			public int compare(String key, ByteBuffer buffer, int offset) {
+				int length = buffer.getShort(offset) & 0xFFFF;
+				int position = offset + 2;
+				int end = position + length;
+
+				// encode the key to UTF-8 as we go, comparing each byte
+				for (int i = 0; i < key.length(); i++) {
+					int codePoint = key.codePointAt(i);
+					if (Character.isSupplementaryCodePoint(codePoint)) i++;
+
+					int byteCount = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+
+					for (int b = byteCount - 1; b >= 0; b--) {
+						int keyByte;
+
+						if (byteCount == 1) {
+							keyByte = codePoint;
+						} else if (b == byteCount - 1) {
+							// leading byte: a marker of byteCount ones, then the top bits
+							keyByte = ((0xFF00 >> byteCount) & 0xFF) | (codePoint >> (6 * b));
+						} else {
+							keyByte = 0x80 | ((codePoint >> (6 * b)) & 0x3F);
+						}
+
+						if (position == end) return 1; // key is longer
+						int comparison = Integer.compare(keyByte & 0xFF, buffer.get(position++) & 0xFF);
+						if (comparison != 0) return comparison;
+					}
+				}
+
+				return position == end ? 0 : -1; // key is shorter if bytes remain
+			}
+		};
+	}
+}
@@ -0,0 +1,77 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+
+/**
+ * Comparison of elements for the search trees, with fast paths for common key types. <br>
+ * A tree without a comparator calls {@link Comparable#compareTo(Object)} on its elements. When trees of several key
+ * types share the same code, that call site sees many classes, and the JIT stops inlining it. So each tree records
+ * the type of its keys when the first is added, and comparisons of {@link Integer}, {@link Long} and {@link String}
+ * keys are made through casts to those final classes, which are always inlined. Other keys, and trees with an explicit
+ * comparator, fall back to a virtual call.
+ */
+final class KeyOrder {
+	private KeyOrder() {
+	}
+
+	// Key types //
+
+	/**
+	 * Keys of a type without a fast path, or not yet known, compared by natural ordering.
+	 */
+	static final byte NATURAL = 0;
+	static final byte INTEGER = 1;
+	static final byte LONG = 2;
+	static final byte STRING = 3;
+	/**
+	 * Keys compared by an explicit comparator.
+	 */
+	static final byte COMPARATOR = 4;
+
+	/**
+	 * Choose how a tree compares its keys.
+	 * @param comparator the comparator given to the tree, or null for natural ordering.
+	 * @param key a key stored in the tree, or null if none are known yet.
+	 * @return the key type.
+	 */
+	static byte keyType(@Nullable Comparator<?> comparator, @Nullable Object key) {
+		if (comparator != null) return COMPARATOR;
+		if (key instanceof Integer) return INTEGER;
+		if (key instanceof Long) return LONG;
+		if (key instanceof String) return STRING;
+		return NATURAL;
+	}
+
+	/**
+	 * Compare two keys.
+	 * @param keyType the key type, from {@link #keyType(Comparator, Object)}.
+	 * @param comparator the comparator, if the key type is {@link #COMPARATOR}.
+	 * @param a the first key.
+	 * @param b the second key.
+	 * @return a negative number, zero, or a positive number as the first key is less than, equal to, or greater than
+	 * the second.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static int compare(byte keyType, @Nullable Comparator comparator, Object a, Object b) {
+		// numbers are compared without branches. The search branches on the result anyway, and inlining the branches of
+		// Integer.compare and Long.compare into it as well made searches of random keys slower, not faster.
+		switch (keyType) {
+		case INTEGER:
+			int x = (Integer) a;
+			int y = (Integer) b;
+			return (x > y ? 1 : 0) - (x < y ? 1 : 0);
+		case LONG:
+			long lx = (Long) a;
+			long ly = (Long) b;
+			return (lx > ly ? 1 : 0) - (lx < ly ? 1 : 0);
+		case STRING:
+			return ((String) a).compareTo((String) b);
+		case COMPARATOR:
+			return comparator.compare(a, b);
+		default:
+			return ((Comparable) a).compareTo(b);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package valoeghese.datastructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An AVL self-balancing binary search tree of {@code long} keys. Nodes are stored in parallel primitive arrays, so
+ * there are no per-node objects and keys are never boxed.
+ */
+public final class LongAVLTree extends ArrayAVLTree {
+	public LongAVLTree() {
+		this(16);
+	}
+
+	public LongAVLTree(int initialCapacity) {
+		super(initialCapacity);
+		this.keys = new long[this.leftChild.length];
+	}
+
+	private long[] keys;
+
+	@Override
+	protected void grow(int capacity) {
+		super.grow(capacity);
+		this.keys = Arrays.copyOf(this.keys, capacity);
+	}
+
+	@Override
+	int compareKeys(int first, int second) {
+		return Long.compare(this.keys[first], this.keys[second]);
+	}
+
+	/**
+	 * Add the given key to the tree.
+	 * @param key the key to add.
+	 */
+	public void add(long key) {
+		int parent = NIL;
+		int child = this.root;
+		boolean left = false;
+
+		// find the location to insert
+		while (child != NIL) {
+			parent = child;
+			// move left if our key is less, right otherwise
+			left = key < this.keys[child];
+			child = left ? this.leftChild[child] : this.rightChild[child];
+		}
+
+		int node = this.newNode();
+		this.keys[node] = key;
+		this.attach(parent, node, left);
+	}
+
+	/**
+	 * Checks whether the tree contains the given key.
+	 * @param key the key to look for in the tree.
+	 * @return whether the given key was found in the tree.
+	 */
+	public boolean contains(long key) {
+		int node = this.root;
+
+		// binary search for the key
+		while (node != NIL) {
+			long nodeKey = this.keys[node];
+
+			if (key == nodeKey) {
+				return true;
+			}
+
+			node = key < nodeKey ? this.leftChild[node] : this.rightChild[node];
+		}
+
+		return false;
+	}
+
+	/**
+	 * Finds the minimum key in the tree.
+	 * @return the minimum key in the tree.
+	 * @throws NoSuchElementException if the tree is empty.
+	 */
+	public long findMinLong() throws NoSuchElementException {
+		if (this.root == NIL) throw new NoSuchElementException("Cannot find minimum of an empty tree.");
+		return this.keys[this.findMinNode()];
+	}
+
+	/**
+	 * Finds the maximum key in the tree.
+	 * @return the maximum key in the tree.
+	 * @throws NoSuchElementException if the tree is empty.
+	 */
+	public long findMaxLong() throws NoSuchElementException {
+		if (this.root == NIL) throw new NoSuchElementException("Cannot find maximum of an empty tree.");
+		return this.keys[this.findMaxNode()];
+	}
+}
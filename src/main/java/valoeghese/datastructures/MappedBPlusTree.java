@@ -0,0 +1,802 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A B+ tree stored in a file, which is accessed through memory mapped pages. Keys are converted to bytes with a
+ * {@link KeyCodec}, and compared in place in the mapped pages without being decoded. The leaves hold every key, along
+ * with how many times it has been added, and are linked together for iteration. The branches only hold copies of keys
+ * for routing searches. <br>
+ * The first page of the file is a header recording the root page, so opening an existing tree does not read the rest
+ * of the file. Pages are mapped on demand, and the most recently used are kept in a cache of configurable size. <br>
+ * Removing keys does not merge pages, so the file does not shrink when keys are removed. <br>
+ * This tree is not thread safe. Changes are written to the file by the operating system, and can be forced to disk
+ * with {@link #flush()}.
+ * @param <T> the type of key stored in the tree.
+ */
+public final class MappedBPlusTree<T> implements Tree<T>, Closeable {
+	private MappedBPlusTree(FileChannel channel, KeyCodec<T> codec, int pageSize, int cachePages) throws IOException {
+		this.channel = channel;
+		this.codec = codec;
+		this.keySize = codec.size();
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, MappedByteBuffer> eldest) {
+				if (this.size() > cachePages) {
+					Cleaner.free(eldest.getValue());
+					return true;
+				}
+
+				return false;
+			}
+		};
+
+		boolean create = channel.size() == 0;
+
+		if (!create) {
+			// the page size is needed to map the header
+			ByteBuffer start = ByteBuffer.allocate(PAGE_SIZE + 4);
+			channel.read(start, 0);
+			pageSize = start.getInt(PAGE_SIZE);
+
+			if (start.getInt(MAGIC) != MAGIC_NUMBER) {
+				throw new IOException("File is not a B+ tree.");
+			}
+		}
+
+		this.pageSize = pageSize;
+		this.leafCapacity = (pageSize - LEAF_HEADER) / (this.keySize + 4);
+		this.branchCapacity = (pageSize - BRANCH_HEADER - 4) / (this.keySize + 4);
+
+		if (this.leafCapacity < 3 || this.branchCapacity < 3) {
+			throw new IllegalArgumentException("Page size of " + pageSize + " bytes is too small for keys of " + this.keySize + " bytes.");
+		}
+
+		this.scratch = new byte[pageSize];
+		this.encodedKey = ByteBuffer.allocate(this.keySize);
+		this.separator = new byte[this.keySize];
+		this.splitKeys = new byte[(this.branchCapacity + 1) * this.keySize];
+		this.splitChildren = new int[this.branchCapacity + 2];
+		this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, pageSize);
+
+		if (create) {
+			this.header.putInt(MAGIC, MAGIC_NUMBER);
+			this.header.putInt(VERSION, FORMAT_VERSION);
+			this.header.putInt(PAGE_SIZE, pageSize);
+			this.header.putInt(KEY_SIZE, this.keySize);
+			this.pageCount = 1;
+			this.root = this.allocate(LEAF);
+			this.height = 1;
+			this.writeHeader();
+		} else {
+			if (this.header.getInt(VERSION) != FORMAT_VERSION) {
+				throw new IOException("Unsupported B+ tree format version " + this.header.getInt(VERSION));
+			}
+
+			if (this.header.getInt(KEY_SIZE) != this.keySize) {
+				throw new IOException("Tree stores keys of " + this.header.getInt(KEY_SIZE) + " bytes, but the codec uses " + this.keySize + " bytes.");
+			}
+
+			this.root = this.header.getInt(ROOT);
+			this.pageCount = this.header.getInt(PAGE_COUNT);
+			this.height = this.header.getInt(HEIGHT);
+			this.elementCount = this.header.getInt(ELEMENT_COUNT);
+		}
+	}
+
+	// Header layout //
+
+	private static final int MAGIC = 0;
+	private static final int VERSION = 4;
+	private static final int PAGE_SIZE = 8;
+	private static final int KEY_SIZE = 12;
+	private static final int ROOT = 16;
+	private static final int PAGE_COUNT = 20;
+	private static final int HEIGHT = 24;
+	private static final int ELEMENT_COUNT = 28;
+
+	private static final int MAGIC_NUMBER = 0x42505452; // "BPTR"
+	private static final int FORMAT_VERSION = 1;
+
+	// Page layout //
+
+	/**
+	 * Type of page. Followed by the number of keys in the page.
+	 */
+	private static final int TYPE = 0;
+	private static final int COUNT = 4;
+
+	/**
+	 * Leaves link to the leaves either side of them. Each entry is a key followed by how many times it was added.
+	 */
+	private static final int NEXT = 8;
+	private static final int PREVIOUS = 12;
+	private static final int LEAF_HEADER = 16;
+
+	/**
+	 * Branches hold one more child page than they do keys. The children come first, followed by the keys.
+	 */
+	private static final int BRANCH_HEADER = 8;
+
+	private static final byte LEAF = 1;
+	private static final byte BRANCH = 2;
+
+	/**
+	 * Page number representing the absence of a page. This is the header, which is never a node.
+	 */
+	private static final int NO_PAGE = 0;
+
+	/**
+	 * Maximum height of a tree. Every branch has at least two children, so no tree with under 2^31 pages gets this tall.
+	 */
+	private static final int MAX_HEIGHT = 32;
+
+	/**
+	 * Default size of a page, in bytes. This matches the page size of most operating systems.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 4096;
+
+	/**
+	 * Default number of pages to keep mapped.
+	 */
+	public static final int DEFAULT_CACHE_PAGES = 1024;
+
+	/**
+	 * Minimum number of pages to keep mapped. No operation uses more than five pages at once, so none of them are
+	 * unmapped while in use.
+	 */
+	public static final int MIN_CACHE_PAGES = 8;
+
+	// Fields //
+
+	private final FileChannel channel;
+	private final KeyCodec<T> codec;
+	private final int keySize;
+	private final int pageSize;
+	private final int leafCapacity;
+	private final int branchCapacity;
+	private final MappedByteBuffer header;
+	private final LinkedHashMap<Integer, MappedByteBuffer> cache;
+
+	private int root;
+	private int height;
+	private int pageCount;
+	private int elementCount;
+	private boolean closed;
+
+	// Buffers reused between operations, so changing the tree does not allocate //
+
+	private final int[] pathPages = new int[MAX_HEIGHT];
+	private final int[] pathIndices = new int[MAX_HEIGHT];
+	private final byte[] scratch;
+	/**
+	 * The key being added, encoded before the tree is changed, so a key the codec rejects leaves the tree as it was.
+	 */
+	private final ByteBuffer encodedKey;
+	private final byte[] separator;
+	private final byte[] splitKeys;
+	private final int[] splitChildren;
+
+	// Opening //
+
+	/**
+	 * Open the tree stored in the given file, creating the file with the default page size if it does not exist.
+	 * @param file the file to store the tree in.
+	 * @param codec the codec for the keys. This must be the same codec the tree was created with.
+	 * @param <T> the type of key stored in the tree.
+	 * @return the tree.
+	 * @throws IOException if the file cannot be opened, or does not contain a tree with keys of the codec's size.
+	 */
+	public static <T> MappedBPlusTree<T> open(Path file, KeyCodec<T> codec) throws IOException {
+		return open(file, codec, DEFAULT_PAGE_SIZE, DEFAULT_CACHE_PAGES);
+	}
+
+	/**
+	 * Open the tree stored in the given file, creating the file if it does not exist.
+	 * @param file the file to store the tree in.
+	 * @param codec the codec for the keys. This must be the same codec the tree was created with.
+	 * @param pageSize the size of each page, in bytes, if a new tree is created. Existing trees keep their page size.
+	 * @param cachePages the number of pages to keep mapped, at least {@link #MIN_CACHE_PAGES}.
+	 * @param <T> the type of key stored in the tree.
+	 * @return the tree.
+	 * @throws IOException if the file cannot be opened, or does not contain a tree with keys of the codec's size.
+	 */
+	public static <T> MappedBPlusTree<T> open(Path file, KeyCodec<T> codec, int pageSize, int cachePages) throws IOException {
+		if (cachePages < MIN_CACHE_PAGES) {
+			throw new IllegalArgumentException("Cache must hold at least " + MIN_CACHE_PAGES + " pages, was " + cachePages);
+		}
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+
+		try {
+			return new MappedBPlusTree<>(channel, codec, pageSize, cachePages);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// Tree Methods //
+
+	@Override
+	public void add(T elem) {
+		this.checkOpen();
+		int leaf = this.findLeaf(elem);
+		ByteBuffer page = this.page(leaf);
+		int index = this.searchLeaf(page, elem);
+		this.codec.encode(elem, this.encodedKey, 0);
+
+		if (index >= 0) {
+			int offset = this.entry(index) + this.keySize;
+			page.putInt(offset, page.getInt(offset) + 1);
+		} else {
+			index = -index - 1;
+			int count = page.getInt(COUNT);
+
+			if (count < this.leafCapacity) {
+				this.insertEntry(page, index, count);
+			} else {
+				this.splitLeaf(leaf, page, index);
+			}
+		}
+
+		this.elementCount++;
+		this.writeHeader();
+	}
+
+	@Override
+	public boolean remove(T element) {
+		this.checkOpen();
+		ByteBuffer page = this.page(this.findLeaf(element));
+		int index = this.searchLeaf(page, element);
+
+		if (index < 0) {
+			return false;
+		}
+
+		int offset = this.entry(index);
+		int occurrences = page.getInt(offset + this.keySize);
+
+		if (occurrences > 1) {
+			page.putInt(offset + this.keySize, occurrences - 1);
+		} else {
+			int count = page.getInt(COUNT);
+			this.move(page, this.entry(index + 1), offset, (count - index - 1) * (this.keySize + 4));
+			page.putInt(COUNT, count - 1);
+		}
+
+		this.elementCount--;
+		this.writeHeader();
+		return true;
+	}
+
+	@Override
+	public boolean contains(T element) {
+		this.checkOpen();
+		return this.searchLeaf(this.page(this.findLeaf(element)), element) >= 0;
+	}
+
+	@Override
+	public @Nullable T findMax() {
+		this.checkOpen();
+		int leaf = this.root;
+
+		for (int level = 1; level < this.height; level++) {
+			ByteBuffer page = this.page(leaf);
+			leaf = page.getInt(this.child(page.getInt(COUNT)));
+		}
+
+		// leaves emptied by removal stay in the tree
+		while (leaf != NO_PAGE) {
+			ByteBuffer page = this.page(leaf);
+			int count = page.getInt(COUNT);
+			if (count > 0) return this.codec.decode(page, this.entry(count - 1));
+			leaf = page.getInt(PREVIOUS);
+		}
+
+		return null;
+	}
+
+	@Override
+	public @Nullable T findMin() {
+		this.checkOpen();
+		int leaf = this.firstLeaf();
+		return leaf == NO_PAGE ? null : this.codec.decode(this.page(leaf), this.entry(0));
+	}
+
+	@Override
+	public int size() {
+		return this.elementCount;
+	}
+
+	/**
+	 * Iterate over the keys in the tree in ascending order, reading them from the leaves in turn. Each key is returned
+	 * as many times as it was added. The tree must not be changed during iteration.
+	 * @return an iterator over the keys in ascending order.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		this.checkOpen();
+
+		return new Iterator<>() {
+			private int leaf = MappedBPlusTree.this.firstLeaf();
+			private int index;
+			private int returned;
+
+			@Override
+			public boolean hasNext() {
+				return this.leaf != NO_PAGE;
+			}
+
+			@Override
+			public T next() {
+				if (this.leaf == NO_PAGE) throw new NoSuchElementException();
+				MappedBPlusTree.this.checkOpen();
+
+				ByteBuffer page = MappedBPlusTree.this.page(this.leaf);
+				int offset = MappedBPlusTree.this.entry(this.index);
+				T result = MappedBPlusTree.this.codec.decode(page, offset);
+
+				if (++this.returned == page.getInt(offset + MappedBPlusTree.this.keySize)) {
+					this.returned = 0;
+
+					if (++this.index == page.getInt(COUNT)) {
+						this.index = 0;
+						this.leaf = MappedBPlusTree.this.nextNonEmpty(page.getInt(NEXT));
+					}
+				}
+
+				return result;
+			}
+		};
+	}
+
+	// File Methods //
+
+	/**
+	 * Force all changes to the tree to be written to the file.
+	 */
+	public void flush() {
+		this.checkOpen();
+		this.header.force();
+
+		for (MappedByteBuffer page : this.cache.values()) {
+			page.force();
+		}
+	}
+
+	/**
+	 * Write all changes to the file and close it. Using the tree afterwards throws an {@link IllegalStateException}.
+	 * @throws IOException if the file could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) return;
+		this.flush();
+		this.closed = true;
+
+		for (MappedByteBuffer page : this.cache.values()) {
+			Cleaner.free(page);
+		}
+
+		Cleaner.free(this.header);
+		this.cache.clear();
+		this.channel.close();
+	}
+
+	/**
+	 * Get the number of pages in the file, including the header.
+	 * @return the number of pages in the file.
+	 */
+	public int pageCount() {
+		return this.pageCount;
+	}
+
+	/**
+	 * Get the size of each page in the file.
+	 * @return the page size, in bytes.
+	 */
+	public int pageSize() {
+		return this.pageSize;
+	}
+
+	// Searching //
+
+	/**
+	 * Find the leaf which would contain the given key, recording the path to it.
+	 * @param key the key to search for.
+	 * @return the page number of the leaf.
+	 */
+	private int findLeaf(T key) {
+		int node = this.root;
+
+		for (int level = 0; level < this.height - 1; level++) {
+			ByteBuffer page = this.page(node);
+
+			// find the first separator greater than the key
+			int low = 0;
+			int high = page.getInt(COUNT);
+
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+
+				if (this.codec.compare(key, page, this.branchKey(mid)) >= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			this.pathPages[level] = node;
+			this.pathIndices[level] = low;
+			node = page.getInt(this.child(low));
+		}
+
+		return node;
+	}
+
+	/**
+	 * Binary search for the given key in a leaf.
+	 * @param page the leaf to search.
+	 * @param key the key to search for.
+	 * @return the index of the key, or {@code -(insertion point) - 1} if it is absent.
+	 */
+	private int searchLeaf(ByteBuffer page, T key) {
+		int low = 0;
+		int high = page.getInt(COUNT) - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = this.codec.compare(key, page, this.entry(mid));
+
+			if (comparison > 0) {
+				low = mid + 1;
+			} else if (comparison < 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+
+		return -low - 1;
+	}
+
+	/**
+	 * Find the leftmost leaf which contains a key.
+	 * @return the page number of the leaf, or {@link #NO_PAGE} if the tree is empty.
+	 */
+	private int firstLeaf() {
+		int leaf = this.root;
+
+		for (int level = 1; level < this.height; level++) {
+			leaf = this.page(leaf).getInt(this.child(0));
+		}
+
+		return this.nextNonEmpty(leaf);
+	}
+
+	/**
+	 * Follow the links between leaves from the given leaf until a leaf containing a key is found.
+	 * @param leaf the first leaf to check.
+	 * @return the page number of the leaf, or {@link #NO_PAGE} if there is none.
+	 */
+	private int nextNonEmpty(int leaf) {
+		while (leaf != NO_PAGE) {
+			ByteBuffer page = this.page(leaf);
+			if (page.getInt(COUNT) > 0) return leaf;
+			leaf = page.getInt(NEXT);
+		}
+
+		return NO_PAGE;
+	}
+
+	// Insertion //
+
+	/**
+	 * Insert the {@link #encodedKey encoded key} with one occurrence into a leaf with space for it.
+	 */
+	private void insertEntry(ByteBuffer page, int index, int count) {
+		int offset = this.entry(index);
+		this.move(page, offset, offset + this.keySize + 4, (count - index) * (this.keySize + 4));
+		page.put(offset, this.encodedKey, 0, this.keySize);
+		page.putInt(offset + this.keySize, 1);
+		page.putInt(COUNT, count + 1);
+	}
+
+	/**
+	 * Split a full leaf in two, insert the {@link #encodedKey encoded key} into the correct half, and add the new leaf
+	 * to the parent.
+	 */
+	private void splitLeaf(int leaf, ByteBuffer page, int index) {
+		int right = this.allocate(LEAF);
+		ByteBuffer rightPage = this.page(right);
+
+		// move the upper half to the new leaf
+		int mid = (this.leafCapacity + 1) / 2;
+		int moved = this.leafCapacity - mid;
+		this.copy(page, this.entry(mid), rightPage, this.entry(0), moved * (this.keySize + 4));
+		page.putInt(COUNT, mid);
+		rightPage.putInt(COUNT, moved);
+
+		// link the new leaf in after the old
+		int next = page.getInt(NEXT);
+		rightPage.putInt(NEXT, next);
+		rightPage.putInt(PREVIOUS, leaf);
+		page.putInt(NEXT, right);
+		if (next != NO_PAGE) this.page(next).putInt(PREVIOUS, right);
+
+		if (index <= mid) {
+			this.insertEntry(page, index, mid);
+		} else {
+			this.insertEntry(rightPage, index - mid, moved);
+		}
+
+		rightPage.get(this.entry(0), this.separator);
+		this.insertIntoParent(this.height - 2, leaf, right);
+	}
+
+	/**
+	 * Add a new page to the branch at the given level of the search path, to the right of the page it was split from.
+	 * The smallest key the new page can contain is in {@link #separator}. Full branches are split in turn, possibly
+	 * growing the tree by a new root.
+	 * @param level the level of the branch in the search path.
+	 * @param left the page which was split.
+	 * @param right the new page.
+	 */
+	private void insertIntoParent(int level, int left, int right) {
+		while (level >= 0) {
+			int branch = this.pathPages[level];
+			int index = this.pathIndices[level];
+			ByteBuffer page = this.page(branch);
+			int count = page.getInt(COUNT);
+
+			if (count < this.branchCapacity) {
+				this.move(page, this.child(index + 1), this.child(index + 2), (count - index) * 4);
+				page.putInt(this.child(index + 1), right);
+				this.move(page, this.branchKey(index), this.branchKey(index + 1), (count - index) * this.keySize);
+				page.put(this.branchKey(index), this.separator);
+				page.putInt(COUNT, count + 1);
+				return;
+			}
+
+			// gather the keys and children with the new ones inserted
+			for (int i = 0; i <= index; i++) {
+				this.splitChildren[i] = page.getInt(this.child(i));
+			}
+
+			this.splitChildren[index + 1] = right;
+
+			for (int i = index + 1; i <= count; i++) {
+				this.splitChildren[i + 1] = page.getInt(this.child(i));
+			}
+
+			page.get(this.branchKey(0), this.splitKeys, 0, index * this.keySize);
+			System.arraycopy(this.separator, 0, this.splitKeys, index * this.keySize, this.keySize);
+			page.get(this.branchKey(index), this.splitKeys, (index + 1) * this.keySize, (count - index) * this.keySize);
+
+			// the middle key moves up to the parent
+			int mid = (count + 1) / 2;
+			int rightCount = count - mid;
+			int newBranch = this.allocate(BRANCH);
+			ByteBuffer newPage = this.page(newBranch);
+
+			for (int i = 0; i <= mid; i++) {
+				page.putInt(this.child(i), this.splitChildren[i]);
+			}
+
+			for (int i = 0; i <= rightCount; i++) {
+				newPage.putInt(this.child(i), this.splitChildren[mid + 1 + i]);
+			}
+
+			page.put(this.branchKey(0), this.splitKeys, 0, mid * this.keySize);
+			newPage.put(this.branchKey(0), this.splitKeys, (mid + 1) * this.keySize, rightCount * this.keySize);
+			System.arraycopy(this.splitKeys, mid * this.keySize, this.separator, 0, this.keySize);
+			page.putInt(COUNT, mid);
+			newPage.putInt(COUNT, rightCount);
+
+			left = branch;
+			right = newBranch;
+			level--;
+		}
+
+		// the root was split
+		int newRoot = this.allocate(BRANCH);
+		ByteBuffer page = this.page(newRoot);
+		page.putInt(COUNT, 1);
+		page.putInt(this.child(0), left);
+		page.putInt(this.child(1), right);
+		page.put(this.branchKey(0), this.separator);
+		this.root = newRoot;
+		this.height++;
+	}
+
+	// Invariants //
+
+	/**
+	 * Check that the tree is consistent: every leaf is at the bottom level, pages hold no more keys than fit, keys are
+	 * strictly increasing within pages and between the separators above them, every key has been added at least once,
+	 * the leaves are linked in order in both directions, and the header matches the tree. This reads every page, so is
+	 * meant for tests.
+	 * @throws IllegalStateException if the tree is inconsistent.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		this.checkOpen();
+
+		if (this.header.getInt(ROOT) != this.root || this.header.getInt(HEIGHT) != this.height
+				|| this.header.getInt(PAGE_COUNT) != this.pageCount || this.header.getInt(ELEMENT_COUNT) != this.elementCount) {
+			throw new IllegalStateException("Header does not match the tree.");
+		}
+
+		ArrayList<Integer> leaves = new ArrayList<>();
+		int count = this.checkPage(this.root, 1, null, null, leaves);
+
+		if (count != this.elementCount) {
+			throw new IllegalStateException("Leaves hold " + count + " keys, but the tree counts " + this.elementCount + ".");
+		}
+
+		for (int i = 0; i < leaves.size(); i++) {
+			ByteBuffer page = this.page(leaves.get(i));
+			int previous = i == 0 ? NO_PAGE : leaves.get(i - 1);
+			int next = i == leaves.size() - 1 ? NO_PAGE : leaves.get(i + 1);
+
+			if (page.getInt(PREVIOUS) != previous || page.getInt(NEXT) != next) {
+				throw new IllegalStateException("Leaf " + leaves.get(i) + " is not linked to the leaves either side of it.");
+			}
+		}
+	}
+
+	/**
+	 * Check the subtree of the given page, whose keys must be at least low and less than high, adding its leaves to
+	 * the list in order.
+	 * @return the number of keys in the subtree, counting each as many times as it was added.
+	 */
+	private int checkPage(int number, int level, @Nullable T low, @Nullable T high, ArrayList<Integer> leaves) throws IllegalStateException {
+		if (number <= NO_PAGE || number >= this.pageCount) {
+			throw new IllegalStateException("Page " + number + " is outside the file.");
+		}
+
+		ByteBuffer page = this.page(number);
+		boolean leaf = level == this.height;
+		int count = page.getInt(COUNT);
+
+		if (page.get(TYPE) != (leaf ? LEAF : BRANCH)) {
+			throw new IllegalStateException("Page " + number + " at level " + level + " has type " + page.get(TYPE) + ".");
+		}
+
+		if (count < (leaf ? 0 : 1) || count > (leaf ? this.leafCapacity : this.branchCapacity)) {
+			throw new IllegalStateException("Page " + number + " holds " + count + " keys.");
+		}
+
+		T previous = low;
+
+		for (int i = 0; i < count; i++) {
+			int offset = leaf ? this.entry(i) : this.branchKey(i);
+			T key = this.codec.decode(page, offset);
+
+			if (previous != null && this.codec.compare(previous, page, offset) >= (i == 0 ? 1 : 0)) {
+				throw new IllegalStateException("Key " + key + " in page " + number + " is not after " + previous + ".");
+			}
+
+			if (high != null && this.codec.compare(high, page, offset) <= 0) {
+				throw new IllegalStateException("Key " + key + " in page " + number + " is not before " + high + ".");
+			}
+
+			previous = key;
+		}
+
+		if (leaf) {
+			leaves.add(number);
+			int keys = 0;
+
+			for (int i = 0; i < count; i++) {
+				int occurrences = page.getInt(this.entry(i) + this.keySize);
+
+				if (occurrences < 1) {
+					throw new IllegalStateException("Key " + i + " of page " + number + " has " + occurrences + " occurrences.");
+				}
+
+				keys += occurrences;
+			}
+
+			return keys;
+		}
+
+		int keys = 0;
+
+		for (int i = 0; i <= count; i++) {
+			// read the bounds before recursing, as that may unmap this page
+			T childLow = i == 0 ? low : this.codec.decode(page, this.branchKey(i - 1));
+			T childHigh = i == count ? high : this.codec.decode(page, this.branchKey(i));
+			int child = page.getInt(this.child(i));
+			keys += this.checkPage(child, level + 1, childLow, childHigh, leaves);
+			page = this.page(number);
+		}
+
+		return keys;
+	}
+
+	// Pages //
+
+	/**
+	 * Get the mapped buffer for the given page, mapping it if it is not in the cache. The least recently used page is
+	 * unmapped when the cache is full.
+	 * @param number the page number.
+	 * @return the buffer for the page.
+	 */
+	private ByteBuffer page(int number) {
+		MappedByteBuffer page = this.cache.get(number);
+
+		if (page == null) {
+			try {
+				page = this.channel.map(FileChannel.MapMode.READ_WRITE, (long) number * this.pageSize, this.pageSize);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			this.cache.put(number, page);
+		}
+
+		return page;
+	}
+
+	/**
+	 * Add a new, empty page to the end of the file.
+	 * @param type the type of page.
+	 * @return the page number of the new page.
+	 */
+	private int allocate(byte type) {
+		int number = this.pageCount++;
+		// mapping past the end of the file extends it with zeroes
+		this.page(number).put(TYPE, type);
+		return number;
+	}
+
+	private void writeHeader() {
+		this.header.putInt(ROOT, this.root);
+		this.header.putInt(PAGE_COUNT, this.pageCount);
+		this.header.putInt(HEIGHT, this.height);
+		this.header.putInt(ELEMENT_COUNT, this.elementCount);
+	}
+
+	/**
+	 * Move bytes within a page. The ranges may overlap.
+	 */
+	private void move(ByteBuffer page, int from, int to, int length) {
+		this.copy(page, from, page, to, length);
+	}
+
+	private void copy(ByteBuffer source, int from, ByteBuffer destination, int to, int length) {
+		source.get(from, this.scratch, 0, length);
+		destination.put(to, this.scratch, 0, length);
+	}
+
+	private int entry(int index) {
+		return LEAF_HEADER + index * (this.keySize + 4);
+	}
+
+	private int child(int index) {
+		return BRANCH_HEADER + index * 4;
+	}
+
+	private int branchKey(int index) {
+		return BRANCH_HEADER + (this.branchCapacity + 1) * 4 + index * this.keySize;
+	}
+
+	private void checkOpen() {
+		if (this.closed) throw new IllegalStateException("Tree has been closed.");
+	}
+}
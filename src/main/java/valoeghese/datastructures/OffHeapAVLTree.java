@@ -0,0 +1,633 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An AVL self-balancing binary search tree of {@code long} keys whose nodes live off the Java heap, in direct
+ * buffers. Each node is a fixed-width record of its key, the indices of its children and parent, and its height.
+ * The balancing logic is the same as {@link AVLTree}. <br>
+ * The memory is released when the tree is {@link #close() closed}, after which the tree may no longer be used.
+ */
+public final class OffHeapAVLTree implements Tree<Long>, AutoCloseable {
+	// Node record layout //
+
+	private static final int KEY = 0;
+	private static final int LEFT = 8;
+	private static final int RIGHT = 12;
+	private static final int PARENT = 16;
+	private static final int HEIGHT = 20;
+	private static final int NODE_SIZE = 24;
+
+	/**
+	 * Nodes are allocated in chunks of 2^CHUNK_SHIFT so a tree is not limited to the 2GB of a single buffer.
+	 */
+	private static final int CHUNK_SHIFT = 16;
+	private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+	/**
+	 * Index representing the absence of a node.
+	 */
+	private static final int NIL = -1;
+
+	// Fields //
+
+	private ByteBuffer[] chunks = new ByteBuffer[4];
+	private int root = NIL;
+	private int elementCount;
+	private boolean closed;
+
+	// Tree Methods //
+
+	@Override
+	public void add(Long elem) {
+		this.add(elem.longValue());
+	}
+
+	/**
+	 * Add the given key to the tree.
+	 * @param key the key to add.
+	 */
+	public void add(long key) {
+		this.checkOpen();
+
+		int parent = NIL;
+		int child = this.root;
+		boolean left = false;
+
+		// find the location to insert
+		while (child != NIL) {
+			parent = child;
+			// move left if our key is less, right otherwise
+			left = key < this.key(child);
+			child = left ? this.left(child) : this.right(child);
+		}
+
+		int node = this.newNode(key);
+
+		if (parent == NIL) {
+			this.root = node;
+			return;
+		}
+
+		this.setParent(node, parent);
+
+		if (left) {
+			this.setLeft(parent, node);
+		} else {
+			this.setRight(parent, node);
+		}
+
+		this.balance(node);
+	}
+
+	@Override
+	public boolean contains(Long element) {
+		return this.contains(element.longValue());
+	}
+
+	/**
+	 * Checks whether the tree contains the given key.
+	 * @param key the key to look for in the tree.
+	 * @return whether the given key was found in the tree.
+	 */
+	public boolean contains(long key) {
+		this.checkOpen();
+		return this.find(key) != NIL;
+	}
+
+	@Override
+	public boolean remove(Long element) {
+		return this.remove(element.longValue());
+	}
+
+	/**
+	 * Remove one occurrence of the given key from the tree, if present.
+	 * @param key the key to remove.
+	 * @return whether the key was found and removed.
+	 */
+	public boolean remove(long key) {
+		this.checkOpen();
+
+		int node = this.find(key);
+
+		if (node == NIL) {
+			return false;
+		}
+
+		if (this.left(node) != NIL && this.right(node) != NIL) {
+			this.swapWithSuccessor(node, this.minNode(this.right(node)));
+		}
+
+		// the node now has at most one child, which takes its place
+		int parent = this.parent(node);
+		this.transplant(node, this.left(node) != NIL ? this.left(node) : this.right(node));
+		this.rebalance(parent);
+		this.free(node);
+		return true;
+	}
+
+	/**
+	 * Find the node containing a given key.
+	 * @param key the key to find in the tree.
+	 * @return the node containing the key, or {@link #NIL} if it is not found in the tree.
+	 */
+	private int find(long key) {
+		int node = this.root;
+
+		// binary search for the key
+		while (node != NIL) {
+			long nodeKey = this.key(node);
+
+			if (key == nodeKey) {
+				return node;
+			}
+
+			node = key < nodeKey ? this.left(node) : this.right(node);
+		}
+
+		return NIL;
+	}
+
+	@Override
+	public @Nullable Long findMax() {
+		return this.isEmpty() ? null : this.findMaxLong();
+	}
+
+	@Override
+	public @Nullable Long findMin() {
+		return this.isEmpty() ? null : this.findMinLong();
+	}
+
+	private int minNode(int node) {
+		// keep going left (smaller number) until you cannot go any further
+		if (node != NIL) {
+			while (this.left(node) != NIL)
+				node = this.left(node);
+		}
+
+		return node;
+	}
+
+	/**
+	 * Find the node with the next key in sorted order, by walking the parent links.
+	 * @param node the node to find the successor of.
+	 * @return the in-order successor, or {@link #NIL} if the node has the maximum key.
+	 */
+	private int successor(int node) {
+		// smallest key of the right subtree
+		if (this.right(node) != NIL) {
+			return this.minNode(this.right(node));
+		}
+
+		// otherwise the first ancestor we reach from its left subtree
+		int child = node;
+		int parent = this.parent(node);
+
+		while (parent != NIL && this.right(parent) == child) {
+			child = parent;
+			parent = this.parent(parent);
+		}
+
+		return parent;
+	}
+
+	/**
+	 * Finds the maximum key in the tree.
+	 * @return the maximum key in the tree.
+	 * @throws NoSuchElementException if the tree is empty.
+	 */
+	public long findMaxLong() throws NoSuchElementException {
+		this.checkOpen();
+		if (this.root == NIL) throw new NoSuchElementException("Cannot find maximum of an empty tree.");
+
+		int node = this.root;
+
+		// keep going right (larger number) until you cannot go any further
+		while (this.right(node) != NIL)
+			node = this.right(node);
+
+		return this.key(node);
+	}
+
+	/**
+	 * Finds the minimum key in the tree.
+	 * @return the minimum key in the tree.
+	 * @throws NoSuchElementException if the tree is empty.
+	 */
+	public long findMinLong() throws NoSuchElementException {
+		this.checkOpen();
+		if (this.root == NIL) throw new NoSuchElementException("Cannot find minimum of an empty tree.");
+
+		return this.key(this.minNode(this.root));
+	}
+
+	@Override
+	public int size() {
+		return this.elementCount;
+	}
+
+	/**
+	 * Iterate over the keys of this tree in ascending order. The tree must not be modified during iteration.
+	 * @return an iterator over the keys in ascending order.
+	 */
+	@Override
+	public Iterator<Long> iterator() {
+		this.checkOpen();
+
+		return new Iterator<>() {
+			private int next = OffHeapAVLTree.this.minNode(OffHeapAVLTree.this.root);
+
+			@Override
+			public boolean hasNext() {
+				return this.next != NIL;
+			}
+
+			@Override
+			public Long next() throws NoSuchElementException {
+				if (this.next == NIL) {
+					throw new NoSuchElementException("No more elements in tree.");
+				}
+
+				OffHeapAVLTree.this.checkOpen();
+				int node = this.next;
+				this.next = OffHeapAVLTree.this.successor(node);
+				return OffHeapAVLTree.this.key(node);
+			}
+		};
+	}
+
+	/**
+	 * Get the number of bytes of off-heap memory reserved by this tree.
+	 * @return the number of bytes reserved.
+	 */
+	public long offHeapBytes() {
+		int allocated = 0;
+
+		for (ByteBuffer chunk : this.chunks) {
+			if (chunk != null) allocated++;
+		}
+
+		return (long) allocated * (NODE_SIZE << CHUNK_SHIFT);
+	}
+
+	/**
+	 * Free the off-heap memory used by this tree. Using the tree afterwards throws an {@link IllegalStateException}.
+	 */
+	@Override
+	public void close() {
+		if (this.closed) return;
+		this.closed = true;
+
+		for (ByteBuffer chunk : this.chunks) {
+			if (chunk != null) Cleaner.free(chunk);
+		}
+
+		this.chunks = null;
+		this.root = NIL;
+		this.elementCount = 0;
+	}
+
+	// Balancing //
+
+	/**
+	 * Balance the tree, going up from newNode to the root. Will also update the heights.
+	 * @param newNode the node to start balancing from.
+	 */
+	private void balance(int newNode) {
+		this.rebalance(this.parent(newNode));
+	}
+
+	/**
+	 * Balance the tree, going up from the given node to the root. Will also update the heights.
+	 * @param parent the first node to update and check the balance of.
+	 */
+	private void rebalance(int parent) {
+		while (parent != NIL) {
+			// update parent height
+			this.updateHeight(parent);
+
+			// Determine if the parent's children are unbalanced.
+			int balance = this.getBalance(parent);
+
+			// right is heavier to point of needing correction
+			if (balance > 1) {
+				int rightChild = this.right(parent);
+
+				// if right child has heavier left
+				if (this.getBalance(rightChild) < 0) {
+					int toRotate = this.left(rightChild);
+					this.rotate(toRotate);
+					parent = this.rotate(toRotate);
+				} else {
+					parent = this.rotate(rightChild);
+				}
+			}
+			// left is heavier to point of needing correction
+			else if (balance < -1) {
+				int leftChild = this.left(parent);
+
+				// if left child has heavier right
+				if (this.getBalance(leftChild) > 0) {
+					int toRotate = this.right(leftChild);
+					this.rotate(toRotate);
+					parent = this.rotate(toRotate);
+				} else {
+					parent = this.rotate(leftChild);
+				}
+			}
+			// otherwise it's balanced enough already.
+
+			// move up once in the tree from the parent
+			parent = this.parent(parent);
+		}
+	}
+
+	/**
+	 * Rotates the given child node around its parent node.
+	 * @param child the child node.
+	 * @return the new parent.
+	 */
+	private int rotate(int child) {
+		int oldParent = this.parent(child);
+		int grandParent = this.parent(oldParent);
+
+		// make child the child of its grandparent
+		this.setParent(child, grandParent);
+
+		if (grandParent == NIL) {
+			this.root = child;
+		} else if (this.left(grandParent) == oldParent) {
+			this.setLeft(grandParent, child);
+		} else {
+			this.setRight(grandParent, child);
+		}
+
+		this.setParent(oldParent, child);
+
+		// bring parent down, bring child up
+		if (this.left(oldParent) == child) {
+			int moved = this.right(child);
+			this.setLeft(oldParent, moved);
+			if (moved != NIL) this.setParent(moved, oldParent);
+
+			this.setRight(child, oldParent);
+		} else {
+			int moved = this.left(child);
+			this.setRight(oldParent, moved);
+			if (moved != NIL) this.setParent(moved, oldParent);
+
+			this.setLeft(child, oldParent);
+		}
+
+		// update heights
+		this.updateHeight(oldParent);
+		this.updateHeight(child);
+		return child;
+	}
+
+	/**
+	 * Replace the given node with another node (or nothing) in the eyes of its parent.
+	 * @param node the node to replace.
+	 * @param replacement the node to take its place, or {@link #NIL} to remove it.
+	 */
+	private void transplant(int node, int replacement) {
+		int parent = this.parent(node);
+
+		if (parent == NIL) {
+			this.root = replacement;
+		} else if (this.left(parent) == node) {
+			this.setLeft(parent, replacement);
+		} else {
+			this.setRight(parent, replacement);
+		}
+
+		if (replacement != NIL) {
+			this.setParent(replacement, parent);
+		}
+	}
+
+	/**
+	 * Swap the positions of a node and its in-order successor within the tree. Afterwards, the node has no left child.
+	 * @param node the node to swap.
+	 * @param successor the in-order successor of the node, which must be in its right subtree.
+	 */
+	private void swapWithSuccessor(int node, int successor) {
+		int nodeLeft = this.left(node);
+		int nodeRight = this.right(node);
+		int nodeHeight = this.height(node);
+		int successorParent = this.parent(successor);
+		int successorRight = this.right(successor);
+
+		// the successor takes the node's place under its parent
+		this.transplant(node, successor);
+
+		this.setLeft(successor, nodeLeft);
+		this.setParent(nodeLeft, successor);
+
+		if (successorParent == node) {
+			// the successor was the node's right child
+			this.setRight(successor, node);
+			this.setParent(node, successor);
+		} else {
+			this.setRight(successor, nodeRight);
+			this.setParent(nodeRight, successor);
+
+			// the successor is always the left child of its parent, as it is the minimum of the right subtree
+			this.setLeft(successorParent, node);
+			this.setParent(node, successorParent);
+		}
+
+		this.setLeft(node, NIL);
+		this.setRight(node, successorRight);
+		if (successorRight != NIL) this.setParent(successorRight, node);
+
+		// each takes the other's place, so takes the other's height
+		this.setHeight(node, this.height(successor));
+		this.setHeight(successor, nodeHeight);
+	}
+
+	private int getHeight(int node) {
+		return node == NIL ? -1 : this.height(node);
+	}
+
+	private int getBalance(int node) {
+		return this.getHeight(this.right(node)) - this.getHeight(this.left(node));
+	}
+
+	private void updateHeight(int node) {
+		this.setHeight(node, Math.max(this.getHeight(this.left(node)), this.getHeight(this.right(node))) + 1);
+	}
+
+	/**
+	 * Check that the tree is consistent: children link back to their parents, heights are correct and balanced, the
+	 * keys are in order, and every allocated record is in the tree. This walks the whole tree, so is meant for tests.
+	 * @throws IllegalStateException if the tree is inconsistent.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		this.checkOpen();
+
+		if (this.root != NIL && this.parent(this.root) != NIL) {
+			throw new IllegalStateException("Root " + this.key(this.root) + " has a parent.");
+		}
+
+		int[] count = new int[1];
+		this.checkSubtree(this.root, Long.MIN_VALUE, Long.MAX_VALUE, count);
+
+		if (count[0] != this.elementCount) {
+			throw new IllegalStateException("Tree has " + count[0] + " nodes, but " + this.elementCount + " records are allocated.");
+		}
+	}
+
+	/**
+	 * Check the given subtree, whose keys must be between the given bounds, counting its nodes.
+	 * @return the height of the subtree.
+	 */
+	private int checkSubtree(int node, long low, long high, int[] count) throws IllegalStateException {
+		if (node == NIL) return -1;
+
+		long key = this.key(node);
+		int left = this.left(node);
+		int right = this.right(node);
+		count[0]++;
+
+		if (key < low || key > high) {
+			throw new IllegalStateException("Key " + key + " is outside its subtree's range [" + low + ", " + high + "].");
+		}
+
+		if ((left != NIL && this.parent(left) != node) || (right != NIL && this.parent(right) != node)) {
+			throw new IllegalStateException("A child of " + key + " does not link back to it.");
+		}
+
+		int leftHeight = this.checkSubtree(left, low, key, count);
+		int rightHeight = this.checkSubtree(right, key, high, count);
+
+		if (this.height(node) != Math.max(leftHeight, rightHeight) + 1 || Math.abs(rightHeight - leftHeight) > 1) {
+			throw new IllegalStateException("Node " + key + " has height " + this.height(node) + " with subtrees of heights " + leftHeight + " and " + rightHeight + ".");
+		}
+
+		return this.height(node);
+	}
+
+	// Node Storage //
+
+	private void checkOpen() {
+		if (this.closed) throw new IllegalStateException("Tree has been closed.");
+	}
+
+	/**
+	 * Allocate a new leaf node with the given key, which is not yet attached to the tree.
+	 * @param key the key of the node.
+	 * @return the index of the new node.
+	 */
+	private int newNode(long key) {
+		int node = this.elementCount;
+		int chunk = node >>> CHUNK_SHIFT;
+
+		if (chunk == this.chunks.length) {
+			this.chunks = Arrays.copyOf(this.chunks, this.chunks.length * 2);
+		}
+
+		if (this.chunks[chunk] == null) {
+			this.chunks[chunk] = ByteBuffer.allocateDirect(NODE_SIZE << CHUNK_SHIFT).order(ByteOrder.nativeOrder());
+		}
+
+		this.elementCount++;
+		ByteBuffer buffer = this.chunks[chunk];
+		int offset = (node & CHUNK_MASK) * NODE_SIZE;
+		buffer.putLong(offset + KEY, key);
+		buffer.putInt(offset + LEFT, NIL);
+		buffer.putInt(offset + RIGHT, NIL);
+		buffer.putInt(offset + PARENT, NIL);
+		buffer.putInt(offset + HEIGHT, 0);
+		return node;
+	}
+
+	/**
+	 * Release the record of a node which has been unlinked from the tree. The last node is moved into its slot, so
+	 * the records stay contiguous.
+	 * @param node the unlinked node.
+	 */
+	private void free(int node) {
+		int last = --this.elementCount;
+
+		if (node != last) {
+			ByteBuffer from = this.chunk(last);
+			ByteBuffer to = this.chunk(node);
+			int fromOffset = offset(last);
+			int toOffset = offset(node);
+
+			to.putLong(toOffset + KEY, from.getLong(fromOffset + KEY));
+			to.putInt(toOffset + HEIGHT, from.getInt(fromOffset + HEIGHT));
+
+			// relink everything pointing at the last node
+			int parent = this.parent(last);
+			int left = this.left(last);
+			int right = this.right(last);
+
+			this.setParent(node, parent);
+			this.setLeft(node, left);
+			this.setRight(node, right);
+
+			if (parent == NIL) {
+				this.root = node;
+			} else if (this.left(parent) == last) {
+				this.setLeft(parent, node);
+			} else {
+				this.setRight(parent, node);
+			}
+
+			if (left != NIL) this.setParent(left, node);
+			if (right != NIL) this.setParent(right, node);
+		}
+	}
+
+	private ByteBuffer chunk(int node) {
+		return this.chunks[node >>> CHUNK_SHIFT];
+	}
+
+	private static int offset(int node) {
+		return (node & CHUNK_MASK) * NODE_SIZE;
+	}
+
+	private long key(int node) {
+		return this.chunk(node).getLong(offset(node) + KEY);
+	}
+
+	private int left(int node) {
+		return this.chunk(node).getInt(offset(node) + LEFT);
+	}
+
+	private int right(int node) {
+		return this.chunk(node).getInt(offset(node) + RIGHT);
+	}
+
+	private int parent(int node) {
+		return this.chunk(node).getInt(offset(node) + PARENT);
+	}
+
+	private int height(int node) {
+		return this.chunk(node).getInt(offset(node) + HEIGHT);
+	}
+
+	private void setLeft(int node, int child) {
+		this.chunk(node).putInt(offset(node) + LEFT, child);
+	}
+
+	private void setRight(int node, int child) {
+		this.chunk(node).putInt(offset(node) + RIGHT, child);
+	}
+
+	private void setParent(int node, int parent) {
+		this.chunk(node).putInt(offset(node) + PARENT, parent);
+	}
+
+	private void setHeight(int node, int height) {
+		this.chunk(node).putInt(offset(node) + HEIGHT, height);
+	}
+}
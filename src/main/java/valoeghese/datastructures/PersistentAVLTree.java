@@ -0,0 +1,710 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A persistent AVL self-balancing binary search tree. Nodes are immutable and have no parent links, so changing the
+ * tree copies only the nodes on the path to the change and shares everything else with the previous version. <br>
+ * This makes {@link #snapshot()} O(1): a snapshot is just the current root. Snapshots never change, so any number of
+ * threads can read them without locking while a single writer keeps modifying the live tree. <br>
+ * Trees can also be split and joined in O(log n) time, and combined with the set operations {@link #union},
+ * {@link #intersection} and {@link #difference}, which run in parallel on the common fork-join pool. Like the other
+ * trees, it may hold equal elements more than once, and the set operations treat it as a multiset.
+ * @param <T> the type of element to store in the tree.
+ */
+public final class PersistentAVLTree<T extends Comparable<T>> implements Tree<T> {
+	public PersistentAVLTree() {
+		this(null, false);
+	}
+
+	private PersistentAVLTree(@Nullable Node<T> root, boolean frozen) {
+		this.root = root;
+		this.frozen = frozen;
+	}
+
+	// volatile so readers of the live tree always see a complete version
+	private volatile @Nullable Node<T> root;
+	private final boolean frozen;
+
+	/**
+	 * Take an immutable snapshot of this tree as it is now, in O(1) time. The snapshot shares its nodes with this tree.
+	 * @return a snapshot of this tree. Attempting to modify it throws an {@link UnsupportedOperationException}.
+	 */
+	public PersistentAVLTree<T> snapshot() {
+		return this.frozen ? this : new PersistentAVLTree<>(this.root, true);
+	}
+
+	/**
+	 * Add the given element to the tree. If an equal element is already present, both are kept.
+	 * @param elem the element to add.
+	 */
+	@Override
+	public void add(T elem) {
+		this.checkMutable();
+		this.root = insert(this.root, elem);
+	}
+
+	@Override
+	public boolean remove(T element) {
+		this.checkMutable();
+		Node<T> root = this.root;
+
+		if (find(root, element) == null) {
+			return false;
+		}
+
+		this.root = delete(root, element);
+		return true;
+	}
+
+	@Override
+	public boolean contains(T element) {
+		return find(this.root, element) != null;
+	}
+
+	@Override
+	public @Nullable T findMax() {
+		Node<T> node = this.root;
+
+		if (node == null) return null;
+
+		// keep going right (larger number) until you cannot go any further
+		while (node.rightChild != null)
+			node = node.rightChild;
+
+		return node.elem;
+	}
+
+	@Override
+	public @Nullable T findMin() {
+		Node<T> node = this.root;
+
+		if (node == null) return null;
+
+		// keep going left (smaller number) until you cannot go any further
+		while (node.leftChild != null)
+			node = node.leftChild;
+
+		return node.elem;
+	}
+
+	@Override
+	public int size() {
+		return Node.size(this.root);
+	}
+
+	/**
+	 * Iterate over the elements of this tree in ascending order. The iterator reads the version of the tree current
+	 * when it was created, so it is unaffected by later changes.
+	 * @return an iterator over the elements in ascending order.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new InOrderIterator<>(this.root);
+	}
+
+	// Join and Split //
+
+	/**
+	 * The result of splitting a tree around an element.
+	 * @param less a tree of the elements less than the element split around.
+	 * @param found whether the element split around was in the tree.
+	 * @param greater a tree of the elements greater than the element split around.
+	 * @param <T> the type of element stored in the trees.
+	 */
+	public record Split<T extends Comparable<T>>(PersistentAVLTree<T> less, boolean found, PersistentAVLTree<T> greater) {
+	}
+
+	/**
+	 * Split this tree around the given element, in O(log n) time. Elements equal to it are in neither half.
+	 * This tree is not modified.
+	 * @param element the element to split around.
+	 * @return the two halves of the tree, and whether the element was found.
+	 */
+	public Split<T> split(T element) {
+		Node<T> root = this.root;
+
+		return new Split<>(
+				new PersistentAVLTree<>(splitLess(root, element), false),
+				find(root, element) != null,
+				new PersistentAVLTree<>(splitGreater(root, element), false)
+		);
+	}
+
+	/**
+	 * Join two trees, where every element of the first is no greater than every element of the second, in
+	 * O(log n) time. Neither tree is modified.
+	 * @param low the tree of lower elements.
+	 * @param high the tree of higher elements.
+	 * @param <T> the type of element stored in the trees.
+	 * @return a tree containing the elements of both trees.
+	 * @throws IllegalArgumentException if an element of the low tree is greater than an element of the high tree.
+	 */
+	public static <T extends Comparable<T>> PersistentAVLTree<T> join(PersistentAVLTree<T> low, PersistentAVLTree<T> high) throws IllegalArgumentException {
+		Node<T> lowRoot = low.root;
+		Node<T> highRoot = high.root;
+
+		if (lowRoot != null && highRoot != null && max(lowRoot).compareTo(min(highRoot)) > 0) {
+			throw new IllegalArgumentException("Trees overlap, so cannot be joined.");
+		}
+
+		return new PersistentAVLTree<>(join2(lowRoot, highRoot), false);
+	}
+
+	/**
+	 * Create a tree containing the elements of both trees, as a multiset sum: an element held m times by the first tree
+	 * and n times by the second is held m + n times by the result. This takes O(m log(n/m + 1)) work for trees of
+	 * sizes m &lt;= n, and runs in parallel. Neither tree is modified.
+	 * @param a the first tree.
+	 * @param b the second tree.
+	 * @param <T> the type of element stored in the trees.
+	 * @return the union of the trees.
+	 */
+	public static <T extends Comparable<T>> PersistentAVLTree<T> union(PersistentAVLTree<T> a, PersistentAVLTree<T> b) {
+		return SetOperation.UNION.invoke(a, b);
+	}
+
+	/**
+	 * Create a tree containing the elements of the first tree which are also in the second, as a multiset intersection:
+	 * an element held m times by the first tree and n times by the second is held min(m, n) times by the result, using
+	 * the copies from the first tree. This takes O(m log(n/m + 1)) work for trees of sizes m &lt;= n, and runs in
+	 * parallel. Neither tree is modified.
+	 * @param a the first tree.
+	 * @param b the second tree.
+	 * @param <T> the type of element stored in the trees.
+	 * @return the intersection of the trees.
+	 */
+	public static <T extends Comparable<T>> PersistentAVLTree<T> intersection(PersistentAVLTree<T> a, PersistentAVLTree<T> b) {
+		return SetOperation.INTERSECTION.invoke(a, b);
+	}
+
+	/**
+	 * Create a tree containing the elements of the first tree which are not in the second, as a multiset difference:
+	 * each copy of an element in the second tree removes one copy from the first, so an element held m times by the
+	 * first tree and n times by the second is held max(m - n, 0) times by the result. This takes O(m log(n/m + 1))
+	 * work for trees of sizes m &lt;= n, and runs in parallel. Neither tree is modified.
+	 * @param a the tree to remove elements from.
+	 * @param b the elements to remove.
+	 * @param <T> the type of element stored in the trees.
+	 * @return the difference of the trees.
+	 */
+	public static <T extends Comparable<T>> PersistentAVLTree<T> difference(PersistentAVLTree<T> a, PersistentAVLTree<T> b) {
+		return SetOperation.DIFFERENCE.invoke(a, b);
+	}
+
+	/**
+	 * Create a tree from elements which are already sorted, in O(n) time. This can be used to convert another tree,
+	 * such as an {@link AVLTree}, by passing its iterator and size.
+	 * @param elements the elements to store in the tree, in ascending order.
+	 * @param size the number of elements to take from the iterator.
+	 * @param <T> the type of element to store in the tree.
+	 * @return a perfectly balanced tree containing the elements.
+	 */
+	public static <T extends Comparable<T>> PersistentAVLTree<T> fromSorted(Iterator<? extends T> elements, int size) {
+		return new PersistentAVLTree<>(buildSubtree(elements, size), false);
+	}
+
+	private static <T extends Comparable<T>> @Nullable Node<T> buildSubtree(Iterator<? extends T> elements, int size) {
+		if (size == 0) return null;
+
+		// build in order: left subtree, then this node, then right subtree
+		int leftSize = (size - 1) / 2;
+		Node<T> left = buildSubtree(elements, leftSize);
+		T elem = elements.next();
+		return new Node<>(elem, left, buildSubtree(elements, size - leftSize - 1));
+	}
+
+	private void checkMutable() {
+		if (this.frozen) {
+			throw new UnsupportedOperationException("Cannot modify a snapshot.");
+		}
+	}
+
+	// Path Copying Operations //
+
+	private static <T extends Comparable<T>> @Nullable Node<T> find(@Nullable Node<T> node, T element) {
+		// binary search for the element
+		while (node != null) {
+			int comparison = element.compareTo(node.elem);
+
+			if (comparison == 0) {
+				return node; // the element has been found
+			} else if (comparison < 0) {
+				node = node.leftChild;
+			} else {
+				node = node.rightChild;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Insert the element into the given subtree.
+	 * @return the root of a new subtree containing the element.
+	 */
+	private static <T extends Comparable<T>> Node<T> insert(@Nullable Node<T> node, T elem) {
+		if (node == null) {
+			return new Node<>(elem, null, null);
+		}
+
+		// move left if our element is less, right otherwise
+		if (elem.compareTo(node.elem) < 0) {
+			return balance(node.elem, insert(node.leftChild, elem), node.rightChild);
+		} else {
+			return balance(node.elem, node.leftChild, insert(node.rightChild, elem));
+		}
+	}
+
+	/**
+	 * Delete the element from the given subtree, which must contain it.
+	 * @return the root of a new subtree without the element.
+	 */
+	private static <T extends Comparable<T>> @Nullable Node<T> delete(Node<T> node, T element) {
+		int comparison = element.compareTo(node.elem);
+
+		if (comparison < 0) {
+			assert node.leftChild != null; // the element is in this subtree
+			return balance(node.elem, delete(node.leftChild, element), node.rightChild);
+		} else if (comparison > 0) {
+			assert node.rightChild != null; // the element is in this subtree
+			return balance(node.elem, node.leftChild, delete(node.rightChild, element));
+		}
+
+		if (node.leftChild == null) return node.rightChild;
+		if (node.rightChild == null) return node.leftChild;
+
+		// replace with the in-order successor
+		Node<T> successor = node.rightChild;
+
+		while (successor.leftChild != null)
+			successor = successor.leftChild;
+
+		return balance(successor.elem, node.leftChild, deleteMin(node.rightChild));
+	}
+
+	private static <T extends Comparable<T>> @Nullable Node<T> deleteMin(Node<T> node) {
+		if (node.leftChild == null) return node.rightChild;
+		return balance(node.elem, deleteMin(node.leftChild), node.rightChild);
+	}
+
+	private static <T extends Comparable<T>> T min(Node<T> node) {
+		while (node.leftChild != null)
+			node = node.leftChild;
+
+		return node.elem;
+	}
+
+	private static <T extends Comparable<T>> T max(Node<T> node) {
+		while (node.rightChild != null)
+			node = node.rightChild;
+
+		return node.elem;
+	}
+
+	private static <T extends Comparable<T>> @Nullable Node<T> deleteMax(Node<T> node) {
+		if (node.rightChild == null) return node.leftChild;
+		return balance(node.elem, node.leftChild, deleteMax(node.rightChild));
+	}
+
+	/**
+	 * Join two subtrees with an element between them, where every element of left is no greater than elem, and every
+	 * element of right is no less. Takes time proportional to the difference in their heights.
+	 * @return the root of the joined subtree.
+	 */
+	private static <T extends Comparable<T>> Node<T> join(@Nullable Node<T> left, T elem, @Nullable Node<T> right) {
+		if (Node.height(left) > Node.height(right) + 1) {
+			assert left != null;
+			return joinRight(left, elem, right);
+		} else if (Node.height(right) > Node.height(left) + 1) {
+			assert right != null;
+			return joinLeft(left, elem, right);
+		} else {
+			return new Node<>(elem, left, right);
+		}
+	}
+
+	/**
+	 * Join a shorter right subtree by descending the right spine of the taller left subtree until the heights match,
+	 * then rebalancing on the way back up.
+	 */
+	private static <T extends Comparable<T>> Node<T> joinRight(Node<T> left, T elem, @Nullable Node<T> right) {
+		if (Node.height(left.rightChild) <= Node.height(right) + 1) {
+			return balance(left.elem, left.leftChild, new Node<>(elem, left.rightChild, right));
+		}
+
+		assert left.rightChild != null; // it is taller than right
+		return balance(left.elem, left.leftChild, joinRight(left.rightChild, elem, right));
+	}
+
+	/**
+	 * Mirror of {@link #joinRight}, for a shorter left subtree.
+	 */
+	private static <T extends Comparable<T>> Node<T> joinLeft(@Nullable Node<T> left, T elem, Node<T> right) {
+		if (Node.height(right.leftChild) <= Node.height(left) + 1) {
+			return balance(right.elem, new Node<>(elem, left, right.leftChild), right.rightChild);
+		}
+
+		assert right.leftChild != null; // it is taller than left
+		return balance(right.elem, joinLeft(left, elem, right.leftChild), right.rightChild);
+	}
+
+	/**
+	 * Join two subtrees, where every element of left is no greater than every element of right.
+	 * @return the root of the joined subtree.
+	 */
+	private static <T extends Comparable<T>> @Nullable Node<T> join2(@Nullable Node<T> left, @Nullable Node<T> right) {
+		if (left == null) return right;
+		if (right == null) return left;
+
+		// use the maximum of the left subtree as the joining element
+		return join(deleteMax(left), max(left), right);
+	}
+
+	/**
+	 * @return the root of a subtree of the elements less than the given element.
+	 */
+	private static <T extends Comparable<T>> @Nullable Node<T> splitLess(@Nullable Node<T> node, T element) {
+		if (node == null) return null;
+
+		if (node.elem.compareTo(element) < 0) {
+			return join(node.leftChild, node.elem, splitLess(node.rightChild, element));
+		} else {
+			return splitLess(node.leftChild, element);
+		}
+	}
+
+	/**
+	 * @return the root of a subtree of the elements greater than the given element.
+	 */
+	private static <T extends Comparable<T>> @Nullable Node<T> splitGreater(@Nullable Node<T> node, T element) {
+		if (node == null) return null;
+
+		if (node.elem.compareTo(element) > 0) {
+			return join(splitGreater(node.leftChild, element), node.elem, node.rightChild);
+		} else {
+			return splitGreater(node.rightChild, element);
+		}
+	}
+
+	/**
+	 * Create a node with the given element and children, rotating if the children's heights differ by more than one.
+	 * The children must each be balanced, and differ in height by at most two.
+	 * @return the root of the balanced subtree.
+	 */
+	private static <T extends Comparable<T>> Node<T> balance(T elem, @Nullable Node<T> left, @Nullable Node<T> right) {
+		int balance = Node.height(right) - Node.height(left);
+
+		// right is heavier to point of needing correction
+		if (balance > 1) {
+			assert right != null; // this should never be null if balance > 1
+
+			// if right child has heavier left
+			if (Node.height(right.leftChild) > Node.height(right.rightChild)) {
+				Node<T> pivot = right.leftChild;
+				return new Node<>(pivot.elem,
+						new Node<>(elem, left, pivot.leftChild),
+						new Node<>(right.elem, pivot.rightChild, right.rightChild));
+			} else {
+				return new Node<>(right.elem, new Node<>(elem, left, right.leftChild), right.rightChild);
+			}
+		}
+		// left is heavier to point of needing correction
+		else if (balance < -1) {
+			assert left != null; // this should never be null if balance < 1
+
+			// if left child has heavier right
+			if (Node.height(left.rightChild) > Node.height(left.leftChild)) {
+				Node<T> pivot = left.rightChild;
+				return new Node<>(pivot.elem,
+						new Node<>(left.elem, left.leftChild, pivot.leftChild),
+						new Node<>(elem, pivot.rightChild, right));
+			} else {
+				return new Node<>(left.elem, left.leftChild, new Node<>(elem, left.rightChild, right));
+			}
+		}
+
+		// otherwise it's balanced enough already.
+		return new Node<>(elem, left, right);
+	}
+
+	/**
+	 * Check that the heights and sizes stored in the nodes are correct, the tree is balanced, and the elements are in
+	 * order. This walks the whole tree, so is meant for tests.
+	 * @throws IllegalStateException if the tree is inconsistent.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		checkSubtree(this.root);
+		T last = null;
+
+		for (T elem : this) {
+			if (last != null && elem.compareTo(last) < 0) {
+				throw new IllegalStateException("Element " + elem + " is after the greater element " + last + ".");
+			}
+
+			last = elem;
+		}
+	}
+
+	private static <T> void checkSubtree(@Nullable Node<T> node) throws IllegalStateException {
+		if (node == null) return;
+
+		checkSubtree(node.leftChild);
+		checkSubtree(node.rightChild);
+		int left = Node.height(node.leftChild);
+		int right = Node.height(node.rightChild);
+
+		if (node.height != Math.max(left, right) + 1 || Math.abs(right - left) > 1) {
+			throw new IllegalStateException("Node " + node.elem + " has height " + node.height + " with subtrees of heights " + left + " and " + right + ".");
+		}
+
+		if (node.size != Node.size(node.leftChild) + Node.size(node.rightChild) + 1) {
+			throw new IllegalStateException("Node " + node.elem + " has the wrong size " + node.size + ".");
+		}
+	}
+
+	// Inner Classes //
+
+	/**
+	 * An immutable node, which may be shared between many versions of the tree.
+	 */
+	private static final class Node<T> {
+		Node(T elem, @Nullable Node<T> leftChild, @Nullable Node<T> rightChild) {
+			this.elem = elem;
+			this.leftChild = leftChild;
+			this.rightChild = rightChild;
+			this.height = Math.max(height(leftChild), height(rightChild)) + 1;
+			this.size = size(leftChild) + size(rightChild) + 1;
+		}
+
+		final T elem;
+		final @Nullable Node<T> leftChild;
+		final @Nullable Node<T> rightChild;
+		final int height;
+		final int size;
+
+		static int height(@Nullable Node<?> node) {
+			return node == null ? -1 : node.height;
+		}
+
+		static int size(@Nullable Node<?> node) {
+			return node == null ? 0 : node.size;
+		}
+	}
+
+	/**
+	 * Set operations implemented by splitting both trees around the root of one of them, recursing on both halves in
+	 * parallel, and joining the results. Equal copies of the root's element may be anywhere in either tree, so they
+	 * are taken out of both and counted, and the operation decides how many copies go between the joined halves.
+	 */
+	private enum SetOperation {
+		UNION, INTERSECTION, DIFFERENCE;
+
+		/**
+		 * Below this many elements in total, a task does both halves itself rather than forking.
+		 */
+		private static final int SEQUENTIAL_THRESHOLD = 1 << 12;
+
+		<T extends Comparable<T>> PersistentAVLTree<T> invoke(PersistentAVLTree<T> a, PersistentAVLTree<T> b) {
+			return new PersistentAVLTree<>(ForkJoinPool.commonPool().invoke(new Task<>(this, a.root, b.root)), false);
+		}
+
+		// RecursiveTask is Serializable, but tasks only live for one operation and their nodes are not serialisable
+		@SuppressWarnings("serial")
+		private static final class Task<T extends Comparable<T>> extends RecursiveTask<Node<T>> {
+			Task(SetOperation operation, @Nullable Node<T> a, @Nullable Node<T> b) {
+				this.operation = operation;
+				this.a = a;
+				this.b = b;
+			}
+
+			private final SetOperation operation;
+			private final @Nullable Node<T> a;
+			private final @Nullable Node<T> b;
+
+			@Override
+			protected @Nullable Node<T> compute() {
+				// the root of the pivot tree is used to split the other tree
+				Node<T> pivot;
+				Node<T> other;
+
+				switch (this.operation) {
+				case UNION:
+					if (this.a == null) return this.b;
+					if (this.b == null) return this.a;
+					pivot = this.a;
+					other = this.b;
+					break;
+				case INTERSECTION:
+					if (this.a == null || this.b == null) return null;
+					pivot = this.a;
+					other = this.b;
+					break;
+				default:
+					if (this.a == null || this.b == null) return this.a;
+					// split a around b's root, as that is the element to remove
+					pivot = this.b;
+					other = this.a;
+					break;
+				}
+
+				T elem = pivot.elem;
+
+				// take every copy of the element out of both trees, so the halves hold only smaller and larger elements.
+				// Copies are rare, so they are only collected into lists when there are some.
+				Node<T> pivotLess = pivot.leftChild;
+				Node<T> pivotGreater = pivot.rightChild;
+				ArrayList<T> pivotCopies = null;
+
+				if (find(pivotLess, elem) != null || find(pivotGreater, elem) != null) {
+					pivotCopies = new ArrayList<>();
+					collectEqual(pivot, elem, pivotCopies);
+					pivotLess = splitLess(pivotLess, elem);
+					pivotGreater = splitGreater(pivotGreater, elem);
+				}
+
+				Node<T> otherLess = splitLess(other, elem);
+				Node<T> otherGreater = splitGreater(other, elem);
+				ArrayList<T> otherCopies = null;
+
+				if (find(other, elem) != null) {
+					otherCopies = new ArrayList<>();
+					collectEqual(other, elem, otherCopies);
+				}
+
+				Task<T> left;
+				Task<T> right;
+
+				if (this.operation == DIFFERENCE) {
+					left = new Task<>(this.operation, otherLess, pivotLess);
+					right = new Task<>(this.operation, otherGreater, pivotGreater);
+				} else {
+					left = new Task<>(this.operation, pivotLess, otherLess);
+					right = new Task<>(this.operation, pivotGreater, otherGreater);
+				}
+
+				Node<T> leftResult;
+				Node<T> rightResult;
+
+				if (Node.size(pivot) + Node.size(other) > SEQUENTIAL_THRESHOLD) {
+					left.fork();
+					rightResult = right.compute();
+					leftResult = left.join();
+				} else {
+					leftResult = left.compute();
+					rightResult = right.compute();
+				}
+
+				int pivotCount = pivotCopies == null ? 1 : pivotCopies.size();
+				int otherCount = otherCopies == null ? 0 : otherCopies.size();
+
+				// the copies of the element which belong in the result, taken from the first tree where possible
+				ArrayList<T> copies;
+				int kept;
+
+				switch (this.operation) {
+				case UNION:
+					kept = pivotCount + otherCount;
+
+					if (kept == 1) {
+						return PersistentAVLTree.join(leftResult, elem, rightResult);
+					}
+
+					if (pivotCopies == null) {
+						pivotCopies = new ArrayList<>();
+						pivotCopies.add(elem);
+					}
+
+					copies = pivotCopies;
+					if (otherCopies != null) copies.addAll(otherCopies);
+					break;
+				case INTERSECTION:
+					kept = Math.min(pivotCount, otherCount);
+
+					if (kept == 1) {
+						return PersistentAVLTree.join(leftResult, pivotCopies == null ? elem : pivotCopies.get(0), rightResult);
+					}
+
+					copies = pivotCopies;
+					break;
+				default:
+					// the pivot is the second tree here, so the copies kept come from the other
+					kept = Math.max(otherCount - pivotCount, 0);
+					copies = otherCopies;
+					break;
+				}
+
+				if (kept == 0) {
+					return join2(leftResult, rightResult);
+				}
+
+				assert copies != null; // only a single copy can be kept without a list
+				return join2(join2(leftResult, buildSubtree(copies.iterator(), kept)), rightResult);
+			}
+		}
+
+		/**
+		 * Add every element in the subtree equal to the given element to the list, in order.
+		 */
+		private static <T extends Comparable<T>> void collectEqual(@Nullable Node<T> node, T element, ArrayList<T> equal) {
+			while (node != null) {
+				int comparison = element.compareTo(node.elem);
+
+				if (comparison < 0) {
+					node = node.leftChild;
+				} else if (comparison > 0) {
+					node = node.rightChild;
+				} else {
+					// equal elements are contiguous in order, and may continue on either side of this node
+					collectEqual(node.leftChild, element, equal);
+					equal.add(node.elem);
+					node = node.rightChild;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Iterator keeping the path to the next node in a stack, as nodes have no parent links.
+	 */
+	private static final class InOrderIterator<T> implements Iterator<T> {
+		@SuppressWarnings("unchecked")
+		InOrderIterator(@Nullable Node<T> root) {
+			// the stack never holds more than one node per level
+			this.stack = (Node<T>[]) new Node[Node.height(root) + 1];
+			this.pushLeft(root);
+		}
+
+		private final Node<T>[] stack;
+		private int depth;
+
+		private void pushLeft(@Nullable Node<T> node) {
+			while (node != null) {
+				this.stack[this.depth++] = node;
+				node = node.leftChild;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.depth > 0;
+		}
+
+		@Override
+		public T next() throws NoSuchElementException {
+			if (this.depth == 0) {
+				throw new NoSuchElementException("No more elements in tree.");
+			}
+
+			Node<T> node = this.stack[--this.depth];
+			this.pushLeft(node.rightChild);
+			return node.elem;
+		}
+	}
+}
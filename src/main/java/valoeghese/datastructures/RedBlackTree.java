@@ -2,11 +2,27 @@ package valoeghese.datastructures;
 
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Comparator;
+import java.util.Iterator;
+
 /**
  * Red-Black self-balancing tree implementation.
  * @param <T> the type of data to store in the tree.
  */
 public class RedBlackTree<T extends Comparable<T>> extends BinarySearchTree<T, RedBlackTree<T>.Node> {
+	/**
+	 * Create a red-black tree ordering its elements by their natural ordering.
+	 */
+	public RedBlackTree() {
+	}
+
+	/**
+	 * Create a red-black tree ordering its elements by the given comparator.
+	 * @param comparator the comparator to order elements by.
+	 */
+	public RedBlackTree(Comparator<? super T> comparator) {
+		super(comparator);
+	}
 
 	@Override
 	protected Node createNode(T elem) {
@@ -18,6 +34,148 @@ public class RedBlackTree<T extends Comparable<T>> extends BinarySearchTree<T, R
 		this.balance(this.addElement(elem));
 	}
 
+	/**
+	 * The depth at which nodes are coloured red by {@link #buildFromSorted(Iterator, int)}.
+	 */
+	private int redDepth;
+
+	@Override
+	protected void buildFromSorted(Iterator<? extends T> elements, int size) throws IllegalArgumentException {
+		// a perfectly balanced tree only has a partially filled bottom level. Colour that level red and the rest
+		// black, so every path has the same number of black nodes.
+		this.redDepth = 31 - Integer.numberOfLeadingZeros(size);
+		super.buildFromSorted(elements, size);
+
+		if (this.root != null) {
+			this.root.black = true;
+		}
+	}
+
+	@Override
+	protected void onBuild(Node node, int depth) {
+		node.black = depth != this.redDepth;
+	}
+
+	/**
+	 * Create a red-black tree from elements which are already sorted, in O(n) time.
+	 * @param elements the elements to store in the tree, in ascending order.
+	 * @param size the number of elements to take from the iterator.
+	 * @param <T> the type of element to store in the tree.
+	 * @return a perfectly balanced red-black tree containing the elements.
+	 * @throws IllegalArgumentException if the elements are not in ascending order.
+	 */
+	public static <T extends Comparable<T>> RedBlackTree<T> fromSorted(Iterator<? extends T> elements, int size) throws IllegalArgumentException {
+		RedBlackTree<T> tree = new RedBlackTree<>();
+		tree.buildFromSorted(elements, size);
+		return tree;
+	}
+
+	@Override
+	public boolean remove(T element) {
+		this.trace(TreeTracer.Event.REMOVE, element, null, 0);
+		Node node = this.find(element);
+
+		if (node == null) {
+			return false;
+		}
+
+		if (node.leftChild != null && node.rightChild != null) {
+			this.swapWithSuccessor(node, this.findMinNode(node.rightChild));
+		}
+
+		// the node now has at most one child
+		Node replacement = node.leftChild != null ? node.leftChild : node.rightChild;
+
+		if (node.black) {
+			if (replacement != null) {
+				// a lone child under a black node must be red. Making it black restores the black-height.
+				this.recolour(replacement, true);
+			} else {
+				// removing a black leaf shortens its paths. Fix up while the node is still in the tree, using it as
+				// the "double black" node.
+				this.balanceRemoval(node);
+			}
+		}
+
+		this.removeNode(node);
+		return true;
+	}
+
+	@Override
+	int shapeBits(Node node) {
+		return super.shapeBits(node) | (node.black ? BLACK : 0);
+	}
+
+	@Override
+	void applyShapeBits(Node node, int bits) {
+		node.black = (bits & BLACK) != 0;
+	}
+
+	@Override
+	protected void swapWithSuccessor(Node node, Node successor) {
+		super.swapWithSuccessor(node, successor);
+
+		// each takes the other's place, so takes the other's colour
+		boolean black = node.black;
+		node.black = successor.black;
+		successor.black = black;
+	}
+
+	/**
+	 * Restore the black-height properties after removing a black node, where the given node carries an extra
+	 * "double" blackness which must be pushed up the tree or absorbed.
+	 * @param node the double black node.
+	 */
+	private void balanceRemoval(Node node) {
+		while (node != this.root && node.black) {
+			Node parent = node.parent;
+			assert parent != null; // only the root has no parent
+			boolean isLeft = parent.leftChild == node;
+
+			// the brother is never null, as it must have at least the black-height of the double black node
+			Node brother = parent.getBrother(node);
+			assert brother != null;
+
+			// brother is red. Rotate it up so the brother is black.
+			if (!brother.black) {
+				this.recolour(brother, true);
+				this.recolour(parent, false);
+				this.rotate(brother);
+				brother = parent.getBrother(node);
+				assert brother != null;
+			}
+
+			Node nearNephew = isLeft ? brother.leftChild : brother.rightChild;
+			Node farNephew = isLeft ? brother.rightChild : brother.leftChild;
+
+			if (Node.isBlack(nearNephew) && Node.isBlack(farNephew)) {
+				// brother can become red, moving the double blackness up to the parent
+				this.record(TreeMetrics.Case.RED_BLACK_RECOLOUR);
+				this.recolour(brother, false);
+				node = parent;
+			} else {
+				// far nephew is black. Rotate the near nephew up so the far nephew is red.
+				if (Node.isBlack(farNephew)) {
+					assert nearNephew != null;
+					this.recolour(nearNephew, true);
+					this.recolour(brother, false);
+					this.rotate(nearNephew);
+					farNephew = brother;
+					brother = nearNephew;
+				}
+
+				// rotate brother to parent, absorbing the double blackness
+				this.recolour(brother, parent.black);
+				this.recolour(parent, true);
+				this.recolour(farNephew, true);
+				this.rotate(brother);
+				return;
+			}
+		}
+
+		this.recolour(node, true);
+	}
+
 	/**
 	 * Balance the node to maintain black-height properties.
 	 * @param node the node to balance.
@@ -25,7 +183,7 @@ public class RedBlackTree<T extends Comparable<T>> extends BinarySearchTree<T, R
 	private void balance(Node node) {
 		// root is black.
 		if (node.parent == null) {
-			node.black = true;
+			this.recolour(node, true);
 			return;
 		}
 
@@ -48,28 +206,78 @@ public class RedBlackTree<T extends Comparable<T>> extends BinarySearchTree<T, R
 			// Are we in a zig-zag or zig-zig pattern?
 			if (!node.isZigZig()) {
 				// transform into zig-zig pattern
+				this.record(TreeMetrics.Case.RED_BLACK_DOUBLE_ROTATION);
 				parent = this.rotate(node);
 				assert parent != null; // don't warn, it won't happen.
+			} else {
+				this.record(TreeMetrics.Case.RED_BLACK_SINGLE_ROTATION);
 			}
 
 			// rotate parent to grandparent
 			this.rotate(parent);
 
 			// new grandparent is black, old grandparent is red.
-			parent.black = true;
-			grandParent.black = false;
+			this.recolour(parent, true);
+			this.recolour(grandParent, false);
 		}
 		// uncle is red. Move blackness down from grandparent
 		else {
-			grandParent.black = false; // note: this is not the only violatable property, so cannot inline. grandParent.parent == null;
-			uncle.black = true;
-			node.parent.black = true;
+			this.record(TreeMetrics.Case.RED_BLACK_RECOLOUR);
+			this.recolour(grandParent, false); // note: this is not the only violatable property, so cannot inline. grandParent.parent == null;
+			this.recolour(uncle, true);
+			this.recolour(node.parent, true);
 
 			// check grandparent
 			this.balance(grandParent);
 		}
 	}
 
+	/**
+	 * Set the colour of a node, tracing the change if there is one.
+	 * @param node the node to colour.
+	 * @param black whether the node should be black.
+	 */
+	private void recolour(Node node, boolean black) {
+		if (node.black != black) {
+			// trace first, so replaying up to this event stops before the node changes colour
+			this.trace(TreeTracer.Event.RECOLOUR, node.elem, null, black ? 1 : 0);
+			node.black = black;
+		}
+	}
+
+	@Override
+	void checkInvariants() throws IllegalStateException {
+		super.checkInvariants();
+
+		if (!Node.isBlack(this.root)) {
+			throw new IllegalStateException("Root " + this.root.elem + " is red.");
+		}
+
+		this.checkBlackHeight(this.root);
+	}
+
+	/**
+	 * Check that no red node in the given subtree has a red child, and that every path down it has the same number of
+	 * black nodes.
+	 * @return the black height of the subtree, counting the null leaves.
+	 */
+	private int checkBlackHeight(@Nullable Node node) throws IllegalStateException {
+		if (node == null) return 1;
+
+		if (!node.black && !(Node.isBlack(node.leftChild) && Node.isBlack(node.rightChild))) {
+			throw new IllegalStateException("Red node " + node.elem + " has a red child.");
+		}
+
+		int left = this.checkBlackHeight(node.leftChild);
+		int right = this.checkBlackHeight(node.rightChild);
+
+		if (left != right) {
+			throw new IllegalStateException("Paths below " + node.elem + " have black heights " + left + " and " + right + ".");
+		}
+
+		return left + (node.black ? 1 : 0);
+	}
+
 	class Node extends BinarySearchTree<T, Node>.Node {
 		Node(T elem) {
 			super(elem);
@@ -1,10 +1,26 @@
 package valoeghese.datastructures;
 
+import java.util.Comparator;
+
 /**
  * A simple binary search tree, with no self-balancing properties.
  * @param <T> the type of data to store in the tree.
  */
 public final class SimpleBinarySearchTree<T extends Comparable<T>> extends BinarySearchTree<T, SimpleBinarySearchTree<T>.Node> {
+	/**
+	 * Create a binary search tree ordering its elements by their natural ordering.
+	 */
+	public SimpleBinarySearchTree() {
+	}
+
+	/**
+	 * Create a binary search tree ordering its elements by the given comparator.
+	 * @param comparator the comparator to order elements by.
+	 */
+	public SimpleBinarySearchTree(Comparator<? super T> comparator) {
+		super(comparator);
+	}
+
 	@Override
 	protected Node createNode(T elem) {
 		return new Node(elem);
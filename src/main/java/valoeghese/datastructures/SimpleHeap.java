@@ -17,21 +17,59 @@ public class SimpleHeap<T extends Comparable<T>> implements Heap<T> {
 		this.priorityComparator = priorityComparator;
 	}
 
+	/**
+	 * Create a heap containing the given elements. The heap is built in O(n) time.
+	 * @param priorityComparator the comparator determining priority. Higher compares as higher priority.
+	 * @param elements the elements to initially store in the heap.
+	 */
+	public SimpleHeap(Comparator<T> priorityComparator, T[] elements) {
+		this(priorityComparator);
+		this.addAll(elements);
+	}
+
 	private Comparator<T> priorityComparator;
 
 	@Override
 	public void add(T elem) {
 		this.elements.add(elem);
-		this.heapify(this.size() - 1);
+		this.siftUp(this.size() - 1);
 	}
 
 	/**
-	 * Heapify the heap from the given start index.
-	 * @param startIndex the index to start heapifying from.
+	 * Add all the given elements to the heap. If at least as many elements are being added as are already in the
+	 * heap, the heap is rebuilt bottom-up in O(n) time (Floyd's method) rather than adding each individually.
+	 * @param elems the elements to add.
 	 */
-	private void heapify(int startIndex) {
+	public void addAll(T[] elems) {
+		int oldSize = this.size();
+		this.elements.addAll(elems);
+
+		if (elems.length >= oldSize) {
+			this.heapify();
+		} else {
+			for (int i = oldSize; i < this.size(); i++) {
+				this.siftUp(i);
+			}
+		}
+	}
+
+	/**
+	 * Restore the heap order of every element, bottom-up in O(n) time (Floyd's method).
+	 */
+	void heapify() {
+		// sift down every node with children, starting from the last parent
+		for (int i = this.size() / 2 - 1; i >= 0; i--) {
+			this.siftDown(i);
+		}
+	}
+
+	/**
+	 * Move the element at the given index up the heap until its parent has a higher priority.
+	 * @param startIndex the index to start sifting from.
+	 */
+	private void siftUp(int startIndex) {
 		while (startIndex > 0) {
-			int parent = startIndex/2;
+			int parent = (startIndex - 1) / 2;
 
 			// if parent>child we are done
 			if (this.priorityComparator.compare(this.elements.get(parent), this.elements.get(startIndex)) > 0) {
@@ -43,6 +81,30 @@ public class SimpleHeap<T extends Comparable<T>> implements Heap<T> {
 		}
 	}
 
+	/**
+	 * Move the element at the given index down the heap until neither of its children have a higher priority.
+	 * @param startIndex the index to start sifting from.
+	 */
+	private void siftDown(int startIndex) {
+		int size = this.size();
+		int child;
+
+		while ((child = 2 * startIndex + 1) < size) {
+			// pick the child with the higher priority
+			if (child + 1 < size && this.priorityComparator.compare(this.elements.get(child + 1), this.elements.get(child)) > 0) {
+				child++;
+			}
+
+			// if parent>=child we are done
+			if (this.priorityComparator.compare(this.elements.get(startIndex), this.elements.get(child)) >= 0) {
+				break;
+			}
+
+			this.elements.swap(startIndex, child);
+			startIndex = child;
+		}
+	}
+
 	@Override
 	public @Nullable T top() {
 		return this.elements.isEmpty() ? null : this.elements.get(0);
@@ -50,11 +112,37 @@ public class SimpleHeap<T extends Comparable<T>> implements Heap<T> {
 
 	@Override
 	public T remove() throws NoSuchElementException {
-		try {
-			return this.elements.remove(0);
-		} catch (IndexOutOfBoundsException e) {
-			throw new NoSuchElementException("Cannot remove element from heap as heap is empty.", e);
+		if (this.elements.isEmpty()) {
+			throw new NoSuchElementException("Cannot remove element from heap as heap is empty.");
 		}
+
+		// move the last element to the root and restore the heap order below it
+		int last = this.size() - 1;
+		this.elements.swap(0, last);
+		T result = this.elements.remove(last);
+		this.siftDown(0);
+		return result;
+	}
+
+	@Override
+	public boolean remove(T element) {
+		int index = this.elements.indexOf(element);
+
+		if (index == this.elements.noElement()) {
+			return false;
+		}
+
+		// move the last element into the gap, then restore the heap order around it
+		int last = this.size() - 1;
+		this.elements.swap(index, last);
+		this.elements.remove(last);
+
+		if (index < last) {
+			this.siftDown(index);
+			this.siftUp(index);
+		}
+
+		return true;
 	}
 
 	// nothing is assumed about the heap in this implementation. Blind search the array.
@@ -95,6 +183,29 @@ public class SimpleHeap<T extends Comparable<T>> implements Heap<T> {
 		return this.elements.size();
 	}
 
+	/**
+	 * Iterate over the elements of this heap, in the order they are stored in the heap array.
+	 * @return an iterator over the elements of this heap.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return this.elements.iterator();
+	}
+
+	/**
+	 * Check that no element has a higher priority than its parent. This walks the whole heap, so is meant for tests.
+	 * @throws IllegalStateException if the heap order is broken.
+	 */
+	void checkInvariants() throws IllegalStateException {
+		for (int i = 1; i < this.size(); i++) {
+			int parent = (i - 1) / 2;
+
+			if (this.priorityComparator.compare(this.elements.get(parent), this.elements.get(i)) < 0) {
+				throw new IllegalStateException("Element " + this.elements.get(i) + " at " + i + " has a higher priority than its parent " + this.elements.get(parent) + ".");
+			}
+		}
+	}
+
 	/**
 	 * Create a new min heap.
 	 * @param <T> the type of data to store in the heap.
@@ -103,6 +214,17 @@ public class SimpleHeap<T extends Comparable<T>> implements Heap<T> {
 		return new MinHeap<>();
 	}
 
+	/**
+	 * Create a new min heap containing the given elements, built in O(n) time.
+	 * @param elements the elements to initially store in the heap.
+	 * @param <T> the type of data to store in the heap.
+	 */
+	public static <T extends Comparable<T>> SimpleHeap<T> newMinHeap(T[] elements) {
+		SimpleHeap<T> heap = new MinHeap<>();
+		heap.addAll(elements);
+		return heap;
+	}
+
 	/**
 	 * Create a new max heap.
 	 * @param <T> the type of data to store in the heap.
@@ -111,15 +233,15 @@ public class SimpleHeap<T extends Comparable<T>> implements Heap<T> {
 		return new MaxHeap<>();
 	}
 
-	private static int bits(int num) {
-		int result = 0;
-
-		while (num > 0) {
-			num >>= 1;
-			result++;
-		}
-
-		return result;
+	/**
+	 * Create a new max heap containing the given elements, built in O(n) time.
+	 * @param elements the elements to initially store in the heap.
+	 * @param <T> the type of data to store in the heap.
+	 */
+	public static <T extends Comparable<T>> SimpleHeap<T> newMaxHeap(T[] elements) {
+		SimpleHeap<T> heap = new MaxHeap<>();
+		heap.addAll(elements);
+		return heap;
 	}
 
 	private static class MinHeap<T extends Comparable<T>> extends SimpleHeap<T> {
@@ -131,11 +253,8 @@ public class SimpleHeap<T extends Comparable<T>> implements Heap<T> {
 		public @Nullable T findMax() {
 			SkippingIterator<T> iterator = this.elements.iterator();
 
-			int layers = SimpleHeap.bits(this.size() - 1);
-
-			if (layers > 1) {
-				iterator.skip((1 << (layers - 1)));
-			}
+			// the extreme element must be a leaf. Leaves start after the last parent.
+			iterator.skip(this.size() / 2);
 
 			T largest = null;
 
@@ -163,18 +282,15 @@ public class SimpleHeap<T extends Comparable<T>> implements Heap<T> {
 
 		@Override
 		public @Nullable T findMax() {
-			return this.remove();
+			return this.top();
 		}
 
 		@Override
 		public @Nullable T findMin() {
 			SkippingIterator<T> iterator = this.elements.iterator();
 
-			int layers = SimpleHeap.bits(this.size() - 1);
-
-			if (layers > 1) {
-				iterator.skip((1 << (layers - 1)));
-			}
+			// the extreme element must be a leaf. Leaves start after the last parent.
+			iterator.skip(this.size() / 2);
 
 			T smallest = null;
 
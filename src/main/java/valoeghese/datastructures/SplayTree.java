@@ -1,26 +1,91 @@
 package valoeghese.datastructures;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Comparator;
+
 /**
  * A splay tree. More frequently accessed elements are closer to the root, making them quick to access again.
- * Over time this should result in a reasonably self-balanced tree.
+ * Over time this should result in a reasonably self-balanced tree. <br>
+ * How accessed nodes are moved up is chosen by the {@link Splaying} given on construction. By default, nodes are
+ * splayed bottom-up.
  */
 public final class SplayTree<T extends Comparable<T>> extends BinarySearchTree<T, SplayTree<T>.Node> {
+	/**
+	 * Create a splay tree which splays bottom-up.
+	 */
+	public SplayTree() {
+		this(Splaying.BOTTOM_UP);
+	}
+
+	/**
+	 * Create a splay tree which splays in the given way.
+	 * @param splaying how to move accessed nodes up the tree.
+	 */
+	public SplayTree(Splaying splaying) {
+		this.splaying = splaying;
+	}
+
+	/**
+	 * Create a splay tree which splays bottom-up, ordering its elements by the given comparator.
+	 * @param comparator the comparator to order elements by.
+	 */
+	public SplayTree(Comparator<? super T> comparator) {
+		this(Splaying.BOTTOM_UP, comparator);
+	}
+
+	/**
+	 * Create a splay tree which splays in the given way, ordering its elements by the given comparator.
+	 * @param splaying how to move accessed nodes up the tree.
+	 * @param comparator the comparator to order elements by.
+	 */
+	public SplayTree(Splaying splaying, Comparator<? super T> comparator) {
+		super(comparator);
+		this.splaying = splaying;
+	}
+
+	private final Splaying splaying;
+	/**
+	 * The number of comparisons made by the last top-down splay.
+	 */
+	private int comparisons;
+
 	@Override
 	protected Node createNode(T elem) {
 		return new Node(elem);
 	}
 
+	/**
+	 * @return how this tree moves accessed nodes up the tree.
+	 */
+	public Splaying splaying() {
+		return this.splaying;
+	}
+
 	@Override
 	public void add(T elem) {
-		this.makeRoot(this.addElement(elem));
+		if (this.splaying == Splaying.TOP_DOWN) {
+			this.addTopDown(elem);
+		} else {
+			this.splay(this.addElement(elem));
+		}
 	}
 
 	@Override
 	public boolean contains(T element) {
+		if (this.splaying == Splaying.TOP_DOWN) {
+			int comparison = this.splayTopDown(element, 0);
+			boolean found = this.root != null && comparison == 0;
+			this.recordSearch(found);
+			this.trace(found ? TreeTracer.Event.FIND_HIT : TreeTracer.Event.FIND_MISS, element, null, 0);
+			return found;
+		}
+
 		Node node = this.find(element);
+		this.trace(node != null ? TreeTracer.Event.FIND_HIT : TreeTracer.Event.FIND_MISS, element, null, 0);
 
 		if (node != null) {
-			this.makeRoot(node);
+			this.splay(node);
 			return true;
 		}
 
@@ -29,35 +94,406 @@ public final class SplayTree<T extends Comparable<T>> extends BinarySearchTree<T
 
 	@Override
 	public T findMin() {
+		if (this.splaying == Splaying.TOP_DOWN) {
+			this.splayTopDown(null, -1);
+			this.trace(TreeTracer.Event.FIND_MIN, this.root.elem, null, 0);
+			return this.root.elem;
+		}
+
 		Node minNode = super.findMinNode();
-		this.makeRoot(minNode);
+		this.trace(TreeTracer.Event.FIND_MIN, minNode.elem, null, 0);
+		this.splay(minNode);
 		return minNode.elem;
 	}
 
 	@Override
 	public T findMax() {
+		if (this.splaying == Splaying.TOP_DOWN) {
+			this.splayTopDown(null, 1);
+			this.trace(TreeTracer.Event.FIND_MAX, this.root.elem, null, 0);
+			return this.root.elem;
+		}
+
 		Node maxNode = super.findMaxNode();
-		this.makeRoot(maxNode);
+		this.trace(TreeTracer.Event.FIND_MAX, maxNode.elem, null, 0);
+		this.splay(maxNode);
 		return maxNode.elem;
 	}
 
+	@Override
+	public boolean remove(T element) {
+		this.trace(TreeTracer.Event.REMOVE, element, null, 0);
+		Node node;
+
+		if (this.splaying == Splaying.TOP_DOWN) {
+			if (this.splayTopDown(element, 0) != 0 || this.root == null) {
+				return false;
+			}
+
+			node = this.root;
+		} else {
+			node = this.find(element);
+
+			if (node == null) {
+				return false;
+			}
+
+			// splay the node to the root, then join its subtrees
+			this.makeRoot(node);
+		}
+
+		Node left = node.leftChild;
+		Node right = node.rightChild;
+		this.onNodeRemoved(node);
+
+		if (left == null) {
+			this.root = right;
+			if (right != null) right.parent = null;
+		} else {
+			// splay the maximum of the left subtree to its root. It then has no right child, so the right subtree can
+			// be attached there.
+			left.parent = null;
+			this.root = left;
+
+			try {
+				if (this.splaying == Splaying.TOP_DOWN) {
+					this.splayTopDown(null, 1);
+				} else {
+					this.makeRoot(this.findMaxNode(left));
+				}
+			} finally {
+				// the maximum is the root, unless the splay was stopped part way, such as by a replay reaching its
+				// limit. The right subtree is then attached below wherever the maximum is, so it is not lost.
+				Node max = this.root;
+				while (max.rightChild != null) max = max.rightChild;
+
+				max.rightChild = right;
+				if (right != null) right.parent = max;
+
+				for (Node ancestor = max; ancestor != null; ancestor = ancestor.parent) {
+					ancestor.updateSize();
+				}
+			}
+		}
+
+		node.leftChild = null;
+		node.rightChild = null;
+		return true;
+	}
+
+	// Bottom-up Splaying //
+
+	/**
+	 * Move an accessed node up the tree, bottom-up.
+	 */
+	private void splay(Node node) {
+		if (this.splaying == Splaying.SEMI) {
+			this.semiSplay(node);
+		} else {
+			this.makeRoot(node);
+		}
+	}
+
 	private void makeRoot(Node elem) {
+		// one splay step per iteration, each recorded once
 		while (elem.parent != null) {
-			// if straight line (/ or \) from grandparent, rotate parent first, then child
-			if (elem.isZigZig()) {
+			if (elem.parent.parent == null) {
+				// zig: a child of the root, rotate it up once
+				this.splayStep(elem, TreeMetrics.Case.SPLAY_ZIG);
+				this.rotate(elem);
+			} else if (elem.isZigZig()) {
+				// zig-zig: straight line (/ or \) from grandparent, rotate parent first, then child
+				this.splayStep(elem, TreeMetrics.Case.SPLAY_ZIG_ZIG);
 				this.rotate(elem.parent);
+				this.rotate(elem);
 			} else {
-				// zig-zag rotation, rotate elem twice
+				// zig-zag: rotate elem twice
+				this.splayStep(elem, TreeMetrics.Case.SPLAY_ZIG_ZAG);
+				this.rotate(elem);
 				this.rotate(elem);
 			}
 		}
+	}
+
+	/**
+	 * Semi-splay a node. A zig-zig step only rotates the parent up, and continues from the parent rather than the
+	 * node, so the path is roughly halved in length with half the rotations of a full splay. A child of the root is
+	 * left where it is.
+	 */
+	private void semiSplay(Node node) {
+		while (node.parent != null && node.parent.parent != null) {
+			Node parent = node.parent;
+
+			if (node.isZigZig()) {
+				this.splayStep(node, TreeMetrics.Case.SPLAY_ZIG_ZIG);
+				this.rotate(parent);
+				node = parent;
+			} else {
+				this.splayStep(node, TreeMetrics.Case.SPLAY_ZIG_ZAG);
+				this.rotate(node);
+				this.rotate(node);
+			}
+		}
+	}
+
+	private void splayStep(Node elem, TreeMetrics.Case step) {
+		this.record(step);
+		this.trace(TreeTracer.Event.SPLAY_STEP, elem.elem, null, step.ordinal());
+	}
+
+	// Top-down Splaying //
+
+	private void addTopDown(T elem) {
+		this.trace(TreeTracer.Event.INSERT, elem, null, 0);
+		Node node = this.createNode(elem);
+
+		if (this.root == null) {
+			this.onNodeAdded(node);
+			this.root = node;
+			this.comparisons = 0;
+			this.recordSearch(false);
+			return;
+		}
+
+		// the root is then the last node on the search path, so the new node splits the tree around it. The node is
+		// only counted once the splay is done, as a replay may stop part way through it.
+		boolean left = this.splayTopDown(elem, 0) < 0;
+		Node oldRoot = this.root;
+		this.onNodeAdded(node);
+
+		if (left) {
+			node.link(oldRoot.leftChild, true);
+			oldRoot.leftChild = null;
+			node.link(oldRoot, false);
+		} else {
+			node.link(oldRoot.rightChild, false);
+			oldRoot.rightChild = null;
+			node.link(oldRoot, true);
+		}
+
+		oldRoot.updateSize();
+		node.updateSize();
+		this.root = node;
+		this.recordSearch(false);
+	}
+
+	/**
+	 * Splay top-down, restructuring the tree in a single pass down the search path without following parent links.
+	 * Nodes passed on the way down are split off into a left tree of smaller elements and a right tree of larger
+	 * elements, which become the subtrees of the last node on the path once it is reached. The subtree sizes of the
+	 * split off nodes are fixed in a second pass, along the edges of the left and right trees only.
+	 * @param element the element to search for, or null to always move in one direction.
+	 * @param direction the direction to move when the element is null: -1 for the minimum, 1 for the maximum.
+	 * @return the comparison of the element with the element at the new root, or the direction if the element is null.
+	 * If the tree is empty, 0.
+	 */
+	private int splayTopDown(@Nullable T element, int direction) {
+		Node node = this.root;
+		if (node == null) return 0;
+
+		// the left tree is built down its right edge, and the right tree down its left edge
+		Node leftRoot = null;
+		Node leftLast = null;
+		Node rightRoot = null;
+		Node rightLast = null;
+		int leftSize = 0;
+		int rightSize = 0;
+
+		this.comparisons = 0;
+		int comparison = this.compareTo(element, direction, node);
+
+		try {
+			while (comparison != 0) {
+				if (comparison < 0) {
+					Node child = node.leftChild;
+					if (child == null) break;
+
+					int childComparison = this.compareTo(element, direction, child);
+
+					if (childComparison < 0 && child.leftChild != null) {
+						// zig-zig: rotate the child up, then split it off to the right
+						this.splayStep(node, TreeMetrics.Case.SPLAY_ZIG_ZIG);
+						this.onRotation(child, node);
+						node.leftChild = child.rightChild;
+						if (node.leftChild != null) node.leftChild.parent = node;
+						child.rightChild = node;
+						node.parent = child;
+						node.updateSize();
+
+						rightSize += 1 + Node.size(node);
+						if (rightLast == null) rightRoot = child; else rightLast.link(child, true);
+						rightLast = child;
+
+						node = child.leftChild;
+						comparison = this.compareTo(element, direction, node);
+					} else if (childComparison > 0 && child.rightChild != null) {
+						// zig-zag: split the node off to the right, and the child to the left
+						this.splayStep(node, TreeMetrics.Case.SPLAY_ZIG_ZAG);
+						rightSize += 1 + Node.size(node.rightChild);
+						if (rightLast == null) rightRoot = node; else rightLast.link(node, true);
+						rightLast = node;
+
+						leftSize += 1 + Node.size(child.leftChild);
+						if (leftLast == null) leftRoot = child; else leftLast.link(child, false);
+						leftLast = child;
+
+						node = child.rightChild;
+						comparison = this.compareTo(element, direction, node);
+					} else {
+						// zig: split the node off to the right
+						this.splayStep(node, TreeMetrics.Case.SPLAY_ZIG);
+						rightSize += 1 + Node.size(node.rightChild);
+						if (rightLast == null) rightRoot = node; else rightLast.link(node, true);
+						rightLast = node;
+
+						node = child;
+						comparison = childComparison;
+					}
+				} else {
+					Node child = node.rightChild;
+					if (child == null) break;
+
+					int childComparison = this.compareTo(element, direction, child);
+
+					if (childComparison > 0 && child.rightChild != null) {
+						this.splayStep(node, TreeMetrics.Case.SPLAY_ZIG_ZIG);
+						this.onRotation(child, node);
+						node.rightChild = child.leftChild;
+						if (node.rightChild != null) node.rightChild.parent = node;
+						child.leftChild = node;
+						node.parent = child;
+						node.updateSize();
+
+						leftSize += 1 + Node.size(node);
+						if (leftLast == null) leftRoot = child; else leftLast.link(child, false);
+						leftLast = child;
+
+						node = child.rightChild;
+						comparison = this.compareTo(element, direction, node);
+					} else if (childComparison < 0 && child.leftChild != null) {
+						this.splayStep(node, TreeMetrics.Case.SPLAY_ZIG_ZAG);
+						leftSize += 1 + Node.size(node.leftChild);
+						if (leftLast == null) leftRoot = node; else leftLast.link(node, false);
+						leftLast = node;
+
+						rightSize += 1 + Node.size(child.rightChild);
+						if (rightLast == null) rightRoot = child; else rightLast.link(child, true);
+						rightLast = child;
+
+						node = child.leftChild;
+						comparison = this.compareTo(element, direction, node);
+					} else {
+						this.splayStep(node, TreeMetrics.Case.SPLAY_ZIG);
+						leftSize += 1 + Node.size(node.leftChild);
+						if (leftLast == null) leftRoot = node; else leftLast.link(node, false);
+						leftLast = node;
+
+						node = child;
+						comparison = childComparison;
+					}
+				}
+			}
+		} finally {
+			// every node passed has been split off whole, so if the splay is stopped part way, such as by a replay
+			// reaching its limit, the tree is still reassembled around the node reached
+			leftSize += Node.size(node.leftChild);
+			rightSize += Node.size(node.rightChild);
+
+			// fix the sizes down the edges the trees were built along, before the node's subtrees are attached below them
+			if (leftLast != null) {
+				leftLast.rightChild = null;
+
+				for (Node edge = leftRoot; edge != null; edge = edge.rightChild) {
+					edge.size = leftSize;
+					leftSize -= 1 + Node.size(edge.leftChild);
+				}
+
+				leftLast.link(node.leftChild, false);
+				node.link(leftRoot, true);
+			}
+
+			if (rightLast != null) {
+				rightLast.leftChild = null;
+
+				for (Node edge = rightRoot; edge != null; edge = edge.leftChild) {
+					edge.size = rightSize;
+					rightSize -= 1 + Node.size(edge.rightChild);
+				}
+
+				rightLast.link(node.rightChild, true);
+				node.link(rightRoot, false);
+			}
+
+			node.updateSize();
+			node.parent = null;
+			this.root = node;
+		}
 
-		this.rotate(elem);
+		return comparison;
+	}
+
+	private int compareTo(@Nullable T element, int direction, Node node) {
+		if (element == null) return direction;
+
+		this.comparisons++;
+		return this.compare(element, node.elem);
+	}
+
+	/**
+	 * Record the search made by the last top-down splay in the metrics, if enabled.
+	 * @param found whether the search ended at the element searched for.
+	 */
+	private void recordSearch(boolean found) {
+		TreeMetrics metrics = this.metrics();
+
+		if (metrics != null) {
+			// one comparison per node on the path, so a hit ends at the last node compared and a miss below it
+			metrics.recordSearch(found ? this.comparisons - 1 : this.comparisons, this.comparisons);
+		}
+	}
+
+	// Types //
+
+	/**
+	 * Ways a splay tree can move accessed nodes up the tree.
+	 */
+	public enum Splaying {
+		/**
+		 * Find the node, then rotate it up to the root following the parent links. The classic splay.
+		 */
+		BOTTOM_UP,
+		/**
+		 * Splay in a single pass down the search path, without following parent links. Makes fewer writes than
+		 * bottom-up splaying, as the nodes passed are relinked once rather than rotated repeatedly, and touches each
+		 * node on the path in one pass.
+		 */
+		TOP_DOWN,
+		/**
+		 * Semi-splay bottom-up, moving accessed nodes about half way to the root with about half the rotations. Suits
+		 * read-heavy workloads skewed towards a set of hot elements, which stay near the root without the restructuring
+		 * of a full splay on every access. Removal still splays fully.
+		 */
+		SEMI
 	}
 
 	class Node extends BinarySearchTree<T, Node>.Node {
 		Node(T elem) {
 			super(elem);
 		}
+
+		/**
+		 * Set a child of this node, and the child's parent.
+		 * @param child the new child, or null.
+		 * @param left whether to set the left child rather than the right.
+		 */
+		private void link(@Nullable Node child, boolean left) {
+			if (left) {
+				this.leftChild = child;
+			} else {
+				this.rightChild = child;
+			}
+
+			if (child != null) child.parent = this;
+		}
 	}
 }
@@ -2,17 +2,30 @@ package valoeghese.datastructures;
 
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
- * Interface for interacting with any tree.
+ * Interface for interacting with any tree. Iterating over a search tree visits its elements in ascending order;
+ * other trees, such as heaps, may iterate in any order.
  * @param <T> the type of element to store in the tree.
  */
-public interface Tree<T> {
+public interface Tree<T> extends Iterable<T> {
 	/**
 	 * Add the given element to the binary search tree.
 	 * @param elem the element to add.
 	 */
 	void add(T elem);
 
+	/**
+	 * Remove one occurrence of the given element from the tree, if present.
+	 * @param element the element to remove.
+	 * @return whether the element was found and removed.
+	 */
+	boolean remove(T element);
+
 	/**
 	 * Checks whether the tree contains the given element.
 	 * @param element the element to look for in the tree.
@@ -40,6 +53,31 @@ public interface Tree<T> {
 	 */
 	int size();
 
+	/**
+	 * Create a spliterator over the elements of this tree, which knows its size.
+	 * @return a spliterator over the elements of this tree.
+	 */
+	@Override
+	default Spliterator<T> spliterator() {
+		return Spliterators.spliterator(this.iterator(), this.size(), Spliterator.NONNULL);
+	}
+
+	/**
+	 * Create a sequential stream over the elements of this tree.
+	 * @return a stream of the elements of this tree.
+	 */
+	default Stream<T> stream() {
+		return StreamSupport.stream(this.spliterator(), false);
+	}
+
+	/**
+	 * Create a parallel stream over the elements of this tree.
+	 * @return a possibly parallel stream of the elements of this tree.
+	 */
+	default Stream<T> parallelStream() {
+		return StreamSupport.stream(this.spliterator(), true);
+	}
+
 	/**
 	 * Get whether this tree is empty.
 	 * @return whether this tree is empty.
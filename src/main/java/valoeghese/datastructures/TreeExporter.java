@@ -0,0 +1,327 @@
+package valoeghese.datastructures;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Exports {@link TreeLayout tree layouts} as SVG, Graphviz DOT and PNG images. Red-black trees are drawn with their
+ * colours, and AVL trees with the height of each node beneath it. <br>
+ * SVG and DOT are streamed to an {@link Appendable} node by node, so only the layout is held in memory. PNG images
+ * are drawn off screen and so work headless, and are scaled down to fit a maximum size, each axis separately. Once
+ * nodes are too small for their labels to be legible, the labels are left out.
+ */
+public final class TreeExporter {
+	private TreeExporter() {
+	}
+
+	/**
+	 * Pixels between adjacent horizontal positions of the layout.
+	 */
+	private static final int UNIT = 14;
+
+	/**
+	 * Pixels between levels of the layout.
+	 */
+	private static final int LEVEL = 48;
+
+	/**
+	 * The fewest pixels between levels when a PNG image is scaled down.
+	 */
+	private static final int MIN_LEVEL = 6;
+
+	private static final int RADIUS = 11;
+	private static final int MARGIN = RADIUS + 12;
+
+	private static final Color RED = new Color(0xDD2222);
+	private static final Color BLACK = new Color(0x222222);
+	private static final Color OUTLINE = new Color(0x333333);
+
+	// SVG //
+
+	/**
+	 * Write the layout as an SVG image.
+	 * @param layout the layout to draw.
+	 * @param output where to write the image.
+	 * @throws IOException if writing fails.
+	 */
+	public static void writeSvg(TreeLayout layout, Appendable output) throws IOException {
+		output.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(String.valueOf(imageWidth(layout)))
+				.append("\" height=\"").append(String.valueOf(imageHeight(layout)))
+				.append("\" font-family=\"sans-serif\" font-size=\"10\" text-anchor=\"middle\">\n");
+
+		// edges first, so nodes are drawn over them
+		output.append("<g stroke=\"#888\">\n");
+
+		for (int node = 0; node < layout.size(); node++) {
+			svgEdge(output, layout, node, layout.left(node));
+			svgEdge(output, layout, node, layout.right(node));
+		}
+
+		output.append("</g>\n<g stroke=\"#333\">\n");
+
+		for (int node = 0; node < layout.size(); node++) {
+			String cx = String.valueOf(pixelX(layout, node));
+			String cy = String.valueOf(pixelY(layout, node));
+			byte style = layout.style(node);
+
+			output.append("<circle cx=\"").append(cx).append("\" cy=\"").append(cy).append("\" r=\"").append(String.valueOf(RADIUS))
+					.append("\" fill=\"").append(style == TreeLayout.RED ? "#d22" : style == TreeLayout.BLACK ? "#222" : "#fff").append("\"/>");
+
+			output.append("<text x=\"").append(cx).append("\" y=\"").append(String.valueOf(pixelY(layout, node) + 4))
+					.append("\" stroke=\"none\" fill=\"").append(style == TreeLayout.PLAIN ? "#000" : "#fff").append("\">");
+			escapeXml(output, String.valueOf(layout.element(node)));
+			output.append("</text>");
+
+			if (layout.avlHeight(node) >= 0) {
+				output.append("<text x=\"").append(cx).append("\" y=\"").append(String.valueOf(pixelY(layout, node) + RADIUS + 10))
+						.append("\" stroke=\"none\" fill=\"#666\" font-size=\"8\">h").append(String.valueOf(layout.avlHeight(node))).append("</text>");
+			}
+
+			output.append('\n');
+		}
+
+		output.append("</g>\n</svg>\n");
+	}
+
+	private static void svgEdge(Appendable output, TreeLayout layout, int parent, int child) throws IOException {
+		if (child == TreeLayout.NIL) return;
+
+		output.append("<line x1=\"").append(String.valueOf(pixelX(layout, parent)))
+				.append("\" y1=\"").append(String.valueOf(pixelY(layout, parent)))
+				.append("\" x2=\"").append(String.valueOf(pixelX(layout, child)))
+				.append("\" y2=\"").append(String.valueOf(pixelY(layout, child))).append("\"/>\n");
+	}
+
+	private static void escapeXml(Appendable output, String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			switch (c) {
+			case '<':
+				output.append("&lt;");
+				break;
+			case '>':
+				output.append("&gt;");
+				break;
+			case '&':
+				output.append("&amp;");
+				break;
+			case '"':
+				output.append("&quot;");
+				break;
+			default:
+				output.append(c);
+			}
+		}
+	}
+
+	// DOT //
+
+	/**
+	 * Write the layout as a Graphviz DOT graph. Node positions are included, so the graph can be drawn with the layout
+	 * already computed by running {@code neato -n}, rather than having Graphviz lay out a large tree itself.
+	 * @param layout the layout to write.
+	 * @param output where to write the graph.
+	 * @throws IOException if writing fails.
+	 */
+	public static void writeDot(TreeLayout layout, Appendable output) throws IOException {
+		output.append("digraph tree {\n\tnode [shape=circle, style=filled, fillcolor=white];\n");
+
+		for (int node = 0; node < layout.size(); node++) {
+			output.append("\tn").append(String.valueOf(node)).append(" [label=\"");
+			escapeDot(output, String.valueOf(layout.element(node)));
+			output.append("\", pos=\"").append(String.valueOf(pixelX(layout, node))).append(',')
+					.append(String.valueOf(-pixelY(layout, node))).append("!\"");
+
+			byte style = layout.style(node);
+
+			if (style != TreeLayout.PLAIN) {
+				output.append(", fillcolor=").append(style == TreeLayout.RED ? "red" : "black").append(", fontcolor=white");
+			}
+
+			if (layout.avlHeight(node) >= 0) {
+				output.append(", xlabel=\"h").append(String.valueOf(layout.avlHeight(node))).append('"');
+			}
+
+			output.append("];\n");
+
+			if (layout.left(node) != TreeLayout.NIL) {
+				output.append("\tn").append(String.valueOf(node)).append(" -> n").append(String.valueOf(layout.left(node))).append(";\n");
+			}
+
+			if (layout.right(node) != TreeLayout.NIL) {
+				output.append("\tn").append(String.valueOf(node)).append(" -> n").append(String.valueOf(layout.right(node))).append(";\n");
+			}
+		}
+
+		output.append("}\n");
+	}
+
+	private static void escapeDot(Appendable output, String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') output.append('\\');
+			output.append(c);
+		}
+	}
+
+	// PNG //
+
+	/**
+	 * Draw the layout as a PNG image, scaled down if necessary to fit within the given size. The axes are scaled
+	 * separately, as a large tree is far wider than it is deep, and each level keeps at least {@link #MIN_LEVEL}
+	 * pixels from the next. Levels too deep to fit at that spacing are left out. Nodes are shrunk to the space around
+	 * them on their level, so the upper levels of a large tree are still drawn in full, with labels.
+	 * @param layout the layout to draw.
+	 * @param output where to write the image. It is not closed.
+	 * @param maxWidth the maximum width of the image, in pixels.
+	 * @param maxHeight the maximum height of the image, in pixels.
+	 * @throws IOException if writing fails.
+	 */
+	public static void writePng(TreeLayout layout, OutputStream output, int maxWidth, int maxHeight) throws IOException {
+		double scaleX = Math.min(1.0, (double) maxWidth / imageWidth(layout));
+		double scaleY = Math.max((double) MIN_LEVEL / LEVEL, Math.min(1.0, (double) maxHeight / imageHeight(layout)));
+		int width = Math.max(1, (int) (imageWidth(layout) * scaleX));
+		int height = Math.max(1, Math.min(maxHeight, (int) (imageHeight(layout) * scaleY)));
+
+		// the radius of the nodes on each level, from the closest two nodes on it
+		int[] radii = levelRadii(layout, scaleX, scaleY);
+
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+
+		try {
+			graphics.setColor(Color.WHITE);
+			graphics.fillRect(0, 0, width, height);
+
+			graphics.setStroke(new BasicStroke((float) Math.max(0.5, scaleY)));
+			graphics.setColor(Color.GRAY);
+
+			for (int node = 0; node < layout.size(); node++) {
+				int y = (int) (pixelY(layout, node) * scaleY);
+				if (y >= height) continue;
+
+				int x = (int) (pixelX(layout, node) * scaleX);
+
+				// edges to left out levels are clipped at the bottom of the image
+				if (layout.left(node) != TreeLayout.NIL) {
+					graphics.drawLine(x, y, (int) (pixelX(layout, layout.left(node)) * scaleX), (int) (pixelY(layout, layout.left(node)) * scaleY));
+				}
+
+				if (layout.right(node) != TreeLayout.NIL) {
+					graphics.drawLine(x, y, (int) (pixelX(layout, layout.right(node)) * scaleX), (int) (pixelY(layout, layout.right(node)) * scaleY));
+				}
+			}
+
+			Font font = graphics.getFont().deriveFont(10.0f);
+			boolean antialiased = false;
+
+			for (int node = 0; node < layout.size(); node++) {
+				int y = (int) (pixelY(layout, node) * scaleY);
+				if (y >= height) continue;
+
+				int x = (int) (pixelX(layout, node) * scaleX);
+				int radius = radii[layout.depth(node)];
+				byte style = layout.style(node);
+
+				if (radius < 3) {
+					graphics.setColor(style == TreeLayout.RED ? RED : OUTLINE);
+					graphics.fillRect(x - radius, y - radius, Math.max(1, 2 * radius), Math.max(1, 2 * radius));
+					continue;
+				}
+
+				// antialiasing a million tiny nodes is slow and makes no visible difference
+				boolean labels = radius >= 8;
+
+				if (labels != antialiased) {
+					graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, labels ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+					antialiased = labels;
+				}
+
+				graphics.setColor(style == TreeLayout.RED ? RED : style == TreeLayout.BLACK ? BLACK : Color.WHITE);
+				graphics.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
+				graphics.setColor(OUTLINE);
+				graphics.drawOval(x - radius, y - radius, 2 * radius, 2 * radius);
+
+				if (labels) {
+					float textScale = (float) radius / RADIUS;
+					String label = String.valueOf(layout.element(node));
+					graphics.setFont(font.deriveFont(10.0f * textScale));
+					FontMetrics metrics = graphics.getFontMetrics();
+					graphics.setColor(style == TreeLayout.PLAIN ? Color.BLACK : Color.WHITE);
+					graphics.drawString(label, x - metrics.stringWidth(label) / 2, y + metrics.getAscent() / 2 - 1);
+
+					if (layout.avlHeight(node) >= 0) {
+						graphics.setFont(font.deriveFont(8.0f * textScale));
+						graphics.setColor(Color.GRAY);
+						graphics.drawString("h" + layout.avlHeight(node), x - radius / 2, y + radius + (int) (10 * textScale));
+					}
+				}
+			}
+		} finally {
+			graphics.dispose();
+		}
+
+		ImageIO.write(image, "png", output);
+	}
+
+	/**
+	 * Find how large the nodes on each level can be drawn. At full size, nodes on the same level are at least
+	 * {@link TreeLayout#SEPARATION} units apart, so nodes are shrunk from {@link #RADIUS} by however much the closest
+	 * two nodes on their level, or the levels, have been squeezed together.
+	 * @return the radius of the nodes on each level, in pixels.
+	 */
+	private static int[] levelRadii(TreeLayout layout, double scaleX, double scaleY) {
+		int[] closest = new int[layout.height()];
+		int[] lastX = new int[layout.height()];
+		Arrays.fill(closest, Integer.MAX_VALUE);
+		Arrays.fill(lastX, Integer.MIN_VALUE);
+
+		// pre-order visits the nodes on each level from left to right
+		for (int node = 0; node < layout.size(); node++) {
+			int depth = layout.depth(node);
+
+			if (lastX[depth] != Integer.MIN_VALUE) {
+				closest[depth] = Math.min(closest[depth], layout.x(node) - lastX[depth]);
+			}
+
+			lastX[depth] = layout.x(node);
+		}
+
+		int[] radii = new int[layout.height()];
+
+		for (int depth = 0; depth < radii.length; depth++) {
+			double squeeze = Math.min(scaleY, closest[depth] == Integer.MAX_VALUE ? 1.0 : (double) closest[depth] / TreeLayout.SEPARATION * scaleX);
+			radii[depth] = (int) (RADIUS * Math.min(1.0, squeeze));
+		}
+
+		return radii;
+	}
+
+	// Coordinates //
+
+	private static int imageWidth(TreeLayout layout) {
+		return Math.max(0, layout.width() - 1) * UNIT + 2 * MARGIN;
+	}
+
+	private static int imageHeight(TreeLayout layout) {
+		return Math.max(0, layout.height() - 1) * LEVEL + 2 * MARGIN;
+	}
+
+	private static int pixelX(TreeLayout layout, int node) {
+		return MARGIN + layout.x(node) * UNIT;
+	}
+
+	private static int pixelY(TreeLayout layout, int node) {
+		return MARGIN + layout.depth(node) * LEVEL;
+	}
+}
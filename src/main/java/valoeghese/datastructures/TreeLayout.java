@@ -0,0 +1,357 @@
+package valoeghese.datastructures;
+
+/**
+ * Positions of the nodes of a binary search tree for drawing, computed with the Reingold-Tilford tidy tree algorithm
+ * in O(n) time. Each node is placed centred above its children, siblings are at least {@link #SEPARATION} apart, and
+ * subtrees are pushed together as closely as their contours allow. A node with one child is placed to the side of it,
+ * so left and right children stay distinguishable. <br>
+ * Nodes are numbered in pre-order, so the root is node 0. Node data is held in arrays of primitives rather than
+ * objects, and the layout is computed without recursion, so trees of millions of nodes can be laid out.
+ */
+public final class TreeLayout {
+	private TreeLayout(int size) {
+		this.elements = new Object[size];
+		this.left = new int[size];
+		this.right = new int[size];
+		this.x = new int[size];
+		this.depth = new int[size];
+	}
+
+	/**
+	 * Minimum horizontal distance between two nodes on the same level.
+	 */
+	public static final int SEPARATION = 2;
+
+	/**
+	 * Index representing the absence of a node.
+	 */
+	public static final int NIL = -1;
+
+	// Style values //
+
+	public static final byte PLAIN = 0;
+	public static final byte RED = 1;
+	public static final byte BLACK = 2;
+
+	private final Object[] elements;
+	private final int[] left;
+	private final int[] right;
+	private final int[] x;
+	private final int[] depth;
+	private int[] heights;
+	private byte[] styles;
+	private int width;
+	private int height;
+
+	/**
+	 * Lay out the given tree.
+	 * @param tree the tree to lay out.
+	 * @return the layout.
+	 */
+	public static <T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node> TreeLayout of(BinarySearchTree<T, N> tree) {
+		TreeLayout layout = new TreeLayout(tree.root == null ? 0 : tree.root.size);
+		layout.number(tree.root);
+		layout.place();
+		return layout;
+	}
+
+	/**
+	 * Number the nodes in pre-order, recording their links, depths and styles.
+	 */
+	private <T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node> void number(N root) {
+		if (root == null) return;
+
+		if (root instanceof AVLTree<?>.Node) {
+			this.heights = new int[this.elements.length];
+		} else if (root instanceof RedBlackTree<?>.Node) {
+			this.styles = new byte[this.elements.length];
+		}
+
+		// walk by parent links. Going up, the parent's number is found from the numbers of the nodes on the way down
+		int[] parents = this.x; // not needed until the nodes are placed
+		N node = root;
+		int id = 0;
+		int count = 0;
+		this.record(node, 0, 0);
+		parents[0] = NIL;
+
+		while (node != null) {
+			N next = null;
+			int nextId = NIL;
+
+			if (node.leftChild != null && this.left[id] == NIL) {
+				next = node.leftChild;
+				nextId = this.left[id] = ++count;
+			} else if (node.rightChild != null && this.right[id] == NIL) {
+				next = node.rightChild;
+				nextId = this.right[id] = ++count;
+			}
+
+			if (next != null) {
+				this.record(next, nextId, this.depth[id] + 1);
+				parents[nextId] = id;
+				node = next;
+				id = nextId;
+			} else {
+				node = node.parent;
+				id = parents[id];
+			}
+		}
+	}
+
+	private <T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node> void record(N node, int id, int depth) {
+		this.elements[id] = node.elem;
+		this.depth[id] = depth;
+		this.height = Math.max(this.height, depth + 1);
+
+		// links are filled in when the children are numbered
+		this.left[id] = NIL;
+		this.right[id] = NIL;
+
+		if (node instanceof AVLTree<?>.Node avlNode) {
+			this.heights[id] = avlNode.height;
+		} else if (node instanceof RedBlackTree<?>.Node rbNode) {
+			this.styles[id] = rbNode.black ? BLACK : RED;
+		}
+	}
+
+	/**
+	 * Place every subtree, children before parents, then convert the offsets from each parent to coordinates.
+	 */
+	private void place() {
+		int size = this.elements.length;
+		if (size == 0) return;
+
+		// horizontal offset of each node from its parent
+		int[] offset = new int[size];
+
+		// threads continue a subtree's contour into a deeper sibling subtree, so contours can be followed in O(1) steps
+		int[] thread = new int[size];
+		int[] threadOffset = new int[size];
+
+		// the leftmost and rightmost nodes on the deepest level of each subtree, with their offsets from its root
+		int[] leftmost = new int[size];
+		int[] leftmostX = new int[size];
+		int[] rightmost = new int[size];
+		int[] rightmostX = new int[size];
+		int[] subtreeHeight = new int[size];
+
+		// reverse pre-order visits children before their parents
+		for (int node = size - 1; node >= 0; node--) {
+			int l = this.left[node];
+			int r = this.right[node];
+			thread[node] = NIL;
+
+			if (l == NIL && r == NIL) {
+				leftmost[node] = rightmost[node] = node;
+				continue;
+			}
+
+			if (l == NIL || r == NIL) {
+				// a single child goes to its side, as if its sibling were there
+				int child = l == NIL ? r : l;
+				int childOffset = l == NIL ? SEPARATION / 2 : -SEPARATION / 2;
+				offset[child] = childOffset;
+				leftmost[node] = leftmost[child];
+				leftmostX[node] = leftmostX[child] + childOffset;
+				rightmost[node] = rightmost[child];
+				rightmostX[node] = rightmostX[child] + childOffset;
+				subtreeHeight[node] = subtreeHeight[child] + 1;
+				continue;
+			}
+
+			// follow the right contour of the left subtree and the left contour of the right subtree down together,
+			// finding the distance between the roots needed to keep them apart on every level
+			int lNode = l;
+			int rNode = r;
+			int lX = 0;
+			int rX = 0;
+			int distance = SEPARATION;
+
+			while (true) {
+				distance = Math.max(distance, lX - rX + SEPARATION);
+
+				int lNext = this.nextRight(lNode, thread);
+				int rNext = this.nextLeft(rNode, thread);
+				if (lNext == NIL || rNext == NIL) break;
+
+				lX += this.contourStep(lNode, lNext, offset, thread, threadOffset);
+				rX += this.contourStep(rNode, rNext, offset, thread, threadOffset);
+				lNode = lNext;
+				rNode = rNext;
+			}
+
+			// keep the parent on a whole coordinate, centred between its children
+			distance += distance & 1;
+			int half = distance / 2;
+			offset[l] = -half;
+			offset[r] = half;
+
+			int lHeight = subtreeHeight[l];
+			int rHeight = subtreeHeight[r];
+
+			if (lHeight > rHeight) {
+				// the right subtree's right contour continues down the left subtree's
+				int from = rightmost[r];
+				int to = this.nextRight(lNode, thread);
+				thread[from] = to;
+				threadOffset[from] = (-half + lX + this.contourStep(lNode, to, offset, thread, threadOffset)) - (half + rightmostX[r]);
+			} else if (rHeight > lHeight) {
+				int from = leftmost[l];
+				int to = this.nextLeft(rNode, thread);
+				thread[from] = to;
+				threadOffset[from] = (half + rX + this.contourStep(rNode, to, offset, thread, threadOffset)) - (-half + leftmostX[l]);
+			}
+
+			if (lHeight >= rHeight) {
+				leftmost[node] = leftmost[l];
+				leftmostX[node] = leftmostX[l] - half;
+			} else {
+				leftmost[node] = leftmost[r];
+				leftmostX[node] = leftmostX[r] + half;
+			}
+
+			if (rHeight >= lHeight) {
+				rightmost[node] = rightmost[r];
+				rightmostX[node] = rightmostX[r] + half;
+			} else {
+				rightmost[node] = rightmost[l];
+				rightmostX[node] = rightmostX[l] - half;
+			}
+
+			subtreeHeight[node] = Math.max(lHeight, rHeight) + 1;
+		}
+
+		// pre-order visits parents before their children
+		this.x[0] = 0;
+		int min = 0;
+		int max = 0;
+
+		for (int node = 0; node < size; node++) {
+			if (this.left[node] != NIL) this.x[this.left[node]] = this.x[node] + offset[this.left[node]];
+			if (this.right[node] != NIL) this.x[this.right[node]] = this.x[node] + offset[this.right[node]];
+			min = Math.min(min, this.x[node]);
+			max = Math.max(max, this.x[node]);
+		}
+
+		for (int node = 0; node < size; node++) {
+			this.x[node] -= min;
+		}
+
+		this.width = max - min + 1;
+	}
+
+	/**
+	 * Get the next node down the left contour of a subtree.
+	 */
+	private int nextLeft(int node, int[] thread) {
+		if (this.left[node] != NIL) return this.left[node];
+		if (this.right[node] != NIL) return this.right[node];
+		return thread[node];
+	}
+
+	/**
+	 * Get the next node down the right contour of a subtree.
+	 */
+	private int nextRight(int node, int[] thread) {
+		if (this.right[node] != NIL) return this.right[node];
+		if (this.left[node] != NIL) return this.left[node];
+		return thread[node];
+	}
+
+	/**
+	 * Get the horizontal distance from a node on a contour to the next node on it.
+	 */
+	private int contourStep(int node, int next, int[] offset, int[] thread, int[] threadOffset) {
+		return next == this.left[node] || next == this.right[node] ? offset[next] : threadOffset[node];
+	}
+
+	// Accessors //
+
+	/**
+	 * Get the number of nodes in the layout.
+	 * @return the number of nodes.
+	 */
+	public int size() {
+		return this.elements.length;
+	}
+
+	/**
+	 * Get the number of horizontal positions used by the layout.
+	 * @return the width of the layout.
+	 */
+	public int width() {
+		return this.width;
+	}
+
+	/**
+	 * Get the number of levels in the layout.
+	 * @return the height of the layout.
+	 */
+	public int height() {
+		return this.height;
+	}
+
+	/**
+	 * Get the element of a node.
+	 * @param node the node number.
+	 * @return the element stored in the node.
+	 */
+	public Object element(int node) {
+		return this.elements[node];
+	}
+
+	/**
+	 * Get the horizontal position of a node, from 0 to {@link #width()} - 1.
+	 * @param node the node number.
+	 * @return the x coordinate of the node.
+	 */
+	public int x(int node) {
+		return this.x[node];
+	}
+
+	/**
+	 * Get the depth of a node, where the root has depth 0.
+	 * @param node the node number.
+	 * @return the y coordinate of the node.
+	 */
+	public int depth(int node) {
+		return this.depth[node];
+	}
+
+	/**
+	 * Get the left child of a node.
+	 * @param node the node number.
+	 * @return the number of the left child, or {@link #NIL} if it has none.
+	 */
+	public int left(int node) {
+		return this.left[node];
+	}
+
+	/**
+	 * Get the right child of a node.
+	 * @param node the node number.
+	 * @return the number of the right child, or {@link #NIL} if it has none.
+	 */
+	public int right(int node) {
+		return this.right[node];
+	}
+
+	/**
+	 * Get the AVL height of a node.
+	 * @param node the node number.
+	 * @return the height of the node, or -1 if the tree is not an AVL tree.
+	 */
+	public int avlHeight(int node) {
+		return this.heights == null ? -1 : this.heights[node];
+	}
+
+	/**
+	 * Get how a node should be drawn.
+	 * @param node the node number.
+	 * @return {@link #RED} or {@link #BLACK} for red-black trees, otherwise {@link #PLAIN}.
+	 */
+	public byte style(int node) {
+		return this.styles == null ? PLAIN : this.styles[node];
+	}
+}
@@ -0,0 +1,250 @@
+package valoeghese.datastructures;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the work done by a {@link BinarySearchTree}: element comparisons, rotations, how often each balancing case
+ * of the tree occurs, and a histogram of the depths searches end at. <br>
+ * Metrics are off by default, and are turned on with {@link BinarySearchTree#enableMetrics()}. While off, recording
+ * costs only a null check. The counts are plain fields updated by the thread using the tree, so values read from
+ * another thread, such as through JMX, may be slightly out of date.
+ */
+public final class TreeMetrics implements TreeMetricsMXBean {
+	TreeMetrics() {
+	}
+
+	/**
+	 * Number of buckets in the search depth histogram. Searches ending deeper than this are counted in the last bucket.
+	 */
+	public static final int DEPTH_BUCKETS = 64;
+
+	private long comparisons;
+	private long searches;
+	private long rotations;
+	private final long[] cases = new long[Case.values().length];
+	private final long[] depths = new long[DEPTH_BUCKETS];
+	private ObjectName registeredName;
+
+	// Recording //
+
+	/**
+	 * Record a search or insertion.
+	 * @param depth the depth of the node the search ended at, where the root has depth 0.
+	 * @param comparisons the number of element comparisons made.
+	 */
+	void recordSearch(int depth, int comparisons) {
+		this.searches++;
+		this.comparisons += comparisons;
+		this.depths[Math.min(depth, DEPTH_BUCKETS - 1)]++;
+	}
+
+	void recordRotation() {
+		this.rotations++;
+	}
+
+	void record(Case balancingCase) {
+		this.cases[balancingCase.ordinal()]++;
+	}
+
+	// Reading //
+
+	/**
+	 * Take a copy of the current counts.
+	 * @return the snapshot.
+	 */
+	public Snapshot snapshot() {
+		EnumMap<Case, Long> caseCounts = new EnumMap<>(Case.class);
+
+		for (Case balancingCase : Case.values()) {
+			caseCounts.put(balancingCase, this.cases[balancingCase.ordinal()]);
+		}
+
+		return new Snapshot(this.comparisons, this.searches, this.rotations, caseCounts, this.depths.clone());
+	}
+
+	@Override
+	public long getComparisons() {
+		return this.comparisons;
+	}
+
+	@Override
+	public long getSearches() {
+		return this.searches;
+	}
+
+	@Override
+	public long getRotations() {
+		return this.rotations;
+	}
+
+	@Override
+	public Map<String, Long> getCaseCounts() {
+		Map<String, Long> result = new LinkedHashMap<>();
+
+		for (Case balancingCase : Case.values()) {
+			result.put(balancingCase.name(), this.cases[balancingCase.ordinal()]);
+		}
+
+		return result;
+	}
+
+	@Override
+	public long[] getSearchDepthHistogram() {
+		return this.depths.clone();
+	}
+
+	@Override
+	public double getMeanSearchDepth() {
+		return this.snapshot().meanSearchDepth();
+	}
+
+	@Override
+	public void reset() {
+		this.comparisons = 0;
+		this.searches = 0;
+		this.rotations = 0;
+		Arrays.fill(this.cases, 0);
+		Arrays.fill(this.depths, 0);
+	}
+
+	// JMX //
+
+	/**
+	 * Register these metrics with the platform MBean server, under
+	 * {@code valoeghese.datastructures:type=TreeMetrics,name=<name>}.
+	 * @param name the name to register the metrics under.
+	 * @throws IllegalStateException if these metrics are already registered, or the name is taken.
+	 */
+	public void register(String name) throws IllegalStateException {
+		if (this.registeredName != null) {
+			throw new IllegalStateException("Metrics are already registered as " + this.registeredName);
+		}
+
+		try {
+			ObjectName objectName = new ObjectName("valoeghese.datastructures:type=TreeMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.registeredName = objectName;
+		} catch (InstanceAlreadyExistsException e) {
+			throw new IllegalStateException("Metrics named " + name + " are already registered.", e);
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Remove these metrics from the platform MBean server, if registered.
+	 */
+	public void unregister() {
+		if (this.registeredName == null) return;
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			server.unregisterMBean(this.registeredName);
+		} catch (JMException e) {
+			// already gone
+		}
+
+		this.registeredName = null;
+	}
+
+	// Types //
+
+	/**
+	 * The balancing cases which are counted separately, by the kind of tree they occur in.
+	 */
+	public enum Case {
+		/**
+		 * An AVL subtree leaning to the outside, fixed by a single rotation.
+		 */
+		AVL_SINGLE_ROTATION,
+		/**
+		 * An AVL subtree leaning to the inside, fixed by a double rotation.
+		 */
+		AVL_DOUBLE_ROTATION,
+		/**
+		 * A red-black violation fixed by recolouring alone: a red uncle on insertion, or a brother made red on removal.
+		 */
+		RED_BLACK_RECOLOUR,
+		/**
+		 * A red-black insertion with a black uncle, fixed by a single rotation.
+		 */
+		RED_BLACK_SINGLE_ROTATION,
+		/**
+		 * A red-black insertion with a black uncle, fixed by a double rotation.
+		 */
+		RED_BLACK_DOUBLE_ROTATION,
+		/**
+		 * A splay step from a child of the root.
+		 */
+		SPLAY_ZIG,
+		/**
+		 * A splay step where the node and its parent are children on the same side.
+		 */
+		SPLAY_ZIG_ZIG,
+		/**
+		 * A splay step where the node and its parent are children on opposite sides.
+		 */
+		SPLAY_ZIG_ZAG
+	}
+
+	/**
+	 * A copy of the metrics at one point in time.
+	 * @param comparisons the number of element comparisons made by searches and insertions.
+	 * @param searches the number of searches and insertions.
+	 * @param rotations the number of rotations.
+	 * @param caseCounts the number of times each balancing case has occurred.
+	 * @param searchDepthHistogram the number of searches which ended at each depth.
+	 */
+	public record Snapshot(long comparisons, long searches, long rotations, Map<Case, Long> caseCounts, long[] searchDepthHistogram) {
+		/**
+		 * @return the mean number of comparisons per search, or 0 if there have been none.
+		 */
+		public double meanComparisons() {
+			return this.searches == 0 ? 0 : (double) this.comparisons / this.searches;
+		}
+
+		/**
+		 * @return the mean depth at which searches ended, or 0 if there have been none.
+		 */
+		public double meanSearchDepth() {
+			long total = 0;
+
+			for (int depth = 0; depth < this.searchDepthHistogram.length; depth++) {
+				total += depth * this.searchDepthHistogram[depth];
+			}
+
+			return this.searches == 0 ? 0 : (double) total / this.searches;
+		}
+
+		/**
+		 * Get the difference between this snapshot and an earlier one, giving the work done in between.
+		 * @param earlier the earlier snapshot.
+		 * @return the difference between the snapshots.
+		 */
+		public Snapshot since(Snapshot earlier) {
+			EnumMap<Case, Long> caseCounts = new EnumMap<>(Case.class);
+
+			for (Case balancingCase : Case.values()) {
+				caseCounts.put(balancingCase, this.caseCounts.get(balancingCase) - earlier.caseCounts.get(balancingCase));
+			}
+
+			long[] depths = new long[this.searchDepthHistogram.length];
+
+			for (int depth = 0; depth < depths.length; depth++) {
+				depths[depth] = this.searchDepthHistogram[depth] - earlier.searchDepthHistogram[depth];
+			}
+
+			return new Snapshot(this.comparisons - earlier.comparisons, this.searches - earlier.searches,
+					this.rotations - earlier.rotations, caseCounts, depths);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package valoeghese.datastructures;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing {@link TreeMetrics} through JMX.
+ */
+public interface TreeMetricsMXBean {
+	/**
+	 * @return the number of element comparisons made by searches and insertions.
+	 */
+	long getComparisons();
+
+	/**
+	 * @return the number of searches and insertions recorded.
+	 */
+	long getSearches();
+
+	/**
+	 * @return the number of rotations performed.
+	 */
+	long getRotations();
+
+	/**
+	 * @return the number of times each balancing case has occurred, by case name.
+	 */
+	Map<String, Long> getCaseCounts();
+
+	/**
+	 * @return the number of searches which ended at each depth. The last bucket also counts all deeper searches.
+	 */
+	long[] getSearchDepthHistogram();
+
+	/**
+	 * @return the mean depth at which searches ended, or 0 if there have been none.
+	 */
+	double getMeanSearchDepth();
+
+	/**
+	 * Reset every count to zero.
+	 */
+	void reset();
+}
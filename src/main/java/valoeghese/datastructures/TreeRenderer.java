@@ -0,0 +1,140 @@
+package valoeghese.datastructures;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Draws binary search trees as text, one node per line in pre-order, with {@code | } and {@code |-} connecting each
+ * node to its parent and {@code nil} marking missing children. <br>
+ * The tree is walked by following parent links, so the renderer uses the same small amount of memory no matter how
+ * large or unbalanced the tree is, and the output is streamed to an {@link Appendable} as it is drawn. Output can be
+ * bounded by a depth limit and a node limit, beyond which whole subtrees are elided to a single line giving their size.
+ * Since the output is written a few characters at a time, writers should be buffered.
+ */
+public final class TreeRenderer {
+	/**
+	 * Create a renderer which draws every node.
+	 */
+	public TreeRenderer() {
+		this(Integer.MAX_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Create a renderer which elides parts of large trees.
+	 * @param maxDepth the greatest depth of node to draw, where the root has depth 0. Deeper subtrees are elided.
+	 * @param maxNodes the greatest number of nodes to draw. Once this many are drawn, every remaining subtree is elided.
+	 */
+	public TreeRenderer(int maxDepth, long maxNodes) {
+		if (maxDepth < 0 || maxNodes < 0) {
+			throw new IllegalArgumentException("Limits must not be negative.");
+		}
+
+		this.maxDepth = maxDepth;
+		this.maxNodes = maxNodes;
+	}
+
+	private final int maxDepth;
+	private final long maxNodes;
+
+	/**
+	 * Draw the given tree.
+	 * @param tree the tree to draw.
+	 * @param output where to write the drawing.
+	 * @throws IOException if writing to the output fails.
+	 */
+	public <T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node> void render(BinarySearchTree<T, N> tree, Appendable output) throws IOException {
+		N node = tree.root;
+
+		if (node == null) {
+			output.append("nil");
+			return;
+		}
+
+		int depth = 0;
+		long drawn = 0;
+		boolean entering = true;
+		N from = null;
+
+		while (node != null) {
+			boolean drawRight;
+
+			if (entering) {
+				if (depth > this.maxDepth || drawn >= this.maxNodes) {
+					line(output, depth, drawn > 0);
+					output.append("... (").append(String.valueOf(node.size)).append(node.size == 1 ? " node)" : " nodes)");
+					drawRight = false;
+				} else {
+					line(output, depth, drawn > 0);
+					output.append(node.toString());
+					drawn++;
+
+					if (node.leftChild != null) {
+						node = node.leftChild;
+						depth++;
+						continue;
+					}
+
+					line(output, depth + 1, true);
+					output.append("nil");
+					drawRight = true;
+				}
+			} else {
+				// returning from the left subtree means the right is next
+				drawRight = from == node.leftChild;
+			}
+
+			if (drawRight) {
+				if (node.rightChild != null) {
+					node = node.rightChild;
+					depth++;
+					entering = true;
+					continue;
+				}
+
+				line(output, depth + 1, true);
+				output.append("nil");
+			}
+
+			// this subtree is done
+			from = node;
+			node = node.parent;
+			depth--;
+			entering = false;
+		}
+	}
+
+	/**
+	 * Draw the given tree to a string.
+	 * @param tree the tree to draw.
+	 * @return the drawing.
+	 */
+	public <T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node> String render(BinarySearchTree<T, N> tree) {
+		StringBuilder builder = new StringBuilder();
+
+		try {
+			this.render(tree, builder);
+		} catch (IOException e) {
+			// StringBuilder does not throw
+			throw new UncheckedIOException(e);
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Start a new line, drawing the connections for a node at the given depth.
+	 */
+	private static void line(Appendable output, int depth, boolean newLine) throws IOException {
+		if (newLine) {
+			output.append('\n');
+		}
+
+		for (int i = 0; i < depth - 1; i++) {
+			output.append("| ");
+		}
+
+		if (depth > 0) {
+			output.append("|-");
+		}
+	}
+}
@@ -0,0 +1,384 @@
+package valoeghese.datastructures;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * Saves and loads trees in a compact binary format, streaming through a fixed size buffer. Elements are encoded with
+ * a {@link KeyCodec}. <br>
+ * The format is a header, followed by the elements. By default the elements of a search tree are stored in ascending
+ * order, and loaded with a linear time bulk build, which gives a perfectly balanced tree. If the shape is saved, the
+ * elements are instead stored in pre-order, each followed by a byte recording which children the node has and, for
+ * red-black trees, its colour. Loading then reproduces the exact tree, recalculating AVL heights from the shape.
+ * A search tree with a comparator is stored in the order of that comparator, and flagged as such. The comparator itself
+ * cannot be saved, so it must be loaded into a tree created with the same comparator.
+ * The elements of a heap are stored in the order of its array, and the heap order is rebuilt in linear time on load.
+ * <br>
+ * Header layout: magic number (4 bytes), format version (1), structure kind (1), flags (1), reserved (1), encoded
+ * element size (4), element count (4).
+ */
+public final class TreeSerialiser {
+	private TreeSerialiser() {
+	}
+
+	private static final int MAGIC_NUMBER = 0x54524545; // "TREE"
+	private static final byte FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+
+	// Structure kinds //
+
+	private static final byte AVL = 1;
+	private static final byte RED_BLACK = 2;
+	private static final byte HEAP = 3;
+
+	// Flags //
+
+	private static final byte SHAPE = 1;
+	private static final byte COMPARATOR = 2;
+
+	/**
+	 * Size of the buffer used for reading and writing, which is the most memory used beyond the tree itself.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Writing //
+
+	/**
+	 * Write an AVL tree to the given channel.
+	 * @param tree the tree to write.
+	 * @param codec the codec to encode elements with.
+	 * @param channel the channel to write to. It is not closed.
+	 * @param saveShape whether to save the exact shape of the tree. Otherwise, the tree is rebuilt perfectly balanced.
+	 * @param <T> the type of element stored in the tree.
+	 * @throws IOException if writing to the channel fails.
+	 */
+	public static <T extends Comparable<T>> void write(AVLTree<T> tree, KeyCodec<T> codec, WritableByteChannel channel, boolean saveShape) throws IOException {
+		writeSearchTree(tree, AVL, codec, channel, saveShape);
+	}
+
+	/**
+	 * Write a red-black tree to the given channel.
+	 * @param tree the tree to write.
+	 * @param codec the codec to encode elements with.
+	 * @param channel the channel to write to. It is not closed.
+	 * @param saveShape whether to save the exact shape and colours of the tree. Otherwise, the tree is rebuilt
+	 *                  perfectly balanced.
+	 * @param <T> the type of element stored in the tree.
+	 * @throws IOException if writing to the channel fails.
+	 */
+	public static <T extends Comparable<T>> void write(RedBlackTree<T> tree, KeyCodec<T> codec, WritableByteChannel channel, boolean saveShape) throws IOException {
+		writeSearchTree(tree, RED_BLACK, codec, channel, saveShape);
+	}
+
+	/**
+	 * Write a heap to the given channel.
+	 * @param heap the heap to write.
+	 * @param codec the codec to encode elements with.
+	 * @param channel the channel to write to. It is not closed.
+	 * @param <T> the type of element stored in the heap.
+	 * @throws IOException if writing to the channel fails.
+	 */
+	public static <T extends Comparable<T>> void write(SimpleHeap<T> heap, KeyCodec<T> codec, WritableByteChannel channel) throws IOException {
+		Output output = new Output(channel, codec.size());
+		output.header(HEAP, (byte) 0, codec.size(), heap.size());
+
+		for (T elem : heap) {
+			codec.encode(elem, output.buffer, output.reserve(codec.size()));
+		}
+
+		output.flush();
+	}
+
+	private static <T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node> void writeSearchTree(BinarySearchTree<T, N> tree, byte kind, KeyCodec<T> codec, WritableByteChannel channel, boolean saveShape) throws IOException {
+		Output output = new Output(channel, codec.size() + 1);
+		byte flags = (byte) ((saveShape ? SHAPE : 0) | (tree.comparator() != null ? COMPARATOR : 0));
+		output.header(kind, flags, codec.size(), tree.size());
+
+		if (!saveShape) {
+			for (T elem : tree) {
+				codec.encode(elem, output.buffer, output.reserve(codec.size()));
+			}
+		} else {
+			for (N node = tree.root; node != null; node = tree.nextPreorder(node)) {
+				int offset = output.reserve(codec.size() + 1);
+				codec.encode(node.elem, output.buffer, offset);
+				output.buffer.put(offset + codec.size(), (byte) tree.shapeBits(node));
+			}
+		}
+
+		output.flush();
+	}
+
+	// Reading //
+
+	/**
+	 * Read an AVL tree in the natural ordering of its elements from the given channel, in O(n) time.
+	 * @param channel the channel to read from. It is not closed.
+	 * @param codec the codec to decode elements with.
+	 * @param <T> the type of element stored in the tree.
+	 * @return the tree.
+	 * @throws IOException if reading from the channel fails, or it does not contain a search tree encoded by the codec
+	 * in the natural ordering of its elements.
+	 */
+	public static <T extends Comparable<T>> AVLTree<T> readAVLTree(ReadableByteChannel channel, KeyCodec<T> codec) throws IOException {
+		return readAVLTree(channel, codec, AVLTree::new);
+	}
+
+	/**
+	 * Read an AVL tree from the given channel, in O(n) time.
+	 * @param channel the channel to read from. It is not closed.
+	 * @param codec the codec to decode elements with.
+	 * @param factory creates the empty tree to read into, which must have the comparator the saved tree had.
+	 * @param <T> the type of element stored in the tree.
+	 * @return the tree.
+	 * @throws IOException if reading from the channel fails, or it does not contain a search tree encoded by the codec
+	 * in the order of the tree's comparator.
+	 */
+	public static <T extends Comparable<T>> AVLTree<T> readAVLTree(ReadableByteChannel channel, KeyCodec<T> codec, Supplier<AVLTree<T>> factory) throws IOException {
+		return readSearchTree(factory.get(), AVL, codec, channel);
+	}
+
+	/**
+	 * Read a red-black tree in the natural ordering of its elements from the given channel, in O(n) time.
+	 * @param channel the channel to read from. It is not closed.
+	 * @param codec the codec to decode elements with.
+	 * @param <T> the type of element stored in the tree.
+	 * @return the tree.
+	 * @throws IOException if reading from the channel fails, or it does not contain a search tree encoded by the codec
+	 * in the natural ordering of its elements.
+	 */
+	public static <T extends Comparable<T>> RedBlackTree<T> readRedBlackTree(ReadableByteChannel channel, KeyCodec<T> codec) throws IOException {
+		return readRedBlackTree(channel, codec, RedBlackTree::new);
+	}
+
+	/**
+	 * Read a red-black tree from the given channel, in O(n) time.
+	 * @param channel the channel to read from. It is not closed.
+	 * @param codec the codec to decode elements with.
+	 * @param factory creates the empty tree to read into, which must have the comparator the saved tree had.
+	 * @param <T> the type of element stored in the tree.
+	 * @return the tree.
+	 * @throws IOException if reading from the channel fails, or it does not contain a search tree encoded by the codec
+	 * in the order of the tree's comparator.
+	 */
+	public static <T extends Comparable<T>> RedBlackTree<T> readRedBlackTree(ReadableByteChannel channel, KeyCodec<T> codec, Supplier<RedBlackTree<T>> factory) throws IOException {
+		return readSearchTree(factory.get(), RED_BLACK, codec, channel);
+	}
+
+	/**
+	 * Read a heap from the given channel, in O(n) time.
+	 * @param channel the channel to read from. It is not closed.
+	 * @param codec the codec to decode elements with.
+	 * @param factory creates the empty heap to read into, such as {@link SimpleHeap#newMinHeap()}.
+	 * @param <T> the type of element stored in the heap.
+	 * @return the heap.
+	 * @throws IOException if reading from the channel fails, or it does not contain a heap encoded by the codec.
+	 */
+	public static <T extends Comparable<T>> SimpleHeap<T> readHeap(ReadableByteChannel channel, KeyCodec<T> codec, Supplier<SimpleHeap<T>> factory) throws IOException {
+		Input input = new Input(channel, codec.size());
+		int size = input.header(HEAP, codec.size());
+		SimpleHeap<T> heap = factory.get();
+
+		if (!heap.isEmpty()) {
+			throw new IllegalArgumentException("Heap to read into must be empty.");
+		}
+
+		for (int i = 0; i < size; i++) {
+			heap.elements.add(codec.decode(input.buffer, input.take(codec.size())));
+		}
+
+		// the saved heap may have been ordered by a different comparator
+		heap.heapify();
+		return heap;
+	}
+
+	private static <T extends Comparable<T>, N extends BinarySearchTree<T, N>.Node, B extends BinarySearchTree<T, N>> B readSearchTree(B tree, byte kind, KeyCodec<T> codec, ReadableByteChannel channel) throws IOException {
+		Input input = new Input(channel, codec.size() + 1);
+		int size = input.header(kind, codec.size());
+
+		if (!tree.isEmpty()) {
+			throw new IllegalArgumentException("Tree to read into must be empty.");
+		}
+
+		// the elements are in the order of the saved tree, which only a tree with the same comparator can take
+		boolean savedComparator = (input.flags & COMPARATOR) != 0;
+
+		if (savedComparator && tree.comparator() == null) {
+			throw new IOException("Tree was saved with a comparator, but is being read into a tree in natural order.");
+		} else if (!savedComparator && tree.comparator() != null) {
+			throw new IOException("Tree was saved in natural order, but is being read into a tree with a comparator.");
+		}
+
+		try {
+			if ((input.flags & SHAPE) == 0) {
+				tree.buildFromSorted(new Iterator<T>() {
+					@Override
+					public boolean hasNext() {
+						return true;
+					}
+
+					@Override
+					public T next() {
+						try {
+							return codec.decode(input.buffer, input.take(codec.size()));
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+				}, size);
+			} else {
+				tree.restorePreorder(size, new BinarySearchTree.PreorderSource<T>() {
+					private int offset;
+
+					@Override
+					public T nextElement() {
+						try {
+							this.offset = input.take(codec.size() + 1);
+							return codec.decode(input.buffer, this.offset);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+
+					@Override
+					public int shapeBits() {
+						return input.buffer.get(this.offset + codec.size());
+					}
+				});
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupt tree: " + e.getMessage(), e);
+		}
+
+		return tree;
+	}
+
+	// Buffered Channels //
+
+	private static final class Output {
+		Output(WritableByteChannel channel, int recordSize) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, recordSize));
+		}
+
+		private final WritableByteChannel channel;
+		final ByteBuffer buffer;
+
+		void header(byte kind, byte flags, int elementSize, int count) throws IOException {
+			int offset = this.reserve(HEADER_SIZE);
+			this.buffer.putInt(offset, MAGIC_NUMBER);
+			this.buffer.put(offset + 4, FORMAT_VERSION);
+			this.buffer.put(offset + 5, kind);
+			this.buffer.put(offset + 6, flags);
+			this.buffer.putInt(offset + 8, elementSize);
+			this.buffer.putInt(offset + 12, count);
+		}
+
+		/**
+		 * Make room for a record in the buffer, writing out the buffer if it is full.
+		 * @param length the length of the record.
+		 * @return the offset of the record in the buffer.
+		 */
+		int reserve(int length) throws IOException {
+			if (this.buffer.remaining() < length) {
+				this.flush();
+			}
+
+			int offset = this.buffer.position();
+			this.buffer.position(offset + length);
+			return offset;
+		}
+
+		void flush() throws IOException {
+			this.buffer.flip();
+
+			while (this.buffer.hasRemaining()) {
+				this.channel.write(this.buffer);
+			}
+
+			this.buffer.clear();
+		}
+	}
+
+	private static final class Input {
+		Input(ReadableByteChannel channel, int recordSize) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, recordSize));
+			this.buffer.flip();
+		}
+
+		private final ReadableByteChannel channel;
+		final ByteBuffer buffer;
+		byte flags;
+
+		/**
+		 * Read and check the header.
+		 * @return the number of elements.
+		 */
+		int header(byte kind, int elementSize) throws IOException {
+			int offset = this.take(HEADER_SIZE);
+
+			if (this.buffer.getInt(offset) != MAGIC_NUMBER) {
+				throw new IOException("Not a serialised tree.");
+			}
+
+			if (this.buffer.get(offset + 4) != FORMAT_VERSION) {
+				throw new IOException("Unsupported tree format version " + this.buffer.get(offset + 4));
+			}
+
+			byte savedKind = this.buffer.get(offset + 5);
+			this.flags = this.buffer.get(offset + 6);
+
+			// without the shape, any search tree can be loaded as any other
+			boolean compatible = savedKind == kind || ((this.flags & SHAPE) == 0 && savedKind != HEAP && kind != HEAP);
+
+			if (!compatible) {
+				throw new IOException("Cannot load structure of kind " + savedKind + " as kind " + kind);
+			}
+
+			if (this.buffer.getInt(offset + 8) != elementSize) {
+				throw new IOException("Elements were saved with " + this.buffer.getInt(offset + 8) + " bytes, but the codec uses " + elementSize + " bytes.");
+			}
+
+			int count = this.buffer.getInt(offset + 12);
+
+			if (count < 0) {
+				throw new IOException("Corrupt tree: negative element count.");
+			}
+
+			return count;
+		}
+
+		/**
+		 * Ensure the next record is in the buffer, reading more from the channel if necessary.
+		 * @param length the length of the record.
+		 * @return the offset of the record in the buffer.
+		 * @throws EOFException if the channel ends before the record does.
+		 */
+		int take(int length) throws IOException {
+			if (this.buffer.remaining() < length) {
+				this.buffer.compact();
+
+				while (this.buffer.position() < length) {
+					if (this.channel.read(this.buffer) < 0) {
+						throw new EOFException("Tree data ended unexpectedly.");
+					}
+				}
+
+				this.buffer.flip();
+			}
+
+			int offset = this.buffer.position();
+			this.buffer.position(offset + length);
+			return offset;
+		}
+	}
+}
@@ -0,0 +1,377 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Records the operations on a {@link BinarySearchTree} and the steps taken to carry them out, so they can be
+ * inspected, visualised step by step, or replayed. Tracing is off by default, and is turned on with
+ * {@link BinarySearchTree#enableTracing(int)}. While off, tracing costs only a null check. <br>
+ * Events are written into a ring buffer of parallel arrays allocated up front, so recording an event allocates
+ * nothing: an event is its kind, the elements of the nodes involved, and an int value. Once the buffer is full, the
+ * oldest events are overwritten. Events are numbered from the last {@link #checkpoint() checkpoint}, which also keeps
+ * a copy of the shape of the tree so any state since can be rebuilt with {@link #replay(long, Supplier)}. <br>
+ * The tracer holds references to every element in its events and checkpoint, including removed elements.
+ * @param <T> the type of element stored in the traced tree.
+ */
+public final class TreeTracer<T extends Comparable<T>> {
+	TreeTracer(BinarySearchTree<T, ?> tree, int capacity) throws IllegalArgumentException {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+		}
+
+		this.tree = tree;
+		this.events = new byte[capacity];
+		this.elements = new Object[capacity];
+		this.others = new Object[capacity];
+		this.values = new int[capacity];
+	}
+
+	private static final Event[] EVENTS = Event.values();
+
+	private final BinarySearchTree<T, ?> tree;
+
+	// the ring buffer
+	private final byte[] events;
+	private final Object[] elements;
+	private final Object[] others;
+	private final int[] values;
+	private int position;
+	private long count;
+
+	/**
+	 * When replaying, the tracer being replayed, which each event recorded is checked against.
+	 */
+	private @Nullable TreeTracer<T> original;
+	/**
+	 * Number of events after which recording stops a replay.
+	 */
+	private long limit;
+
+	// the checkpoint, saved in pre-order with the shape bits of each node
+	private Object[] checkpointElements;
+	private byte[] checkpointShape;
+
+	// Recording //
+
+	void record(Event event, Object element, @Nullable Object other, int value) {
+		if (this.original != null) {
+			this.checkReplay(event);
+		}
+
+		int position = this.position;
+		this.events[position] = (byte) event.ordinal();
+		this.elements[position] = element;
+		this.others[position] = other;
+		this.values[position] = value;
+		this.position = position + 1 == this.events.length ? 0 : position + 1;
+		this.count++;
+	}
+
+	private void checkReplay(Event event) {
+		if (this.count == this.limit) {
+			throw ReplayLimit.INSTANCE;
+		}
+
+		if (this.original.event(this.count) != event) {
+			throw new IllegalStateException("Replay diverged from the trace at event " + this.count);
+		}
+	}
+
+	/**
+	 * Save the current state of the tree, and clear the recorded events. Events are numbered from the new checkpoint,
+	 * and replays start from it. Takes O(n) time and memory for a tree of n elements.
+	 */
+	public void checkpoint() {
+		this.checkpointElements = new Object[this.tree.size()];
+		this.checkpointShape = new byte[this.tree.size()];
+		this.save(this.tree);
+
+		this.position = 0;
+		this.count = 0;
+		Arrays.fill(this.elements, null);
+		Arrays.fill(this.others, null);
+	}
+
+	private <N extends BinarySearchTree<T, N>.Node> void save(BinarySearchTree<T, N> tree) {
+		int i = 0;
+
+		for (N node = tree.root; node != null; node = tree.nextPreorder(node)) {
+			this.checkpointElements[i] = node.elem;
+			this.checkpointShape[i] = (byte) tree.shapeBits(node);
+			i++;
+		}
+	}
+
+	// Reading //
+
+	/**
+	 * Get the number of events recorded since the last checkpoint, including any which have been overwritten.
+	 * @return the number of events recorded.
+	 */
+	public long eventCount() {
+		return this.count;
+	}
+
+	/**
+	 * Get the number of the oldest event still held, as events are numbered from 0 at the last checkpoint.
+	 * @return the number of the oldest event held.
+	 */
+	public long oldestEvent() {
+		return Math.max(0, this.count - this.events.length);
+	}
+
+	/**
+	 * Get the kind of a recorded event.
+	 * @param step the number of the event.
+	 * @return the kind of event.
+	 * @throws IndexOutOfBoundsException if the event has not been recorded, or has been overwritten.
+	 */
+	public Event event(long step) throws IndexOutOfBoundsException {
+		return EVENTS[this.events[this.index(step)]];
+	}
+
+	/**
+	 * Get the element of the node a recorded event happened to. For operations, this is the element the operation
+	 * was given, or for {@link Event#FIND_MIN} and {@link Event#FIND_MAX}, the element found.
+	 * @param step the number of the event.
+	 * @return the element.
+	 * @throws IndexOutOfBoundsException if the event has not been recorded, or has been overwritten.
+	 */
+	@SuppressWarnings("unchecked")
+	public T element(long step) throws IndexOutOfBoundsException {
+		return (T) this.elements[this.index(step)];
+	}
+
+	/**
+	 * Get the second element involved in a recorded event. For {@link Event#ROTATE}, this is the element of the
+	 * parent the node was rotated around.
+	 * @param step the number of the event.
+	 * @return the second element, or null if the event has none.
+	 * @throws IndexOutOfBoundsException if the event has not been recorded, or has been overwritten.
+	 */
+	@SuppressWarnings("unchecked")
+	public @Nullable T other(long step) throws IndexOutOfBoundsException {
+		return (T) this.others[this.index(step)];
+	}
+
+	/**
+	 * Get the value carried by a recorded event: the new height for {@link Event#HEIGHT_UPDATE}, 1 for black or 0 for
+	 * red for {@link Event#RECOLOUR}, and the ordinal of the {@link TreeMetrics.Case} for {@link Event#SPLAY_STEP}.
+	 * @param step the number of the event.
+	 * @return the value, or 0 if the event has none.
+	 * @throws IndexOutOfBoundsException if the event has not been recorded, or has been overwritten.
+	 */
+	public int value(long step) throws IndexOutOfBoundsException {
+		return this.values[this.index(step)];
+	}
+
+	private int index(long step) throws IndexOutOfBoundsException {
+		if (step < this.oldestEvent() || step >= this.count) {
+			throw new IndexOutOfBoundsException("Event " + step + " outside of held events (" + this.oldestEvent() + ":" + (this.count - 1) + ")");
+		}
+
+		return (int) (step % this.events.length);
+	}
+
+	/**
+	 * Write every held event as a line of text, such as {@code 12 ROTATE 5 around 7}.
+	 * @param output where to write the events.
+	 * @throws IOException if writing fails.
+	 */
+	public void dump(Appendable output) throws IOException {
+		for (long step = this.oldestEvent(); step < this.count; step++) {
+			Event event = this.event(step);
+			output.append(String.valueOf(step)).append(' ').append(event.name()).append(' ').append(String.valueOf(this.element(step)));
+
+			switch (event) {
+			case ROTATE:
+				output.append(" around ").append(String.valueOf(this.other(step)));
+				break;
+			case HEIGHT_UPDATE:
+				output.append(" to ").append(String.valueOf(this.value(step)));
+				break;
+			case RECOLOUR:
+				output.append(this.value(step) == 1 ? " black" : " red");
+				break;
+			case SPLAY_STEP:
+				output.append(' ').append(TreeMetrics.Case.values()[this.value(step)].name());
+				break;
+			default:
+				break;
+			}
+
+			output.append('\n');
+		}
+	}
+
+	// Replay //
+
+	/**
+	 * Rebuild the state of the tree after a given number of events since the last checkpoint, by restoring the
+	 * checkpoint into a new tree and running the recorded operations on it until that many events have happened.
+	 * The state may therefore be part way through an operation, such as between the two rotations of a double
+	 * rotation.
+	 * @param events the number of events to replay, from 0 for the checkpoint up to {@link #eventCount()}.
+	 * @param factory creates the empty tree to replay into, which must be of the same kind as the traced tree.
+	 * @param <B> the type of tree.
+	 * @return the new tree, in the state after the given number of events.
+	 * @throws IndexOutOfBoundsException if the number of events is negative or more than have been recorded.
+	 * @throws IllegalArgumentException if the tree created is not empty.
+	 * @throws IllegalStateException if events since the checkpoint have been overwritten, or the replay does not
+	 * happen as recorded, such as if the tree is of a different kind.
+	 */
+	public <B extends BinarySearchTree<T, ?>> B replay(long events, Supplier<B> factory) throws IndexOutOfBoundsException, IllegalArgumentException, IllegalStateException {
+		if (events < 0 || events > this.count) {
+			throw new IndexOutOfBoundsException("Cannot replay " + events + " events, only " + this.count + " recorded.");
+		}
+
+		if (this.oldestEvent() > 0) {
+			throw new IllegalStateException("Events since the checkpoint have been overwritten. Take checkpoints more often, or use a larger capacity.");
+		}
+
+		B tree = factory.get();
+
+		if (!tree.isEmpty()) {
+			throw new IllegalArgumentException("Tree to replay into must be empty.");
+		}
+
+		Object[] checkpointElements = this.checkpointElements;
+		byte[] checkpointShape = this.checkpointShape;
+
+		tree.restorePreorder(checkpointElements.length, new BinarySearchTree.PreorderSource<T>() {
+			private int index = -1;
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public T nextElement() {
+				return (T) checkpointElements[++this.index];
+			}
+
+			@Override
+			public int shapeBits() {
+				return checkpointShape[this.index];
+			}
+		});
+
+		// the replayed tree records the same events as it goes, checking them against these and stopping once it
+		// reaches the limit
+		TreeTracer<T> replayTracer = new TreeTracer<>(tree, 1);
+		replayTracer.original = this;
+		replayTracer.limit = events;
+		tree.tracer = replayTracer;
+
+		try {
+			for (long step = 0; step < this.count && replayTracer.count < events; step++) {
+				T element = this.element(step);
+
+				switch (this.event(step)) {
+				case INSERT:
+					tree.add(element);
+					break;
+				case REMOVE:
+					tree.remove(element);
+					break;
+				case FIND_HIT:
+				case FIND_MISS:
+					tree.contains(element);
+					break;
+				case FIND_MIN:
+					tree.findMin();
+					break;
+				case FIND_MAX:
+					tree.findMax();
+					break;
+				default:
+					// steps are replayed by the operations which caused them
+					break;
+				}
+			}
+		} catch (ReplayLimit e) {
+			// stopped part way through an operation
+		} finally {
+			tree.tracer = null;
+		}
+
+		return tree;
+	}
+
+	// Types //
+
+	/**
+	 * The kinds of event recorded. Operations are called on the tree, and the steps are taken to carry them out.
+	 */
+	public enum Event {
+		/**
+		 * An element was added.
+		 */
+		INSERT(true),
+		/**
+		 * An element was removed, if present.
+		 */
+		REMOVE(true),
+		/**
+		 * A search found the element.
+		 */
+		FIND_HIT(true),
+		/**
+		 * A search did not find the element.
+		 */
+		FIND_MISS(true),
+		/**
+		 * The minimum element was accessed, in a tree where this changes the tree.
+		 */
+		FIND_MIN(true),
+		/**
+		 * The maximum element was accessed, in a tree where this changes the tree.
+		 */
+		FIND_MAX(true),
+		/**
+		 * A node was rotated around its parent.
+		 */
+		ROTATE(false),
+		/**
+		 * The height of an AVL node changed.
+		 */
+		HEIGHT_UPDATE(false),
+		/**
+		 * A red-black node changed colour.
+		 */
+		RECOLOUR(false),
+		/**
+		 * A node was moved up by a splay step. For top-down splaying, the element is that of the node at the top of the
+		 * step, which is split off from the search path.
+		 */
+		SPLAY_STEP(false);
+
+		Event(boolean operation) {
+			this.operation = operation;
+		}
+
+		final boolean operation;
+
+		/**
+		 * @return whether this event is an operation called on the tree, rather than a step taken to carry one out.
+		 */
+		public boolean isOperation() {
+			return this.operation;
+		}
+	}
+
+	/**
+	 * Thrown to stop a replay once it has replayed enough events. Preallocated without a stack trace, as it is only
+	 * used for control flow.
+	 */
+	private static final class ReplayLimit extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private ReplayLimit() {
+			super(null, null, false, false);
+		}
+
+		static final ReplayLimit INSTANCE = new ReplayLimit();
+	}
+}
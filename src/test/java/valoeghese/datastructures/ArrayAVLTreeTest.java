@@ -0,0 +1,141 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Randomised tests of {@link IntAVLTree} and {@link LongAVLTree} against a {@link TreeMap} of counts, checking the
+ * links, heights, balance and key order of the node arrays after every add.
+ */
+class ArrayAVLTreeTest {
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 16, 1000})
+	void intTreeMatchesModel(int initialCapacity) {
+		for (long seed = 0; seed < 10; seed++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			IntAVLTree tree = new IntAVLTree(initialCapacity);
+			TreeMap<Integer, Integer> model = new TreeMap<>();
+			// a small range gives many duplicates, which go to the right of equal keys
+			int range = seed % 2 == 0 ? 50 : Integer.MAX_VALUE;
+
+			for (int i = 0; i < 2000; i++) {
+				int key = random.nextInt(-range, range);
+
+				if (random.nextInt(4) == 0) {
+					assertEquals(model.containsKey(key), tree.contains(key), "contains " + key);
+				} else {
+					tree.add(key);
+					model.merge(key, 1, Integer::sum);
+					tree.checkInvariants();
+					assertEquals(model.values().stream().mapToInt(Integer::intValue).sum(), tree.size());
+					assertEquals(model.firstKey(), tree.findMinInt());
+					assertEquals(model.lastKey(), tree.findMaxInt());
+				}
+			}
+
+			for (Integer key : model.keySet()) {
+				assertTrue(tree.contains(key), "contains " + key);
+				assertEquals(model.containsKey(key + 1), tree.contains(key + 1), "contains " + (key + 1));
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 16, 1000})
+	void longTreeMatchesModel(int initialCapacity) {
+		for (long seed = 0; seed < 10; seed++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			LongAVLTree tree = new LongAVLTree(initialCapacity);
+			TreeMap<Long, Integer> model = new TreeMap<>();
+			// keys beyond the range of an int must not be truncated
+			long range = seed % 2 == 0 ? 50 : Long.MAX_VALUE;
+
+			for (int i = 0; i < 2000; i++) {
+				long key = random.nextLong(-range, range);
+
+				if (random.nextInt(4) == 0) {
+					assertEquals(model.containsKey(key), tree.contains(key), "contains " + key);
+				} else {
+					tree.add(key);
+					model.merge(key, 1, Integer::sum);
+					tree.checkInvariants();
+					assertEquals(model.values().stream().mapToInt(Integer::intValue).sum(), tree.size());
+					assertEquals(model.firstKey(), tree.findMinLong());
+					assertEquals(model.lastKey(), tree.findMaxLong());
+				}
+			}
+
+			for (Long key : model.keySet()) {
+				assertTrue(tree.contains(key), "contains " + key);
+				assertEquals(model.containsKey(key + 1), tree.contains(key + 1), "contains " + (key + 1));
+			}
+		}
+	}
+
+	@Test
+	void sortedAddsStayBalanced() {
+		IntAVLTree ascending = new IntAVLTree();
+		LongAVLTree descending = new LongAVLTree();
+
+		for (int i = 0; i < 100_000; i++) {
+			ascending.add(i);
+			descending.add(-(long) i << 32);
+		}
+
+		ascending.checkInvariants();
+		descending.checkInvariants();
+
+		// an AVL tree of 100,000 nodes is at most 1.44 * log2(100,000) high
+		assertTrue(ascending.height[ascending.root] <= 24);
+		assertTrue(descending.height[descending.root] <= 24);
+		assertEquals(0, ascending.findMinInt());
+		assertEquals(99_999, ascending.findMaxInt());
+		assertEquals(-99_999L << 32, descending.findMinLong());
+		assertEquals(0, descending.findMaxLong());
+	}
+
+	@Test
+	void extremeKeys() {
+		IntAVLTree ints = new IntAVLTree(1);
+		ints.add(Integer.MAX_VALUE);
+		ints.add(Integer.MIN_VALUE);
+		ints.add(0);
+		ints.checkInvariants();
+		assertEquals(Integer.MIN_VALUE, ints.findMinInt());
+		assertEquals(Integer.MAX_VALUE, ints.findMaxInt());
+
+		LongAVLTree longs = new LongAVLTree(1);
+		longs.add(Long.MAX_VALUE);
+		longs.add(Long.MIN_VALUE);
+		longs.add(0);
+		longs.checkInvariants();
+		assertEquals(Long.MIN_VALUE, longs.findMinLong());
+		assertEquals(Long.MAX_VALUE, longs.findMaxLong());
+		assertFalse(longs.contains(Integer.MAX_VALUE));
+	}
+
+	@Test
+	void emptyTree() {
+		IntAVLTree ints = new IntAVLTree();
+		LongAVLTree longs = new LongAVLTree();
+		assertTrue(ints.isEmpty());
+		assertFalse(ints.contains(0));
+		assertFalse(longs.contains(0));
+		assertThrows(NoSuchElementException.class, ints::findMinInt);
+		assertThrows(NoSuchElementException.class, ints::findMaxInt);
+		assertThrows(NoSuchElementException.class, longs::findMinLong);
+		assertThrows(NoSuchElementException.class, longs::findMaxLong);
+		ints.checkInvariants();
+		longs.checkInvariants();
+	}
+}
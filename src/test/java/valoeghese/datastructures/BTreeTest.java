@@ -0,0 +1,81 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Randomised tests of {@link BTree} against a model, checking node fill, leaf depth and order after every operation.
+ * Small fanouts make every split, borrow and merge happen often.
+ */
+class BTreeTest {
+	@ParameterizedTest
+	@ValueSource(ints = {4, 5, 6, 8, 64})
+	void randomOperationsMatchModel(int fanout) {
+		for (long seed = 0; seed < 20; seed++) {
+			BTree<Integer> tree = new BTree<>(fanout);
+			TreeModel.fuzz(tree, true, tree::checkInvariants, seed, 2000, 500);
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {4, 6, 64})
+	void manyDuplicates(int fanout) {
+		for (long seed = 0; seed < 20; seed++) {
+			BTree<Integer> tree = new BTree<>(fanout);
+			TreeModel.fuzz(tree, true, tree::checkInvariants, seed, 2000, 6);
+		}
+	}
+
+	@Test
+	void removeInEveryOrder() {
+		for (int size = 0; size < 300; size += 7) {
+			ArrayList<Integer> elements = new ArrayList<>();
+
+			for (int i = 0; i < size; i++) {
+				elements.add(i);
+			}
+
+			BTree<Integer> tree = new BTree<>(4);
+			elements.forEach(tree::add);
+			tree.checkInvariants();
+
+			Collections.shuffle(elements, new Random(size));
+
+			for (Integer element : elements) {
+				assertTrue(tree.remove(element));
+				tree.checkInvariants();
+			}
+
+			assertTrue(tree.isEmpty());
+		}
+	}
+
+	@Test
+	void comparatorOrder() {
+		BTree<Integer> tree = new BTree<>(4, Comparator.<Integer>reverseOrder());
+
+		for (int i = 0; i < 100; i++) {
+			tree.add(i);
+		}
+
+		tree.checkInvariants();
+		assertEquals(99, tree.iterator().next());
+		assertTrue(tree.remove(50));
+		tree.checkInvariants();
+	}
+
+	@Test
+	void fanoutTooSmall() {
+		assertThrows(IllegalArgumentException.class, () -> new BTree<Integer>(3));
+	}
+}
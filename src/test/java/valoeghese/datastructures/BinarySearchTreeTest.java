@@ -0,0 +1,420 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Randomised tests of adding and removing elements from every {@link BinarySearchTree}, against a model, checking the
+ * parent links, sizes and balancing information after every operation.
+ */
+class BinarySearchTreeTest {
+	enum Kind {
+		AVL(AVLTree::new),
+		RED_BLACK(RedBlackTree::new),
+		SPLAY(() -> new SplayTree<>(SplayTree.Splaying.BOTTOM_UP)),
+		SPLAY_TOP_DOWN(() -> new SplayTree<>(SplayTree.Splaying.TOP_DOWN)),
+		SEMI_SPLAY(() -> new SplayTree<>(SplayTree.Splaying.SEMI)),
+		SIMPLE(SimpleBinarySearchTree::new);
+
+		Kind(Supplier<BinarySearchTree<Integer, ?>> factory) {
+			this.factory = factory;
+		}
+
+		final Supplier<BinarySearchTree<Integer, ?>> factory;
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void randomOperationsMatchModel(Kind kind) {
+		for (long seed = 0; seed < 20; seed++) {
+			BinarySearchTree<Integer, ?> tree = kind.factory.get();
+			TreeModel.fuzz(tree, true, tree::checkInvariants, seed, 2000, 500);
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void manyDuplicates(Kind kind) {
+		for (long seed = 0; seed < 20; seed++) {
+			BinarySearchTree<Integer, ?> tree = kind.factory.get();
+			TreeModel.fuzz(tree, true, tree::checkInvariants, seed, 2000, 8);
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void fingerAndLookupCache(Kind kind) {
+		// a small cache makes elements evict each other, and a large one keeps nodes until they are removed
+		for (int slots : new int[] {1, 8, 1024}) {
+			for (long seed = 0; seed < 10; seed++) {
+				BinarySearchTree<Integer, ?> tree = kind.factory.get();
+				tree.enableFingerSearch();
+				tree.enableLookupCache(slots);
+				TreeModel.fuzz(tree, true, tree::checkInvariants, seed, 2000, seed % 2 == 0 ? 500 : 8);
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void fingerFollowsNearbyOperations(Kind kind) {
+		BinarySearchTree<Integer, ?> tree = kind.factory.get();
+		tree.enableFingerSearch();
+		tree.enableLookupCache(16);
+		TreeModel model = new TreeModel();
+		SplittableRandom random = new SplittableRandom(2);
+		int element = 0;
+
+		// a random walk, so each search starts near the last and climbs only a little from the finger
+		for (int i = 0; i < 20_000; i++) {
+			element = Math.max(0, Math.min(999, element + random.nextInt(-5, 6)));
+			int roll = random.nextInt(3);
+
+			if (roll == 0) {
+				tree.add(element);
+				model.add(element);
+			} else if (roll == 1) {
+				assertEquals(model.remove(element), tree.remove(element), "remove " + element);
+			} else {
+				assertEquals(model.contains(element), tree.contains(element), "contains " + element);
+			}
+
+			if (i % 100 == 0) tree.checkInvariants();
+		}
+
+		tree.checkInvariants();
+		model.assertMatches(tree, true);
+
+		// switching off drops the finger and cache, and searches still work from the root
+		tree.disableFingerSearch();
+		tree.disableLookupCache();
+		model.assertMatches(tree, true);
+		assertEquals(model.contains(element), tree.contains(element));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void largeTree(Kind kind) {
+		BinarySearchTree<Integer, ?> tree = kind.factory.get();
+		TreeModel model = new TreeModel();
+		SplittableRandom random = new SplittableRandom(1);
+
+		for (int i = 0; i < 50_000; i++) {
+			int element = random.nextInt(100_000);
+			tree.add(element);
+			model.add(element);
+		}
+
+		tree.checkInvariants();
+		model.assertMatches(tree, true);
+
+		for (int i = 0; i < 50_000; i++) {
+			int element = random.nextInt(100_000);
+			model.remove(element);
+			tree.remove(element);
+		}
+
+		tree.checkInvariants();
+		model.assertMatches(tree, true);
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void orderStatisticsMatchModel(Kind kind) {
+		for (int range : new int[] {40, 2000}) {
+			BinarySearchTree<Integer, ?> tree = kind.factory.get();
+			TreeModel model = new TreeModel();
+			SplittableRandom random = new SplittableRandom(range);
+
+			for (int i = 0; i < 1000; i++) {
+				int element = random.nextInt(range);
+				tree.add(element);
+				model.add(element);
+			}
+
+			assertOrderStatistics(model.sorted(), tree, random, range);
+
+			// removing changes the subtree sizes rank and select descend by
+			for (int i = 0; i < 700; i++) {
+				int element = random.nextInt(range);
+				assertEquals(model.remove(element), tree.remove(element));
+			}
+
+			tree.checkInvariants();
+			assertOrderStatistics(model.sorted(), tree, random, range);
+		}
+	}
+
+	@Test
+	void orderStatisticsFollowComparator() {
+		AVLTree<Integer> tree = new AVLTree<>(Comparator.<Integer>reverseOrder());
+
+		for (int i = 0; i < 10; i++) {
+			tree.add(i);
+		}
+
+		// ranks count the elements before in the order of the tree, here the greater ones
+		assertEquals(0, tree.rank(9));
+		assertEquals(3, tree.rank(6));
+		assertEquals(10, tree.rank(-1));
+		assertEquals(9, tree.select(0));
+		assertEquals(0, tree.select(9));
+		assertEquals(4, tree.countInRange(7, 4));
+		assertEquals(0, tree.countInRange(4, 7));
+	}
+
+	@Test
+	void orderStatisticsOfEmptyTree() {
+		AVLTree<Integer> tree = new AVLTree<>();
+		assertEquals(0, tree.rank(5));
+		assertEquals(0, tree.countInRange(0, 10));
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(0));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void rangeMatchesModel(Kind kind) {
+		for (int range : new int[] {40, 2000}) {
+			BinarySearchTree<Integer, ?> tree = kind.factory.get();
+			TreeModel model = new TreeModel();
+			SplittableRandom random = new SplittableRandom(range);
+
+			for (int i = 0; i < 1000; i++) {
+				int element = random.nextInt(range);
+				tree.add(element);
+				model.add(element);
+			}
+
+			ArrayList<Integer> sorted = model.sorted();
+
+			for (int i = 0; i < 500; i++) {
+				// bounds from just outside the elements, so some ranges start before the minimum or end after the maximum
+				int low = random.nextInt(-2, range + 2);
+				int high = random.nextBoolean() ? random.nextInt(-2, range + 2) : low;
+				ArrayList<Integer> expected = new ArrayList<>();
+
+				for (int element : sorted) {
+					if (element >= low && element <= high) expected.add(element);
+				}
+
+				ArrayList<Integer> actual = new ArrayList<>();
+				Iterator<Integer> iterator = tree.range(low, high);
+				iterator.forEachRemaining(actual::add);
+
+				assertEquals(expected, actual, "range " + low + " to " + high);
+				assertThrows(NoSuchElementException.class, iterator::next);
+			}
+		}
+	}
+
+	@Test
+	void rangeOfEmptyTree() {
+		AVLTree<Integer> tree = new AVLTree<>();
+		assertFalse(tree.range(0, 10).hasNext());
+
+		tree.add(5);
+		assertFalse(tree.range(6, 10).hasNext());
+		assertFalse(tree.range(0, 4).hasNext());
+		assertFalse(tree.range(10, 0).hasNext());
+		assertEquals(5, tree.range(5, 5).next());
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void spliteratorSplitsExactly(Kind kind) {
+		BinarySearchTree<Integer, ?> tree = kind.factory.get();
+		TreeModel model = new TreeModel();
+		SplittableRandom random = new SplittableRandom(5);
+
+		for (int i = 0; i < 20_000; i++) {
+			int element = random.nextInt(5000);
+			tree.add(element);
+			model.add(element);
+		}
+
+		Spliterator<Integer> spliterator = tree.spliterator();
+		int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+		assertEquals(characteristics, spliterator.characteristics());
+		assertEquals(tree.size(), spliterator.getExactSizeIfKnown());
+
+		// split all the way down, so the pieces cover every index once and in order
+		ArrayList<Integer> elements = new ArrayList<>();
+		int pieces = splitAndCollect(spliterator, elements);
+		assertEquals(model.sorted(), elements);
+		assertTrue(pieces >= 16, "split into " + pieces + " pieces");
+
+		assertEquals(model.sorted(), tree.stream().toList());
+		assertEquals(model.sorted(), tree.parallelStream().toList());
+		assertEquals(model.sorted().stream().mapToLong(Integer::longValue).sum(), tree.parallelStream().mapToLong(Integer::longValue).sum());
+	}
+
+	@Test
+	void spliteratorStopsSplitting() {
+		AVLTree<Integer> tree = new AVLTree<>();
+
+		for (int i = 0; i < 4000; i++) {
+			tree.add(i);
+		}
+
+		Spliterator<Integer> spliterator = tree.spliterator();
+		spliterator.tryAdvance(element -> assertEquals(0, element));
+		assertEquals(3999, spliterator.estimateSize());
+
+		// a spliterator which has started traversing keeps the rest to itself
+		assertNull(spliterator.trySplit());
+
+		AVLTree<Integer> small = new AVLTree<>();
+
+		for (int i = 0; i < 100; i++) {
+			small.add(i);
+		}
+
+		assertNull(small.spliterator().trySplit());
+		assertEquals(0, new AVLTree<Integer>().spliterator().getExactSizeIfKnown());
+	}
+
+	@Test
+	void spliteratorReportsComparator() {
+		Comparator<Integer> reversed = Comparator.reverseOrder();
+		AVLTree<Integer> tree = new AVLTree<>(reversed);
+
+		for (int i = 0; i < 3000; i++) {
+			tree.add(i);
+		}
+
+		assertNull(new AVLTree<Integer>().spliterator().getComparator());
+		assertEquals(reversed, tree.spliterator().getComparator());
+
+		ArrayList<Integer> elements = new ArrayList<>();
+		splitAndCollect(tree.spliterator(), elements);
+
+		for (int i = 0; i < 3000; i++) {
+			assertEquals(2999 - i, elements.get(i));
+		}
+	}
+
+	@Test
+	void removeFromBulkLoadedTrees() {
+		for (int size = 0; size < 200; size++) {
+			ArrayList<Integer> elements = new ArrayList<>();
+
+			for (int i = 0; i < size; i++) {
+				elements.add(i);
+			}
+
+			AVLTree<Integer> avl = AVLTree.fromSorted(elements.iterator(), size);
+			RedBlackTree<Integer> redBlack = RedBlackTree.fromSorted(elements.iterator(), size);
+			avl.checkInvariants();
+			redBlack.checkInvariants();
+
+			Collections.shuffle(elements, new Random(size));
+
+			for (Integer element : elements) {
+				assertTrue(avl.remove(element));
+				assertTrue(redBlack.remove(element));
+				avl.checkInvariants();
+				redBlack.checkInvariants();
+			}
+
+			assertTrue(avl.isEmpty());
+			assertTrue(redBlack.isEmpty());
+		}
+	}
+
+	@Test
+	void removeAbsentElement() {
+		for (Kind kind : Kind.values()) {
+			BinarySearchTree<Integer, ?> tree = kind.factory.get();
+			assertFalse(tree.remove(1));
+
+			tree.add(2);
+			assertFalse(tree.remove(1));
+			assertTrue(tree.remove(2));
+			assertFalse(tree.remove(2));
+			tree.checkInvariants();
+		}
+	}
+
+	@Test
+	void invariantCheckFindsBrokenTree() {
+		AVLTree<Integer> tree = new AVLTree<>();
+
+		for (int i = 0; i < 10; i++) {
+			tree.add(i);
+		}
+
+		assert tree.root != null;
+		tree.root.height++;
+		assertThrows(IllegalStateException.class, tree::checkInvariants);
+	}
+
+	/**
+	 * Check rank, select and countInRange against the sorted elements, for every element and gap in the range and
+	 * random ranges, including ranges which are empty or reversed.
+	 */
+	private static void assertOrderStatistics(ArrayList<Integer> sorted, BinarySearchTree<Integer, ?> tree, SplittableRandom random, int range) {
+		for (int element = -1; element <= range; element++) {
+			int below = 0;
+			while (below < sorted.size() && sorted.get(below) < element) below++;
+			assertEquals(below, tree.rank(element), "rank " + element);
+		}
+
+		for (int k = 0; k < sorted.size(); k++) {
+			assertEquals(sorted.get(k), tree.select(k), "select " + k);
+		}
+
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(sorted.size()));
+
+		for (int i = 0; i < 500; i++) {
+			int low = random.nextInt(-1, range + 1);
+			int high = random.nextInt(-1, range + 1);
+			int count = 0;
+
+			for (int element : sorted) {
+				if (element >= low && element <= high) count++;
+			}
+
+			assertEquals(count, tree.countInRange(low, high), "countInRange " + low + " to " + high);
+		}
+	}
+
+	/**
+	 * Split the spliterator recursively until it refuses, checking every piece knows its exact size, then traverse
+	 * the pieces in order.
+	 * @return the number of pieces traversed.
+	 */
+	private static int splitAndCollect(Spliterator<Integer> spliterator, ArrayList<Integer> elements) {
+		long size = spliterator.getExactSizeIfKnown();
+		Spliterator<Integer> prefix = spliterator.trySplit();
+
+		if (prefix == null) {
+			int before = elements.size();
+			spliterator.forEachRemaining(elements::add);
+			assertEquals(size, elements.size() - before, "elements in piece");
+			assertFalse(spliterator.tryAdvance(element -> {}));
+			return 1;
+		}
+
+		assertEquals(size, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown(), "sizes of halves");
+		assertTrue(prefix.hasCharacteristics(Spliterator.SUBSIZED));
+		return splitAndCollect(prefix, elements) + splitAndCollect(spliterator, elements);
+	}
+}
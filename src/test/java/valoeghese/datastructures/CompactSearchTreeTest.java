@@ -0,0 +1,222 @@
+package valoeghese.datastructures;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the structure shared by the compact trees: the reusable path they rebalance along instead of parent
+ * links, removal by moving a successor's element, and the balancing information packed into each node.
+ */
+class CompactSearchTreeTest {
+	enum Kind {
+		AVL(CompactAVLTree::new),
+		RED_BLACK(CompactRedBlackTree::new);
+
+		Kind(Supplier<CompactSearchTree<Integer>> factory) {
+			this.factory = factory;
+		}
+
+		final Supplier<CompactSearchTree<Integer>> factory;
+	}
+
+	@Test
+	void pathGrowsPastInitialLength() {
+		CompactAVLTree<Integer> tree = new CompactAVLTree<>();
+
+		// attach without rebalancing, leaving a path 200 nodes deep which no balanced tree could reach
+		for (int i = 0; i < 200; i++) {
+			int depth = tree.pathToInsert(i * 2);
+			assertEquals(i, depth);
+			tree.attach(depth, new CompactSearchTree.Node<>(i * 2));
+			tree.clearPath(depth);
+		}
+
+		// the path doubles each time it fills
+		assertEquals(256, tree.path.length);
+
+		assertEquals(200, tree.pathToFind(398));
+
+		for (int i = 0; i < 200; i++) {
+			assertEquals(i * 2, tree.path[i].elem, "path at depth " + i);
+		}
+
+		tree.clearPath(200);
+		assertPathEmpty(tree);
+
+		// a miss clears the path it recorded
+		assertEquals(-1, tree.pathToFind(399));
+		assertPathEmpty(tree);
+
+		assertEquals(200, tree.pathToInsert(397));
+		assertTrue(tree.insertLeft);
+		assertEquals(398, tree.path[199].elem);
+		tree.clearPath(200);
+
+		// the successor of a node on the spine is its right child, as there are no left children
+		assertEquals(100, tree.pathToFind(198));
+		assertEquals(101, tree.pathToSuccessor(100));
+		assertEquals(200, tree.path[100].elem);
+		tree.clearPath(101);
+		assertPathEmpty(tree);
+
+		assertEquals(200, tree.size());
+		assertTrue(tree.contains(0));
+		assertTrue(tree.contains(398));
+		assertFalse(tree.contains(397));
+		assertEquals(398, tree.findMax());
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void pathIsClearedAfterEveryOperation(Kind kind) {
+		CompactSearchTree<Integer> tree = kind.factory.get();
+		ArrayList<Integer> elements = new ArrayList<>();
+
+		for (int i = 0; i < 500; i++) {
+			elements.add(i);
+		}
+
+		Collections.shuffle(elements, new Random(2));
+
+		// checkInvariants fails if any node is left on the path
+		for (Integer element : elements) {
+			tree.add(element);
+			tree.checkInvariants();
+		}
+
+		// duplicates, misses, and removals of nodes with two children, which extend the path to the successor
+		tree.add(250);
+		tree.checkInvariants();
+		assertFalse(tree.remove(1000));
+		tree.checkInvariants();
+		assertFalse(tree.remove(-1));
+		tree.checkInvariants();
+
+		Collections.shuffle(elements, new Random(3));
+
+		for (Integer element : elements) {
+			assertTrue(tree.remove(element));
+			tree.checkInvariants();
+		}
+
+		assertTrue(tree.remove(250));
+		tree.checkInvariants();
+		assertTrue(tree.isEmpty());
+		assertNull(tree.root);
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void removeMovesSuccessorElement(Kind kind) {
+		CompactSearchTree<Integer> tree = kind.factory.get();
+
+		// adding in level order builds a perfect tree of 15 nodes, rooted at 7
+		for (int element : new int[] {7, 3, 11, 1, 5, 9, 13, 0, 2, 4, 6, 8, 10, 12, 14}) {
+			tree.add(element);
+		}
+
+		CompactSearchTree.Node<Integer> root = tree.root;
+		assert root != null;
+		assertEquals(7, root.elem);
+
+		// without parent links the node stays where it is, and takes its successor's element
+		assertTrue(tree.remove(7));
+		tree.checkInvariants();
+		assertSame(root, tree.root);
+		assertEquals(8, root.elem);
+		assertFalse(tree.contains(7));
+		assertEquals(14, tree.size());
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void balancingBitsStayPacked(Kind kind) {
+		CompactSearchTree<Integer> tree = kind.factory.get();
+		Random random = new Random(4);
+
+		for (int i = 0; i < 5000; i++) {
+			if (random.nextInt(3) == 0) {
+				tree.remove(random.nextInt(1000));
+			} else {
+				tree.add(random.nextInt(1000));
+			}
+		}
+
+		tree.checkInvariants();
+
+		// AVL balance factors are two bit two's complement, so never 2, and red-black trees use a single colour bit
+		int allowed = kind == Kind.AVL ? 0b1011 : 0b11;
+		assertBits(tree.root, allowed);
+	}
+
+	@ParameterizedTest
+	@EnumSource(Kind.class)
+	void sequentialThenShuffledRemoval(Kind kind) {
+		// ascending inserts always rebalance along the right spine
+		CompactSearchTree<Integer> tree = kind.factory.get();
+		ArrayList<Integer> elements = new ArrayList<>();
+
+		for (int i = 0; i < 5000; i++) {
+			tree.add(i);
+			elements.add(i);
+		}
+
+		tree.checkInvariants();
+		Collections.shuffle(elements, new Random(1));
+
+		for (Integer element : elements) {
+			assertTrue(tree.remove(element));
+		}
+
+		tree.checkInvariants();
+		assertTrue(tree.isEmpty());
+	}
+
+	@Test
+	void comparatorOrder() {
+		CompactAVLTree<Integer> avl = new CompactAVLTree<>(Comparator.<Integer>reverseOrder());
+		CompactRedBlackTree<Integer> redBlack = new CompactRedBlackTree<>(Comparator.<Integer>reverseOrder());
+
+		for (int i = 0; i < 100; i++) {
+			avl.add(i);
+			redBlack.add(i);
+		}
+
+		avl.checkInvariants();
+		redBlack.checkInvariants();
+		assertEquals(99, avl.iterator().next());
+		assertEquals(99, redBlack.iterator().next());
+	}
+
+	private static void assertPathEmpty(CompactSearchTree<Integer> tree) {
+		for (int i = 0; i < tree.path.length; i++) {
+			assertNull(tree.path[i], "path at depth " + i);
+		}
+	}
+
+	/**
+	 * Check the balancing bits of every node in the subtree are among the allowed values.
+	 * @param allowed a bit set of the allowed values.
+	 */
+	private static void assertBits(@Nullable CompactSearchTree.Node<Integer> node, int allowed) {
+		if (node == null) return;
+
+		assertTrue((allowed & (1 << node.bits)) != 0, "bits " + node.bits + " of node " + node.elem);
+		assertBits(node.leftChild, allowed);
+		assertBits(node.rightChild, allowed);
+	}
+}
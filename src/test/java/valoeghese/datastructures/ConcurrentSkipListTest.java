@@ -0,0 +1,142 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link ConcurrentSkipList}, on one thread against a model, and on several threads at once, checking the
+ * links on every level and the element count once the writers have finished.
+ */
+class ConcurrentSkipListTest {
+	@Test
+	void randomOperationsMatchModel() {
+		for (long seed = 0; seed < 20; seed++) {
+			ConcurrentSkipList<Integer> list = new ConcurrentSkipList<>();
+			TreeModel.fuzz(list, true, list::checkInvariants, seed, 3000, 1000);
+		}
+	}
+
+	@Test
+	void manyDuplicates() {
+		for (long seed = 0; seed < 20; seed++) {
+			ConcurrentSkipList<Integer> list = new ConcurrentSkipList<>();
+			TreeModel.fuzz(list, true, list::checkInvariants, seed, 3000, 8);
+		}
+	}
+
+	@Test
+	void concurrentAddAndRemove() throws Exception {
+		final int threads = 8;
+		final int perThread = 20000;
+		ConcurrentSkipList<Integer> list = new ConcurrentSkipList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+
+		try {
+			ArrayList<Future<TreeModel>> results = new ArrayList<>();
+
+			for (int t = 0; t < threads; t++) {
+				final long seed = t;
+
+				// every thread works over the same elements, so they contend for the same nodes and duplicates
+				results.add(executor.submit(() -> {
+					SplittableRandom random = new SplittableRandom(seed);
+					TreeModel added = new TreeModel();
+					start.await();
+
+					for (int i = 0; i < perThread; i++) {
+						int element = random.nextInt(500);
+
+						if (random.nextInt(3) != 0) {
+							list.add(element);
+							added.add(element);
+						} else if (added.contains(element)) {
+							// this thread added a copy it has not removed, so there is one for it to remove
+							assertTrue(list.remove(element), "remove " + element);
+							added.remove(element);
+						} else {
+							list.contains(element);
+						}
+					}
+
+					return added;
+				}));
+			}
+
+			start.countDown();
+			TreeModel expected = new TreeModel();
+
+			for (Future<TreeModel> result : results) {
+				for (int element : result.get(60, TimeUnit.SECONDS).sorted()) {
+					expected.add(element);
+				}
+			}
+
+			list.checkInvariants();
+			expected.assertMatches(list, true);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void concurrentRemoveTakesEachCopyOnce() throws Exception {
+		final int threads = 8;
+		final int copies = 3;
+		ConcurrentSkipList<Integer> list = new ConcurrentSkipList<>();
+
+		for (int element = 0; element < 2000; element++) {
+			for (int i = 0; i < copies; i++) {
+				list.add(element);
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+
+		try {
+			ArrayList<Future<Integer>> results = new ArrayList<>();
+
+			for (int t = 0; t < threads; t++) {
+				results.add(executor.submit(() -> {
+					int removed = 0;
+					start.await();
+
+					// every thread tries to remove every copy, so each remove races the others
+					for (int element = 0; element < 2000; element++) {
+						for (int i = 0; i < copies; i++) {
+							if (list.remove(element)) removed++;
+						}
+					}
+
+					return removed;
+				}));
+			}
+
+			start.countDown();
+			int removed = 0;
+
+			for (Future<Integer> result : results) {
+				removed += result.get(60, TimeUnit.SECONDS);
+			}
+
+			assertEquals(2000 * copies, removed);
+			assertEquals(0, list.size());
+			assertFalse(list.iterator().hasNext());
+			list.checkInvariants();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
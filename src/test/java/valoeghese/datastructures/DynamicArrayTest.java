@@ -0,0 +1,255 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Randomised tests of {@link DynamicArray} against an {@link ArrayList} and its minimum index. Small arrays are used
+ * so the elements wrap around the end of the circular buffer often. The capacity is checked against the
+ * {@link DynamicArray.GrowthPolicy}.
+ */
+class DynamicArrayTest {
+	@Test
+	void randomOperationsMatchModel() {
+		for (long seed = 0; seed < 50; seed++) {
+			SplittableRandom random = new SplittableRandom(seed);
+			int min = random.nextInt(-5, 6);
+			DynamicArray<Integer> array = new DynamicArray<>(min, random.nextInt(5));
+			ArrayList<Integer> model = new ArrayList<>();
+
+			for (int i = 0; i < 3000; i++) {
+				int roll = random.nextInt(100);
+
+				if (roll < 25) {
+					array.add(i);
+					model.add(i);
+				} else if (roll < 50) {
+					array.prepend(i);
+					model.add(0, i);
+					min--;
+				} else if (roll < 90) {
+					if (model.isEmpty()) continue;
+
+					// removes near either end move the shorter side, across the wrap when the head is near the end
+					int offset = random.nextBoolean() ? random.nextInt(Math.min(3, model.size())) : random.nextInt(model.size());
+					if (random.nextBoolean()) offset = model.size() - 1 - offset;
+					boolean shiftForwards = random.nextBoolean();
+
+					assertEquals(model.remove(offset), array.remove(min + offset, shiftForwards), "remove " + (min + offset));
+					if (shiftForwards) min++;
+				} else if (!model.isEmpty()) {
+					int a = random.nextInt(model.size());
+					int b = random.nextInt(model.size());
+					array.swap(min + a, min + b);
+					model.set(a, model.set(b, model.get(a)));
+				}
+
+				assertMatches(model, min, array);
+			}
+		}
+	}
+
+	@Test
+	void minIndexFollowsPrependAndRemove() {
+		DynamicArray<String> array = new DynamicArray<>(10, 4);
+		array.add("a");
+		array.add("b");
+		array.add("c");
+
+		// prepending lowers the minimum, so the elements already there keep their indices
+		array.prepend("z");
+		assertEquals(9, array.minIndex());
+		assertEquals("z", array.get(9));
+		assertEquals("a", array.get(10));
+		assertEquals("c", array.get(12));
+
+		// removing near the front moves the front up, but the indices only change on the side asked for
+		assertEquals("a", array.remove(10, false));
+		assertEquals(9, array.minIndex());
+		assertEquals("z", array.get(9));
+		assertEquals("b", array.get(10));
+		assertEquals(11, array.maxIndex());
+
+		assertEquals("c", array.remove(11, true));
+		assertEquals(10, array.minIndex());
+		assertEquals("z", array.get(10));
+		assertEquals("b", array.get(11));
+
+		assertThrows(IndexOutOfBoundsException.class, () -> array.get(9));
+		assertThrows(IndexOutOfBoundsException.class, () -> array.get(12));
+	}
+
+	@Test
+	void indexOfAcrossWrap() {
+		DynamicArray<Integer> array = new DynamicArray<>(0, 8);
+
+		// the head wraps to the end of the array, and the tail stays at the start
+		for (int i = 0; i < 4; i++) {
+			array.add(i % 2);
+			array.prepend(i % 2);
+		}
+
+		// 1 0 1 0 0 1 0 1, from index -4
+		assertEquals(-4, array.indexOf(1));
+		assertEquals(-2, array.indexOf(1, 1));
+		assertEquals(3, array.lastIndexOf(1));
+		assertEquals(1, array.indexOf(1, -2));
+		assertEquals(array.noElement(), array.indexOf(2));
+		assertEquals(array.noElement(), array.indexOf(1, 4));
+	}
+
+	@Test
+	void emptyInitialSize() {
+		DynamicArray<Integer> array = new DynamicArray<>(0);
+		array.prepend(1);
+		array.add(2);
+		assertEquals(-1, array.minIndex());
+		assertEquals(1, array.remove(-1));
+		assertEquals(2, array.remove(-1));
+		assertFalse(array.iterator().hasNext());
+	}
+
+	@Test
+	void growthFollowsPolicy() {
+		DynamicArray.GrowthPolicy policy = new DynamicArray.GrowthPolicy(1.5, 10, 0.2);
+		DynamicArray<Integer> array = new DynamicArray<>(0, 3, policy);
+		int capacity = array.capacity();
+
+		for (int i = 0; i < 500; i++) {
+			array.add(i);
+
+			if (array.capacity() != capacity) {
+				// only grows when full, by the factor but never more than the maximum step
+				assertEquals(capacity + 1, array.size(), "grew before full");
+				assertEquals(capacity + Math.max(1, Math.min((int) Math.ceil(capacity * 0.5), 10)), array.capacity());
+				capacity = array.capacity();
+			}
+		}
+
+		while (!array.isEmpty()) {
+			array.remove(array.maxIndex());
+
+			if (array.capacity() != capacity) {
+				// shrinks to twice the size once under the threshold, but never below the initial size
+				assertTrue(array.size() < capacity * 0.2, "shrank at " + array.size() + " of " + capacity);
+				assertEquals(Math.max(array.size() * 2, 3), array.capacity());
+				capacity = array.capacity();
+			}
+		}
+
+		assertEquals(3, array.capacity());
+	}
+
+	@Test
+	void zeroThresholdNeverShrinks() {
+		DynamicArray<Integer> array = new DynamicArray<>(0, 1, new DynamicArray.GrowthPolicy(2, Integer.MAX_VALUE, 0));
+
+		for (int i = 0; i < 1000; i++) {
+			array.add(i);
+		}
+
+		int capacity = array.capacity();
+
+		while (!array.isEmpty()) {
+			array.remove(array.minIndex(), true);
+		}
+
+		assertEquals(capacity, array.capacity());
+	}
+
+	@Test
+	void invalidPolicies() {
+		assertThrows(IllegalArgumentException.class, () -> new DynamicArray.GrowthPolicy(1, 10, 0.25));
+		assertThrows(IllegalArgumentException.class, () -> new DynamicArray.GrowthPolicy(Double.NaN, 10, 0.25));
+		assertThrows(IllegalArgumentException.class, () -> new DynamicArray.GrowthPolicy(2, 0, 0.25));
+		assertThrows(IllegalArgumentException.class, () -> new DynamicArray.GrowthPolicy(2, 10, -0.1));
+		assertThrows(IllegalArgumentException.class, () -> new DynamicArray.GrowthPolicy(2, 10, 0.5));
+	}
+
+	@Test
+	void ensureCapacityAndTrimKeepElements() {
+		DynamicArray<Integer> array = new DynamicArray<>(0, 8);
+		ArrayList<Integer> model = new ArrayList<>();
+
+		// put the head near the end of the array, so the elements wrap
+		for (int i = 0; i < 3; i++) {
+			array.add(i);
+			array.prepend(-i - 1);
+			model.add(i);
+			model.add(0, -i - 1);
+		}
+
+		array.ensureCapacity(4);
+		assertEquals(8, array.capacity());
+
+		array.ensureCapacity(100);
+		assertEquals(100, array.capacity());
+		assertMatches(model, -3, array);
+
+		array.trimToSize();
+		assertEquals(6, array.capacity());
+		assertMatches(model, -3, array);
+
+		// full after trimming, so the next add grows
+		array.add(3);
+		model.add(3);
+		assertTrue(array.capacity() > 6);
+		assertMatches(model, -3, array);
+	}
+
+	@Test
+	void addAllAcrossWrap() {
+		for (int prepended = 0; prepended < 8; prepended++) {
+			for (int batch = 0; batch < 20; batch++) {
+				DynamicArray<Integer> array = new DynamicArray<>(0, 8);
+				ArrayList<Integer> model = new ArrayList<>();
+
+				// the head steps back from the start of the array, wrapping to the end
+				for (int i = 0; i < prepended; i++) {
+					array.prepend(-i - 1);
+					model.add(0, -i - 1);
+				}
+
+				Integer[] elements = new Integer[batch];
+
+				for (int i = 0; i < batch; i++) {
+					elements[i] = i;
+					model.add(i);
+				}
+
+				int capacity = array.capacity();
+				array.addAll(elements);
+				assertMatches(model, -prepended, array);
+
+				// grows at most once, straight to the policy's capacity for the new size
+				if (model.size() <= capacity) {
+					assertEquals(capacity, array.capacity());
+				} else {
+					assertEquals(Math.max(capacity * 2, model.size()), array.capacity());
+				}
+			}
+		}
+	}
+
+	static void assertMatches(ArrayList<Integer> model, int min, DynamicArray<Integer> array) {
+		assertEquals(model.size(), array.size(), "size");
+		assertEquals(min, array.minIndex(), "minIndex");
+
+		Iterator<Integer> iterator = array.iterator();
+
+		for (int i = 0; i < model.size(); i++) {
+			assertEquals(model.get(i), array.get(min + i), "get " + (min + i));
+			assertEquals(model.get(i), iterator.next(), "iterator at " + (min + i));
+		}
+
+		assertFalse(iterator.hasNext(), "iterator past the end");
+	}
+}
@@ -0,0 +1,127 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Randomised tests of {@link MappedBPlusTree} against a model, checking the pages and leaf links after every
+ * operation. Small pages split often and build tall trees, and a small cache unmaps pages while they are in use.
+ */
+class MappedBPlusTreeTest {
+	@TempDir
+	Path directory;
+
+	@ParameterizedTest
+	@ValueSource(ints = {64, 128, MappedBPlusTree.DEFAULT_PAGE_SIZE})
+	void randomOperationsMatchModel(int pageSize) throws IOException {
+		for (long seed = 0; seed < 5; seed++) {
+			for (int range : new int[] {6, 500, 100_000}) {
+				Path file = this.directory.resolve("tree-" + pageSize + "-" + seed + "-" + range);
+
+				try (MappedBPlusTree<Integer> tree = MappedBPlusTree.open(file, KeyCodec.INTEGER, pageSize, 256)) {
+					TreeModel.fuzz(tree, true, tree::checkInvariants, seed, 1000, range);
+				}
+			}
+		}
+	}
+
+	@Test
+	void smallCache() throws IOException {
+		// the tree has many more pages than are cached, so pages are unmapped while operations are using the tree
+		try (MappedBPlusTree<Integer> tree = MappedBPlusTree.open(this.directory.resolve("small-cache"), KeyCodec.INTEGER, 64, MappedBPlusTree.MIN_CACHE_PAGES)) {
+			TreeModel.fuzz(tree, true, tree::checkInvariants, 0, 1000, 100_000);
+		}
+	}
+
+	@Test
+	void reopenedTreeMatches() throws IOException {
+		Path file = this.directory.resolve("tree");
+		SplittableRandom random = new SplittableRandom(4);
+		TreeModel model = new TreeModel();
+
+		try (MappedBPlusTree<Integer> tree = MappedBPlusTree.open(file, KeyCodec.INTEGER, 64, MappedBPlusTree.MIN_CACHE_PAGES)) {
+			for (int i = 0; i < 20_000; i++) {
+				int key = random.nextInt(5000);
+
+				if (random.nextInt(4) == 0) {
+					assertEquals(model.remove(key), tree.remove(key));
+				} else {
+					tree.add(key);
+					model.add(key);
+				}
+			}
+
+			tree.checkInvariants();
+		}
+
+		try (MappedBPlusTree<Integer> tree = MappedBPlusTree.open(file, KeyCodec.INTEGER)) {
+			assertEquals(64, tree.pageSize());
+			tree.checkInvariants();
+			model.assertMatches(tree, true);
+		}
+	}
+
+	@Test
+	void ascendingAndDescendingInserts() throws IOException {
+		// sequential keys always split the same edge of the tree
+		try (MappedBPlusTree<Integer> ascending = MappedBPlusTree.open(this.directory.resolve("ascending"), KeyCodec.INTEGER, 64, MappedBPlusTree.MIN_CACHE_PAGES);
+			 MappedBPlusTree<Integer> descending = MappedBPlusTree.open(this.directory.resolve("descending"), KeyCodec.INTEGER, 64, MappedBPlusTree.MIN_CACHE_PAGES)) {
+			ArrayList<Integer> expected = new ArrayList<>();
+
+			for (int i = 0; i < 10_000; i++) {
+				ascending.add(i);
+				descending.add(9_999 - i);
+				expected.add(i);
+			}
+
+			ascending.checkInvariants();
+			descending.checkInvariants();
+			assertEquals(expected, ascending.stream().toList());
+			assertEquals(expected, descending.stream().toList());
+		}
+	}
+
+	@Test
+	void rejectedKeyLeavesTreeUnchanged() throws IOException {
+		Path file = this.directory.resolve("rejected");
+		ArrayList<String> expected = new ArrayList<>();
+
+		try (MappedBPlusTree<String> tree = MappedBPlusTree.open(file, KeyCodec.utf8(4), 64, MappedBPlusTree.MIN_CACHE_PAGES)) {
+			// try a key too long to encode between every add, so it lands in both full and part full leaves
+			for (int i = 0; i < 300; i++) {
+				String key = String.format("%03d", i * 7 % 300);
+				tree.add(key);
+				expected.add(key);
+
+				assertThrows(IllegalArgumentException.class, () -> tree.add(key + "bbbbbbbbbb"));
+				assertEquals(expected.size(), tree.size());
+				tree.checkInvariants();
+			}
+		}
+
+		expected.sort(null);
+
+		try (MappedBPlusTree<String> tree = MappedBPlusTree.open(file, KeyCodec.utf8(4))) {
+			tree.checkInvariants();
+			assertEquals(expected, tree.stream().toList());
+		}
+	}
+
+	@Test
+	void closedTreeThrows() throws IOException {
+		MappedBPlusTree<Integer> tree = MappedBPlusTree.open(this.directory.resolve("closed"), KeyCodec.INTEGER);
+		tree.add(1);
+		tree.close();
+		assertThrows(IllegalStateException.class, () -> tree.contains(1));
+	}
+}
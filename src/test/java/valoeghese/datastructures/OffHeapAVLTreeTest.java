@@ -0,0 +1,86 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Randomised tests of {@link OffHeapAVLTree} against a model, checking the links and heights of the node records
+ * after every operation.
+ */
+class OffHeapAVLTreeTest {
+	@Test
+	void randomOperationsMatchModel() {
+		for (long seed = 0; seed < 20; seed++) {
+			for (int range : new int[] {8, 500}) {
+				try (OffHeapAVLTree tree = new OffHeapAVLTree()) {
+					this.fuzz(tree, seed, 2000, range);
+				}
+			}
+		}
+	}
+
+	@Test
+	void spansManyChunks() {
+		// each chunk holds 2^16 records, so this moves records between chunks as nodes are freed
+		try (OffHeapAVLTree tree = new OffHeapAVLTree()) {
+			SplittableRandom random = new SplittableRandom(3);
+			TreeMap<Long, Integer> model = new TreeMap<>();
+
+			for (int i = 0; i < 200_000; i++) {
+				long key = random.nextLong(1_000_000);
+				tree.add(key);
+				model.merge(key, 1, Integer::sum);
+			}
+
+			for (int i = 0; i < 150_000; i++) {
+				long key = random.nextLong(1_000_000);
+				assertEquals(model.containsKey(key), tree.remove(key));
+				model.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+			}
+
+			tree.checkInvariants();
+			assertEquals(expand(model), toList(tree.iterator()));
+		}
+	}
+
+	private void fuzz(OffHeapAVLTree tree, long seed, int operations, int range) {
+		SplittableRandom random = new SplittableRandom(seed);
+		TreeMap<Long, Integer> model = new TreeMap<>();
+
+		for (int i = 0; i < operations; i++) {
+			long key = random.nextInt(range);
+
+			if (random.nextInt(100) < (i < operations / 2 ? 60 : 35)) {
+				tree.add(key);
+				model.merge(key, 1, Integer::sum);
+			} else {
+				assertEquals(model.containsKey(key), tree.remove(key), "remove " + key);
+				model.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+			}
+
+			tree.checkInvariants();
+		}
+
+		assertEquals(expand(model), toList(tree.iterator()));
+	}
+
+	private static ArrayList<Long> expand(TreeMap<Long, Integer> model) {
+		ArrayList<Long> keys = new ArrayList<>();
+		model.forEach((key, count) -> {
+			for (int i = 0; i < count; i++) keys.add(key);
+		});
+		return keys;
+	}
+
+	private static ArrayList<Long> toList(Iterator<Long> iterator) {
+		ArrayList<Long> keys = new ArrayList<>();
+		iterator.forEachRemaining(keys::add);
+		return keys;
+	}
+}
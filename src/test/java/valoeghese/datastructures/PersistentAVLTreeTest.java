@@ -0,0 +1,126 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Randomised tests of {@link PersistentAVLTree} against a model, including the multiset semantics of its set
+ * operations when either tree holds duplicates.
+ */
+class PersistentAVLTreeTest {
+	@Test
+	void randomOperationsMatchModel() {
+		for (long seed = 0; seed < 20; seed++) {
+			PersistentAVLTree<Integer> tree = new PersistentAVLTree<>();
+			TreeModel.fuzz(tree, true, tree::checkInvariants, seed, 2000, 500);
+
+			tree = new PersistentAVLTree<>();
+			TreeModel.fuzz(tree, true, tree::checkInvariants, seed, 2000, 8);
+		}
+	}
+
+	@Test
+	void snapshotsAreUnchanged() {
+		PersistentAVLTree<Integer> tree = new PersistentAVLTree<>();
+		TreeModel model = new TreeModel();
+		SplittableRandom random = new SplittableRandom(5);
+
+		for (int i = 0; i < 500; i++) {
+			int element = random.nextInt(100);
+			tree.add(element);
+			model.add(element);
+		}
+
+		PersistentAVLTree<Integer> snapshot = tree.snapshot();
+
+		for (int i = 0; i < 500; i++) {
+			tree.remove(random.nextInt(100));
+		}
+
+		model.assertMatches(snapshot, true);
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.add(1));
+	}
+
+	@Test
+	void setOperationsAreMultisetOperations() {
+		SplittableRandom random = new SplittableRandom(9);
+
+		for (int run = 0; run < 300; run++) {
+			// small runs are done sequentially, large ones fork
+			int maxSize = run < 250 ? 60 : 20_000;
+			int range = 1 + random.nextInt(run % 2 == 0 ? 20 : 100_000);
+			PersistentAVLTree<Integer> a = randomTree(random, random.nextInt(maxSize), range);
+			PersistentAVLTree<Integer> b = randomTree(random, random.nextInt(maxSize), range);
+			TreeMap<Integer, Integer> countA = counts(a);
+			TreeMap<Integer, Integer> countB = counts(b);
+
+			TreeMap<Integer, Integer> union = new TreeMap<>(countA);
+			TreeMap<Integer, Integer> intersection = new TreeMap<>();
+			TreeMap<Integer, Integer> difference = new TreeMap<>();
+			countB.forEach((element, count) -> union.merge(element, count, Integer::sum));
+			countA.forEach((element, count) -> {
+				int other = countB.getOrDefault(element, 0);
+				if (Math.min(count, other) > 0) intersection.put(element, Math.min(count, other));
+				if (count > other) difference.put(element, count - other);
+			});
+
+			assertResult(union, PersistentAVLTree.union(a, b));
+			assertResult(intersection, PersistentAVLTree.intersection(a, b));
+			assertResult(difference, PersistentAVLTree.difference(a, b));
+
+			// the operands are not modified
+			assertEquals(countA, counts(a));
+			assertEquals(countB, counts(b));
+		}
+	}
+
+	@Test
+	void splitAndJoin() {
+		PersistentAVLTree<Integer> tree = randomTree(new SplittableRandom(2), 1000, 200);
+		TreeMap<Integer, Integer> counts = counts(tree);
+		PersistentAVLTree.Split<Integer> split = tree.split(100);
+		split.less().checkInvariants();
+		split.greater().checkInvariants();
+
+		assertEquals(counts.containsKey(100), split.found());
+		assertEquals(new TreeMap<>(counts.headMap(100)), counts(split.less()));
+		assertEquals(new TreeMap<>(counts.tailMap(100, false)), counts(split.greater()));
+
+		PersistentAVLTree<Integer> joined = PersistentAVLTree.join(split.less(), split.greater());
+		joined.checkInvariants();
+		counts.remove(100);
+		assertEquals(counts, counts(joined));
+		assertThrows(IllegalArgumentException.class, () -> PersistentAVLTree.join(split.greater(), split.less()));
+	}
+
+	private static PersistentAVLTree<Integer> randomTree(SplittableRandom random, int size, int range) {
+		PersistentAVLTree<Integer> tree = new PersistentAVLTree<>();
+
+		for (int i = 0; i < size; i++) {
+			tree.add(random.nextInt(range));
+		}
+
+		return tree;
+	}
+
+	private static TreeMap<Integer, Integer> counts(PersistentAVLTree<Integer> tree) {
+		TreeMap<Integer, Integer> counts = new TreeMap<>();
+
+		for (Integer element : tree) {
+			counts.merge(element, 1, Integer::sum);
+		}
+
+		return counts;
+	}
+
+	private static void assertResult(TreeMap<Integer, Integer> expected, PersistentAVLTree<Integer> result) {
+		result.checkInvariants();
+		assertEquals(expected, counts(result));
+		assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(), result.size());
+	}
+}
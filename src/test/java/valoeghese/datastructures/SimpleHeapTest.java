@@ -0,0 +1,100 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Randomised tests of {@link SimpleHeap} against a {@link PriorityQueue}, checking the heap order after every
+ * operation.
+ */
+class SimpleHeapTest {
+	@Test
+	void randomOperationsMatchModel() {
+		for (long seed = 0; seed < 20; seed++) {
+			SimpleHeap<Integer> min = SimpleHeap.newMinHeap();
+			SimpleHeap<Integer> max = SimpleHeap.newMaxHeap();
+			TreeModel.fuzz(min, false, min::checkInvariants, seed, 2000, 300);
+			TreeModel.fuzz(max, false, max::checkInvariants, seed, 2000, 300);
+		}
+	}
+
+	@Test
+	void removeTopMatchesPriorityQueue() {
+		SplittableRandom random = new SplittableRandom(7);
+		SimpleHeap<Integer> heap = SimpleHeap.newMinHeap();
+		PriorityQueue<Integer> queue = new PriorityQueue<>();
+
+		for (int i = 0; i < 20_000; i++) {
+			if (queue.isEmpty() || random.nextInt(3) > 0) {
+				int element = random.nextInt(1000);
+				heap.add(element);
+				queue.add(element);
+			} else {
+				assertEquals(queue.poll(), heap.remove());
+			}
+		}
+
+		heap.checkInvariants();
+
+		while (!queue.isEmpty()) {
+			assertEquals(queue.poll(), heap.remove());
+		}
+
+		assertThrows(NoSuchElementException.class, heap::remove);
+	}
+
+	@Test
+	void bulkBuildAndDrain() {
+		SplittableRandom random = new SplittableRandom(11);
+		Integer[] elements = new Integer[1_000_000];
+
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = random.nextInt();
+		}
+
+		SimpleHeap<Integer> heap = SimpleHeap.newMaxHeap(elements);
+		heap.checkInvariants();
+
+		Integer[] expected = elements.clone();
+		Arrays.sort(expected, Comparator.reverseOrder());
+
+		for (Integer element : expected) {
+			assertEquals(element, heap.remove());
+		}
+
+		assertTrue(heap.isEmpty());
+	}
+
+	@Test
+	void spliteratorKnowsSize() {
+		SimpleHeap<Integer> heap = SimpleHeap.newMinHeap();
+		SplittableRandom random = new SplittableRandom(13);
+		long sum = 0;
+
+		for (int i = 0; i < 5000; i++) {
+			int element = random.nextInt(1000);
+			heap.add(element);
+			sum += element;
+		}
+
+		// the default spliterator of a tree is sized, but not sorted, since a heap iterates in array order
+		Spliterator<Integer> spliterator = heap.spliterator();
+		assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.NONNULL));
+		assertFalse(spliterator.hasCharacteristics(Spliterator.SORTED));
+		assertEquals(5000, spliterator.getExactSizeIfKnown());
+
+		assertEquals(5000, heap.parallelStream().count());
+		assertEquals(sum, heap.parallelStream().mapToLong(Integer::longValue).sum());
+	}
+}
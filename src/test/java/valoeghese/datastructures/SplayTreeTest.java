@@ -0,0 +1,99 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the splay steps a {@link SplayTree} records in its {@link TreeMetrics} and {@link TreeTracer}. Each zig,
+ * zig-zig or zig-zag step is counted once, however many rotations it takes.
+ */
+class SplayTreeTest {
+	@Test
+	void deepAccessRecordsEachStepOnce() {
+		SplayTree<Integer> tree = new SplayTree<>();
+
+		// ascending adds leave a path down the left, with 0 at depth 7
+		for (int i = 0; i < 8; i++) {
+			tree.add(i);
+		}
+
+		TreeMetrics metrics = tree.enableMetrics();
+		TreeMetrics.Snapshot before = metrics.snapshot();
+		tree.contains(0);
+		TreeMetrics.Snapshot access = metrics.snapshot().since(before);
+
+		assertEquals(3, access.caseCounts().get(TreeMetrics.Case.SPLAY_ZIG_ZIG));
+		assertEquals(1, access.caseCounts().get(TreeMetrics.Case.SPLAY_ZIG));
+		assertEquals(0, access.caseCounts().get(TreeMetrics.Case.SPLAY_ZIG_ZAG));
+		assertEquals(7, access.rotations());
+		assertEquals(0, tree.root.elem);
+		tree.checkInvariants();
+	}
+
+	@Test
+	void bottomUpStepsAccountForEveryRotation() {
+		SplayTree<Integer> tree = new SplayTree<>();
+		TreeMetrics metrics = tree.enableMetrics();
+		SplittableRandom random = new SplittableRandom(3);
+
+		for (int i = 0; i < 5000; i++) {
+			TreeMetrics.Snapshot before = metrics.snapshot();
+			int element = random.nextInt(1000);
+
+			if (random.nextBoolean()) {
+				tree.add(element);
+			} else {
+				tree.contains(element);
+			}
+
+			TreeMetrics.Snapshot access = metrics.snapshot().since(before);
+			long zig = access.caseCounts().get(TreeMetrics.Case.SPLAY_ZIG);
+			long zigZig = access.caseCounts().get(TreeMetrics.Case.SPLAY_ZIG_ZIG);
+			long zigZag = access.caseCounts().get(TreeMetrics.Case.SPLAY_ZIG_ZAG);
+
+			// a zig is one rotation and the others two, and only the last step of a splay can be a zig
+			assertEquals(zig + 2 * (zigZig + zigZag), access.rotations(), "rotations of operation " + i);
+			assertTrue(zig <= 1, "zigs in operation " + i);
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(SplayTree.Splaying.class)
+	void tracedStepsMatchMetrics(SplayTree.Splaying splaying) {
+		SplayTree<Integer> tree = new SplayTree<>(splaying);
+		TreeMetrics metrics = tree.enableMetrics();
+		TreeTracer<Integer> tracer = tree.enableTracing(1 << 16);
+		SplittableRandom random = new SplittableRandom(4);
+
+		for (int i = 0; i < 2000; i++) {
+			int element = random.nextInt(300);
+			int roll = random.nextInt(3);
+
+			if (roll == 0) {
+				tree.add(element);
+			} else if (roll == 1) {
+				tree.remove(element);
+			} else {
+				tree.contains(element);
+			}
+		}
+
+		long[] traced = new long[TreeMetrics.Case.values().length];
+
+		for (long step = 0; step < tracer.eventCount(); step++) {
+			if (tracer.event(step) == TreeTracer.Event.SPLAY_STEP) {
+				traced[tracer.value(step)]++;
+			}
+		}
+
+		for (TreeMetrics.Case splayCase : new TreeMetrics.Case[] {TreeMetrics.Case.SPLAY_ZIG, TreeMetrics.Case.SPLAY_ZIG_ZIG, TreeMetrics.Case.SPLAY_ZIG_ZAG}) {
+			assertEquals(metrics.snapshot().caseCounts().get(splayCase), traced[splayCase.ordinal()], splayCase.name());
+		}
+	}
+}
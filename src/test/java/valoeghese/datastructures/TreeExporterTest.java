@@ -0,0 +1,54 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the size of the PNG images drawn by {@link TreeExporter}.
+ */
+class TreeExporterTest {
+	@Test
+	void wideTreeKeepsItsLevels() throws IOException {
+		AVLTree<Integer> tree = new AVLTree<>();
+		SplittableRandom random = new SplittableRandom(1);
+
+		for (int i = 0; i < 100_000; i++) {
+			tree.add(random.nextInt());
+		}
+
+		TreeLayout layout = TreeLayout.of(tree);
+		BufferedImage image = drawPng(layout, 1024, 1024);
+
+		// far wider than the image, but not so deep, so only the width is scaled down
+		assertEquals(1024, image.getWidth());
+		assertTrue(image.getHeight() >= (layout.height() - 1) * 48, "height " + image.getHeight());
+	}
+
+	@Test
+	void deepTreeFitsMaximumSize() throws IOException {
+		SplayTree<Integer> tree = new SplayTree<>();
+
+		for (int i = 0; i < 5000; i++) {
+			tree.add(i);
+		}
+
+		BufferedImage image = drawPng(TreeLayout.of(tree), 512, 512);
+		assertTrue(image.getWidth() <= 512, "width " + image.getWidth());
+		assertEquals(512, image.getHeight());
+	}
+
+	private static BufferedImage drawPng(TreeLayout layout, int maxWidth, int maxHeight) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		TreeExporter.writePng(layout, bytes, maxWidth, maxHeight);
+		return ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+}
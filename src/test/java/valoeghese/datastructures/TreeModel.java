@@ -0,0 +1,146 @@
+package valoeghese.datastructures;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A multiset of integers backed by a {@link TreeMap} of counts, which trees under test are compared against. Every
+ * tree may hold equal elements more than once, so the model counts them.
+ */
+final class TreeModel {
+	private final TreeMap<Integer, Integer> counts = new TreeMap<>();
+	private int size;
+
+	void add(int element) {
+		this.counts.merge(element, 1, Integer::sum);
+		this.size++;
+	}
+
+	boolean remove(int element) {
+		Integer count = this.counts.get(element);
+
+		if (count == null) {
+			return false;
+		}
+
+		if (count == 1) {
+			this.counts.remove(element);
+		} else {
+			this.counts.put(element, count - 1);
+		}
+
+		this.size--;
+		return true;
+	}
+
+	boolean contains(int element) {
+		return this.counts.containsKey(element);
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the elements in ascending order, with each repeated as many times as it was added.
+	 */
+	ArrayList<Integer> sorted() {
+		ArrayList<Integer> sorted = new ArrayList<>(this.size);
+
+		for (Map.Entry<Integer, Integer> entry : this.counts.entrySet()) {
+			for (int i = 0; i < entry.getValue(); i++) {
+				sorted.add(entry.getKey());
+			}
+		}
+
+		return sorted;
+	}
+
+	/**
+	 * Check the tree holds the same elements as this model. Search trees must also iterate in ascending order.
+	 * @param tree the tree to compare.
+	 * @param ordered whether the tree iterates in ascending order.
+	 */
+	void assertMatches(Tree<Integer> tree, boolean ordered) {
+		assertEquals(this.size, tree.size(), "size");
+
+		if (this.size == 0) {
+			assertNull(tree.findMin(), "findMin of an empty tree");
+			assertNull(tree.findMax(), "findMax of an empty tree");
+		} else {
+			assertEquals(this.counts.firstKey(), tree.findMin(), "findMin");
+			assertEquals(this.counts.lastKey(), tree.findMax(), "findMax");
+		}
+
+		ArrayList<Integer> elements = new ArrayList<>(tree.size());
+
+		for (Iterator<Integer> iterator = tree.iterator(); iterator.hasNext(); ) {
+			elements.add(iterator.next());
+		}
+
+		if (!ordered) {
+			elements.sort(null);
+		}
+
+		assertIterableEquals(this.sorted(), elements, "elements");
+	}
+
+	/**
+	 * Apply a random mix of adds, removes and lookups to the tree and the model, checking they agree after every
+	 * operation. Removes are biased towards elements in the tree, so the tree grows and shrinks through every case of
+	 * rebalancing.
+	 * @param tree the tree to test, which must start empty.
+	 * @param ordered whether the tree iterates in ascending order.
+	 * @param invariants checks the internal structure of the tree, throwing if it is inconsistent.
+	 * @param seed the seed of the random operations.
+	 * @param operations the number of operations.
+	 * @param range elements are taken from [0, range), so a small range gives many duplicates.
+	 */
+	static void fuzz(Tree<Integer> tree, boolean ordered, Runnable invariants, long seed, int operations, int range) {
+		SplittableRandom random = new SplittableRandom(seed);
+		TreeModel model = new TreeModel();
+
+		for (int i = 0; i < operations; i++) {
+			int element = random.nextInt(range);
+			// grow for the first half, then shrink, so the tree is emptied again
+			int addChance = i < operations / 2 ? 60 : 35;
+			int roll = random.nextInt(100);
+
+			if (roll < addChance) {
+				tree.add(element);
+				model.add(element);
+			} else if (roll < 95) {
+				// remove an element which is likely present
+				if (model.size() > 0 && random.nextBoolean()) {
+					Integer present = model.counts.ceilingKey(element);
+					element = present != null ? present : model.counts.lastKey();
+				}
+
+				assertEquals(model.remove(element), tree.remove(element), "remove " + element);
+			} else {
+				assertEquals(model.contains(element), tree.contains(element), "contains " + element);
+			}
+
+			invariants.run();
+			assertEquals(model.size(), tree.size(), "size");
+		}
+
+		model.assertMatches(tree, ordered);
+
+		// drain whatever is left
+		for (Integer element : model.sorted()) {
+			assertTrue(tree.remove(element), "remove " + element);
+			invariants.run();
+		}
+
+		assertEquals(0, tree.size(), "size after draining");
+	}
+}
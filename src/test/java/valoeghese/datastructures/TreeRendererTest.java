@@ -0,0 +1,163 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link TreeRenderer} against a recursive drawing of the same tree, with depth and node limits, checking
+ * that every node is either drawn or counted in an elided subtree.
+ */
+class TreeRendererTest {
+	@Test
+	void smallTree() {
+		SimpleBinarySearchTree<Integer> tree = new SimpleBinarySearchTree<>();
+		tree.add(2);
+		tree.add(1);
+		tree.add(3);
+
+		assertEquals("""
+				2
+				|-1 p: 2
+				| |-nil
+				| |-nil
+				|-3 p: 2
+				| |-nil
+				| |-nil""", new TreeRenderer().render(tree));
+
+		assertEquals("""
+				2
+				|-... (1 node)
+				|-... (1 node)""", new TreeRenderer(0, Long.MAX_VALUE).render(tree));
+
+		// the node limit elides everything after the first nodes in pre-order
+		assertEquals("""
+				2
+				|-1 p: 2
+				| |-nil
+				| |-nil
+				|-... (1 node)""", new TreeRenderer(Integer.MAX_VALUE, 2).render(tree));
+
+		assertEquals("... (3 nodes)", new TreeRenderer(Integer.MAX_VALUE, 0).render(tree));
+	}
+
+	@Test
+	void emptyTree() {
+		assertEquals("nil", new TreeRenderer().render(new AVLTree<Integer>()));
+		assertEquals("nil", new TreeRenderer(0, 0).render(new AVLTree<Integer>()));
+	}
+
+	@Test
+	void randomTreesMatchRecursiveDrawing() {
+		SplittableRandom random = new SplittableRandom(9);
+
+		for (int i = 0; i < 200; i++) {
+			BinarySearchTree<Integer, ?> tree = random.nextBoolean() ? new AVLTree<>() : new SimpleBinarySearchTree<>();
+			int size = random.nextInt(300);
+
+			for (int j = 0; j < size; j++) {
+				tree.add(random.nextInt(100));
+			}
+
+			int maxDepth = random.nextBoolean() ? Integer.MAX_VALUE : random.nextInt(12);
+			long maxNodes = random.nextBoolean() ? Long.MAX_VALUE : random.nextInt(size + 2);
+			String rendered = new TreeRenderer(maxDepth, maxNodes).render(tree);
+
+			assertEquals(draw(tree, maxDepth, maxNodes), rendered, "depth " + maxDepth + ", nodes " + maxNodes);
+			assertAccountsForEveryNode(rendered, tree.size(), maxDepth, maxNodes);
+		}
+	}
+
+	@Test
+	void deepTreeIsElided() {
+		// ascending adds to a tree which does not balance leave a path 3000 nodes deep
+		SimpleBinarySearchTree<Integer> tree = new SimpleBinarySearchTree<>();
+
+		for (int i = 0; i < 3000; i++) {
+			tree.add(i);
+		}
+
+		String rendered = new TreeRenderer(50, Long.MAX_VALUE).render(tree);
+		String[] lines = rendered.split("\n");
+
+		// each of the 51 nodes drawn has a nil on the left, and the rest hang below the last
+		assertEquals(51 * 2 + 1, lines.length);
+		assertTrue(lines[lines.length - 1].endsWith("|-... (2949 nodes)"), lines[lines.length - 1]);
+		assertAccountsForEveryNode(rendered, 3000, 50, Long.MAX_VALUE);
+	}
+
+	@Test
+	void negativeLimits() {
+		assertThrows(IllegalArgumentException.class, () -> new TreeRenderer(-1, 10));
+		assertThrows(IllegalArgumentException.class, () -> new TreeRenderer(10, -1));
+	}
+
+	/**
+	 * Check the drawn nodes and the sizes of the elided subtrees add up to the size of the tree, and the limits hold.
+	 */
+	private static void assertAccountsForEveryNode(String rendered, int size, int maxDepth, long maxNodes) {
+		long drawn = 0;
+		long elided = 0;
+
+		for (String line : rendered.split("\n")) {
+			int depth = 0;
+
+			while (line.startsWith("| ", 2 * depth)) depth++;
+			if (line.startsWith("|-", 2 * depth)) depth++;
+
+			String content = line.substring(2 * depth);
+
+			if (content.startsWith("... (")) {
+				elided += Long.parseLong(content.substring(5, content.indexOf(' ', 5)));
+			} else if (!content.equals("nil")) {
+				assertTrue(depth <= maxDepth, "drew node at depth " + depth);
+				drawn++;
+			}
+		}
+
+		assertTrue(drawn <= maxNodes, "drew " + drawn + " nodes");
+		assertEquals(size, drawn + elided, "nodes drawn and elided");
+	}
+
+	/**
+	 * Draw the tree recursively, as the renderer would, for comparison.
+	 */
+	private static <N extends BinarySearchTree<Integer, N>.Node> String draw(BinarySearchTree<Integer, N> tree, int maxDepth, long maxNodes) {
+		if (tree.root == null) return "nil";
+
+		ArrayList<String> lines = new ArrayList<>();
+		draw(tree.root, 0, maxDepth, maxNodes, new long[1], lines);
+		return String.join("\n", lines);
+	}
+
+	private static <N extends BinarySearchTree<Integer, N>.Node> void draw(N node, int depth, int maxDepth, long maxNodes, long[] drawn, ArrayList<String> lines) {
+		if (depth > maxDepth || drawn[0] >= maxNodes) {
+			lines.add(prefix(depth) + "... (" + node.size + (node.size == 1 ? " node)" : " nodes)"));
+			return;
+		}
+
+		lines.add(prefix(depth) + node);
+		drawn[0]++;
+
+		if (node.leftChild == null) {
+			lines.add(prefix(depth + 1) + "nil");
+		} else {
+			draw(node.leftChild, depth + 1, maxDepth, maxNodes, drawn, lines);
+		}
+
+		if (node.rightChild == null) {
+			lines.add(prefix(depth + 1) + "nil");
+		} else {
+			draw(node.rightChild, depth + 1, maxDepth, maxNodes, drawn, lines);
+		}
+	}
+
+	private static String prefix(int depth) {
+		return "| ".repeat(Math.max(0, depth - 1)) + (depth > 0 ? "|-" : "");
+	}
+}
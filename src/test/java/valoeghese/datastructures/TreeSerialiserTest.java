@@ -0,0 +1,95 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Round trip tests of {@link TreeSerialiser}, with and without the shape, for trees in natural order and trees with a
+ * comparator.
+ */
+class TreeSerialiserTest {
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void avlTreeRoundTrip(boolean saveShape) throws IOException {
+		for (Comparator<Integer> comparator : comparators()) {
+			AVLTree<Integer> tree = comparator == null ? new AVLTree<>() : new AVLTree<>(comparator);
+			fill(tree);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			TreeSerialiser.write(tree, KeyCodec.INTEGER, Channels.newChannel(bytes), saveShape);
+			AVLTree<Integer> read = TreeSerialiser.readAVLTree(channel(bytes), KeyCodec.INTEGER, () -> comparator == null ? new AVLTree<>() : new AVLTree<>(comparator));
+
+			read.checkInvariants();
+			assertEquals(elements(tree), elements(read));
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	void redBlackTreeRoundTrip(boolean saveShape) throws IOException {
+		for (Comparator<Integer> comparator : comparators()) {
+			RedBlackTree<Integer> tree = comparator == null ? new RedBlackTree<>() : new RedBlackTree<>(comparator);
+			fill(tree);
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			TreeSerialiser.write(tree, KeyCodec.INTEGER, Channels.newChannel(bytes), saveShape);
+			RedBlackTree<Integer> read = TreeSerialiser.readRedBlackTree(channel(bytes), KeyCodec.INTEGER, () -> comparator == null ? new RedBlackTree<>() : new RedBlackTree<>(comparator));
+
+			read.checkInvariants();
+			assertEquals(elements(tree), elements(read));
+		}
+	}
+
+	@Test
+	void comparatorMismatchIsRejected() throws IOException {
+		AVLTree<Integer> reversed = new AVLTree<>(Comparator.<Integer>reverseOrder());
+		AVLTree<Integer> natural = new AVLTree<>();
+		fill(reversed);
+		fill(natural);
+
+		ByteArrayOutputStream reversedBytes = new ByteArrayOutputStream();
+		ByteArrayOutputStream naturalBytes = new ByteArrayOutputStream();
+		TreeSerialiser.write(reversed, KeyCodec.INTEGER, Channels.newChannel(reversedBytes), false);
+		TreeSerialiser.write(natural, KeyCodec.INTEGER, Channels.newChannel(naturalBytes), false);
+
+		assertThrows(IOException.class, () -> TreeSerialiser.readAVLTree(channel(reversedBytes), KeyCodec.INTEGER));
+		assertThrows(IOException.class, () -> TreeSerialiser.readAVLTree(channel(naturalBytes), KeyCodec.INTEGER, () -> new AVLTree<>(Comparator.<Integer>reverseOrder())));
+	}
+
+	private static Comparator<Integer>[] comparators() {
+		@SuppressWarnings("unchecked")
+		Comparator<Integer>[] comparators = new Comparator[] {null, Comparator.reverseOrder()};
+		return comparators;
+	}
+
+	private static void fill(Tree<Integer> tree) {
+		SplittableRandom random = new SplittableRandom(3);
+
+		for (int i = 0; i < 5000; i++) {
+			tree.add(random.nextInt(2000));
+		}
+	}
+
+	private static ReadableByteChannel channel(ByteArrayOutputStream bytes) {
+		return Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	private static ArrayList<Integer> elements(Tree<Integer> tree) {
+		ArrayList<Integer> elements = new ArrayList<>(tree.size());
+		tree.forEach(elements::add);
+		return elements;
+	}
+}
@@ -0,0 +1,119 @@
+package valoeghese.datastructures;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests of replaying a {@link TreeTracer}. Replaying a number of events gives the state after that many events, so
+ * replaying up to an event gives the state just before it.
+ */
+class TreeTracerTest {
+	@Test
+	void heightUpdateReplaysBeforeAndAfter() {
+		AVLTree<Integer> tree = new AVLTree<>();
+		TreeTracer<Integer> tracer = tree.enableTracing(1 << 16);
+		tracer.checkpoint();
+		runOperations(tree);
+
+		int checked = 0;
+
+		for (long step = 0; step < tracer.eventCount(); step++) {
+			if (tracer.event(step) != TreeTracer.Event.HEIGHT_UPDATE) continue;
+
+			AVLTree<Integer>.Node before = tracer.replay(step, AVLTree::new).find(tracer.element(step));
+			AVLTree<Integer>.Node after = tracer.replay(step + 1, AVLTree::new).find(tracer.element(step));
+			assertNotNull(before);
+			assertNotNull(after);
+			assertNotEquals(tracer.value(step), before.height, "height before event " + step);
+			assertEquals(tracer.value(step), after.height, "height after event " + step);
+			checked++;
+		}
+
+		assertNotEquals(0, checked);
+	}
+
+	@Test
+	void recolourReplaysBeforeAndAfter() {
+		RedBlackTree<Integer> tree = new RedBlackTree<>();
+		TreeTracer<Integer> tracer = tree.enableTracing(1 << 16);
+		tracer.checkpoint();
+		runOperations(tree);
+
+		int checked = 0;
+
+		for (long step = 0; step < tracer.eventCount(); step++) {
+			if (tracer.event(step) != TreeTracer.Event.RECOLOUR) continue;
+
+			RedBlackTree<Integer>.Node before = tracer.replay(step, RedBlackTree::new).find(tracer.element(step));
+			RedBlackTree<Integer>.Node after = tracer.replay(step + 1, RedBlackTree::new).find(tracer.element(step));
+			assertNotNull(before);
+			assertNotNull(after);
+			assertEquals(tracer.value(step) == 0, before.black, "colour before event " + step);
+			assertEquals(tracer.value(step) == 1, after.black, "colour after event " + step);
+			checked++;
+		}
+
+		assertNotEquals(0, checked);
+	}
+
+	@Test
+	void fullReplayMatchesTree() {
+		AVLTree<Integer> tree = new AVLTree<>();
+		TreeTracer<Integer> tracer = tree.enableTracing(1 << 16);
+		tracer.checkpoint();
+		runOperations(tree);
+
+		AVLTree<Integer> replayed = tracer.replay(tracer.eventCount(), AVLTree::new);
+		replayed.checkInvariants();
+		assertEquals(tree.stream().toList(), replayed.stream().toList());
+	}
+
+	@ParameterizedTest
+	@EnumSource(SplayTree.Splaying.class)
+	void splayTreeIsWholeAtEveryEvent(SplayTree.Splaying splaying) {
+		SplayTree<Integer> tree = new SplayTree<>(splaying);
+		TreeTracer<Integer> tracer = tree.enableTracing(1 << 16);
+		tracer.checkpoint();
+		runOperations(tree);
+
+		for (int i = 0; i < 60; i += 3) {
+			tree.contains(i);
+		}
+
+		tree.findMin();
+		tree.findMax();
+
+		// replays stop part way through splays, including the splay joining the subtrees of a removed node
+		for (long step = 0; step <= tracer.eventCount(); step++) {
+			tracer.replay(step, () -> new SplayTree<>(splaying)).checkInvariants();
+		}
+	}
+
+	/**
+	 * Add distinct elements in a random order, then remove some, so each element identifies a single node.
+	 */
+	private static void runOperations(Tree<Integer> tree) {
+		ArrayList<Integer> elements = new ArrayList<>();
+
+		for (int i = 0; i < 60; i++) {
+			elements.add(i);
+		}
+
+		Collections.shuffle(elements, new Random(7));
+		elements.forEach(tree::add);
+		Collections.shuffle(elements, new Random(8));
+
+		for (int i = 0; i < 30; i++) {
+			tree.remove(elements.get(i));
+		}
+	}
+}